@@ -0,0 +1,176 @@
+package bench.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import core.Connect4ComputerPlayer;
+import core.Connect4Logic;
+import core.Connect4MCTSPlayer;
+import core.TranspositionTable;
+import tic.TicTacToeComputerPlayer;
+import tic.TicTacToeLogic;
+
+/**
+ * JMH benchmarks of the computer players' move selection over the corpus
+ * positions. The Connect4 search starts from an empty transposition table
+ * for every position, so each pass does the same work as the first.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComputerPlayerBenchmark {
+
+    /**
+     * Number of slots in the transposition table of the Connect4 player.
+     */
+    private static final int TABLE_SIZE = 1 << 18;
+
+    /**
+     * The Connect4 corpus positions.
+     */
+    private Connect4Logic[] connect4;
+
+    /**
+     * The TicTacToe corpus positions.
+     */
+    private TicTacToeLogic[] ticTacToe;
+
+    /**
+     * TicTacToe player.
+     */
+    private TicTacToeComputerPlayer ticTacToePlayer;
+
+    /**
+     * Connect4 alpha-beta player, searching to each depth parameter.
+     */
+    @State(Scope.Thread)
+    public static class AlphaBeta {
+
+        /**
+         * Search depth.
+         */
+        @Param({"6", "10"})
+        public int depth;
+
+        /**
+         * Table of the player, cleared before each position.
+         */
+        TranspositionTable table;
+
+        /**
+         * The player.
+         */
+        Connect4ComputerPlayer player;
+
+        /**
+         * Creates the player.
+         */
+        @Setup
+        public void setup() {
+            this.table = new TranspositionTable(TABLE_SIZE);
+            this.player = new Connect4ComputerPlayer(this.depth, this.table);
+        }
+    }
+
+    /**
+     * Connect4 Monte Carlo player, running each playout parameter per move.
+     */
+    @State(Scope.Thread)
+    public static class MCTS {
+
+        /**
+         * Playouts per move.
+         */
+        @Param({"2000"})
+        public int playouts;
+
+        /**
+         * The player.
+         */
+        Connect4MCTSPlayer player;
+
+        /**
+         * Creates the player.
+         */
+        @Setup
+        public void setup() {
+            this.player = new Connect4MCTSPlayer(this.playouts);
+        }
+    }
+
+    /**
+     * Prepares the corpus and the TicTacToe player.
+     */
+    @Setup
+    public void setup() {
+        this.connect4 = new Connect4Logic[Corpus.CONNECT4.length];
+        for (int i = 0; i < this.connect4.length; i++) {
+            this.connect4[i] = Corpus.connect4(Corpus.CONNECT4[i]);
+        }
+        this.ticTacToe = new TicTacToeLogic[Corpus.TICTACTOE.length];
+        for (int i = 0; i < this.ticTacToe.length; i++) {
+            this.ticTacToe[i] = Corpus.ticTacToe(Corpus.TICTACTOE[i]);
+        }
+        this.ticTacToePlayer = new TicTacToeComputerPlayer();
+    }
+
+    /**
+     * Picks a move in every Connect4 corpus position with the alpha-beta
+     * player.
+     *
+     * @param alphaBeta the player.
+     * @param blackhole consumes the moves.
+     */
+    @Benchmark
+    public void connect4AlphaBeta(AlphaBeta alphaBeta, Blackhole blackhole) {
+        for (Connect4Logic game : this.connect4) {
+            alphaBeta.table.clear();
+            blackhole.consume(alphaBeta.player.getColumn(game));
+        }
+    }
+
+    /**
+     * Picks a move in every Connect4 corpus position with the Monte Carlo
+     * player.
+     *
+     * @param mcts the player.
+     * @param blackhole consumes the moves.
+     */
+    @Benchmark
+    public void connect4MCTS(MCTS mcts, Blackhole blackhole) {
+        for (Connect4Logic game : this.connect4) {
+            blackhole.consume(mcts.player.getColumn(game));
+        }
+    }
+
+    /**
+     * Picks a move in every TicTacToe corpus position.
+     *
+     * @param blackhole consumes the moves.
+     */
+    @Benchmark
+    public void ticTacToe(Blackhole blackhole) {
+        for (TicTacToeLogic logic : this.ticTacToe) {
+            blackhole.consume(this.ticTacToePlayer.findMove(logic));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package bench.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import core.Connect4Logic;
+
+/**
+ * JMH benchmarks of the Connect4Logic calls the user interfaces make on every
+ * move: checkMoveValidity, updateBoard and checkForWin. Each operation runs
+ * over every position of the corpus, so the score is the time for one pass
+ * over the corpus.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Connect4LogicBenchmark {
+
+    /**
+     * The corpus positions.
+     */
+    private Connect4Logic[] games;
+
+    /**
+     * Plays the corpus positions.
+     */
+    @Setup
+    public void setup() {
+        this.games = new Connect4Logic[Corpus.CONNECT4.length];
+        for (int i = 0; i < this.games.length; i++) {
+            this.games[i] = Corpus.connect4(Corpus.CONNECT4[i]);
+        }
+    }
+
+    /**
+     * Checks every column of every position.
+     *
+     * @param blackhole consumes the results.
+     */
+    @Benchmark
+    public void checkMoveValidity(Blackhole blackhole) {
+        for (Connect4Logic game : this.games) {
+            for (int col = 1; col <= Connect4Logic.COLUMNS; col++) {
+                blackhole.consume(game.checkMoveValidity(col));
+            }
+        }
+    }
+
+    /**
+     * Makes every legal move of every position the way the user interfaces
+     * do (checkMoveValidity, updateBoard, incrementTurn) and takes it back.
+     *
+     * @param blackhole consumes the results.
+     */
+    @Benchmark
+    public void updateBoard(Blackhole blackhole) {
+        for (Connect4Logic game : this.games) {
+            for (int col = 1; col <= Connect4Logic.COLUMNS; col++) {
+                int row = game.checkMoveValidity(col);
+                if (row < 0) continue;
+                game.updateBoard(game.getPlayerTurn(), row, col);
+                game.incrementTurn();
+                blackhole.consume(game.getHash());
+                game.undoMove();
+            }
+        }
+    }
+
+    /**
+     * Checks every position for a winner by scanning the whole board.
+     *
+     * @param blackhole consumes the results.
+     */
+    @Benchmark
+    public void checkForWin(Blackhole blackhole) {
+        for (Connect4Logic game : this.games) {
+            blackhole.consume(game.checkForWin());
+        }
+    }
+
+    /**
+     * Makes every legal move of every position and checks it for a win with
+     * checkLastMoveForWin, the way the computer player's search does.
+     *
+     * @param blackhole consumes the results.
+     */
+    @Benchmark
+    public void checkLastMoveForWin(Blackhole blackhole) {
+        for (Connect4Logic game : this.games) {
+            for (int col = 1; col <= Connect4Logic.COLUMNS; col++) {
+                if (game.makeMove(col) < 0) continue;
+                blackhole.consume(game.checkLastMoveForWin());
+                game.undoMove();
+            }
+        }
+    }
+}
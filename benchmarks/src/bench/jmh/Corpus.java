@@ -0,0 +1,98 @@
+package bench.jmh;
+
+import core.Connect4Logic;
+import tic.TicTacToeLogic;
+
+/**
+ * Fixed positions the JMH benchmarks run on, so results of different
+ * releases measure the same work and can be compared.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+final class Corpus {
+
+    /**
+     * Connect4 positions, given as the columns (1-7) of the moves played from
+     * the empty board: the opening, the middle game and positions close to
+     * the end of the game. None of them is won.
+     */
+    static final String[] CONNECT4 = {
+        "",
+        "4453",
+        "4343",
+        "3455432",
+        "44433352",
+        "4444333",
+        "435443",
+        "44444",
+        "4455363",
+        "1234567123456712345",
+        "44444433333322222",
+        "43443551223671166"
+    };
+
+    /**
+     * TicTacToe positions, given as the spaces (0-8, row * 3 + column) of the
+     * moves played from the empty board, X moving first. None of them is
+     * over.
+     */
+    static final String[] TICTACTOE = {
+        "",
+        "4",
+        "0",
+        "40",
+        "04",
+        "402",
+        "4062",
+        "01548",
+        "8436",
+        "013"
+    };
+
+    /**
+     * A full TicTacToe game ending in a draw, as spaces in move order.
+     */
+    static final int[] TICTACTOE_GAME = {4, 0, 2, 6, 3, 5, 1, 7, 8};
+
+    /**
+     * private constructor, the class only has constants and static methods.
+     */
+    private Corpus() {
+    }
+
+    /**
+     * Plays a Connect4 position from the empty board.
+     *
+     * @param moves columns (1-7) of the moves.
+     *
+     * @return the game after the moves.
+     */
+    static Connect4Logic connect4(String moves) {
+        Connect4Logic game = new Connect4Logic();
+        for (int i = 0; i < moves.length(); i++) {
+            if (game.makeMove(moves.charAt(i) - '0') < 0) {
+                throw new IllegalArgumentException("illegal move in " + moves);
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Plays a TicTacToe position from the empty board.
+     *
+     * @param moves spaces (0-8) of the moves.
+     *
+     * @return the game after the moves.
+     */
+    static TicTacToeLogic ticTacToe(String moves) {
+        TicTacToeLogic logic = new TicTacToeLogic();
+        for (int i = 0; i < moves.length(); i++) {
+            if (!logic.makeMove(i % 2 == 0 ? 'X' : 'O', moves.charAt(i) - '0')) {
+                throw new IllegalArgumentException("illegal move in " + moves);
+            }
+        }
+        return logic;
+    }
+}
@@ -0,0 +1,112 @@
+package bench.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import tic.TicTacToeLogic;
+
+/**
+ * JMH benchmarks of TicTacToeLogic.makeMove and playerWon, both through the
+ * space index API the computer player uses and through the "2b" string moves
+ * the text console uses.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicTacToeLogicBenchmark {
+
+    /**
+     * The moves of the corpus game as strings.
+     */
+    private String[] game;
+
+    /**
+     * The corpus positions.
+     */
+    private TicTacToeLogic[] positions;
+
+    /**
+     * Prepares the corpus.
+     */
+    @Setup
+    public void setup() {
+        this.game = new String[Corpus.TICTACTOE_GAME.length];
+        for (int i = 0; i < this.game.length; i++) {
+            this.game[i] = TicTacToeLogic.toMove(Corpus.TICTACTOE_GAME[i]);
+        }
+        this.positions = new TicTacToeLogic[Corpus.TICTACTOE.length];
+        for (int i = 0; i < this.positions.length; i++) {
+            this.positions[i] = Corpus.ticTacToe(Corpus.TICTACTOE[i]);
+        }
+    }
+
+    /**
+     * Plays the corpus game on a new board, checking for a win after every
+     * move, with space indexes.
+     *
+     * @return the final board, so the work is not optimized away.
+     */
+    @Benchmark
+    public TicTacToeLogic makeMoveCell() {
+        TicTacToeLogic logic = new TicTacToeLogic();
+        char player = 'X';
+        for (int cell : Corpus.TICTACTOE_GAME) {
+            logic.makeMove(player, cell);
+            if (logic.playerWon(player, cell)) break;
+            player = player == 'X' ? 'O' : 'X';
+        }
+        return logic;
+    }
+
+    /**
+     * Plays the corpus game on a new board, checking for a win after every
+     * move, with string moves.
+     *
+     * @return the final board, so the work is not optimized away.
+     */
+    @Benchmark
+    public TicTacToeLogic makeMoveString() {
+        TicTacToeLogic logic = new TicTacToeLogic();
+        char player = 'X';
+        for (String move : this.game) {
+            char opponent = player == 'X' ? 'O' : 'X';
+            logic.makeMove(player, opponent, move, false);
+            if (logic.playerWon(player, move)) break;
+            player = opponent;
+        }
+        return logic;
+    }
+
+    /**
+     * Checks every space of every corpus position for a win by both players.
+     *
+     * @param blackhole consumes the results.
+     */
+    @Benchmark
+    public void playerWon(Blackhole blackhole) {
+        for (TicTacToeLogic logic : this.positions) {
+            for (int cell = 0; cell < 9; cell++) {
+                blackhole.consume(logic.playerWon('X', cell));
+                blackhole.consume(logic.playerWon('O', cell));
+            }
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package bench.jmh.jmh_generated;
+public class ComputerPlayerBenchmark_MCTS_jmhType extends ComputerPlayerBenchmark_MCTS_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package bench.jmh.jmh_generated;
+public class ComputerPlayerBenchmark_jmhType extends ComputerPlayerBenchmark_jmhType_B3 {
+}
+
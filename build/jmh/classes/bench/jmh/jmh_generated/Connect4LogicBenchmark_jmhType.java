@@ -0,0 +1,4 @@
+package bench.jmh.jmh_generated;
+public class Connect4LogicBenchmark_jmhType extends Connect4LogicBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package bench.jmh.jmh_generated;
+public class TicTacToeLogicBenchmark_jmhType extends TicTacToeLogicBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,89 @@
+package bench;
+
+import core.Connect4Logic;
+import core.Connect4MCTSPlayer;
+import core.Connect4ParallelMCTSPlayer;
+
+/**
+ * Measures how the parallel Monte Carlo Tree Search scales with the number of
+ * threads. Each position of the search benchmark set is searched for a fixed
+ * time in both modes (root and tree parallel) with 1, 2, 4, 8 and 16 threads,
+ * and the playouts per second are compared with the single threaded search.
+ *
+ * Usage: java bench.Connect4MCTSBenchmark [ms per move] [threads...]
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Connect4MCTSBenchmark {
+    /**
+     * Search time per position in milliseconds used when none is given.
+     */
+    private static final int DEFAULT_TIME = 500;
+
+    /**
+     * Thread counts measured when none are given.
+     */
+    private static final int[] DEFAULT_THREADS = {1, 2, 4, 8, 16};
+
+    /**
+     * Runs the benchmark and prints the total playouts per second for each
+     * mode and thread count.
+     *
+     * @param args optional search time in milliseconds followed by the thread
+     * counts to measure.
+     */
+    public static void main(String[] args) {
+        int time = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TIME;
+        int[] threadCounts = DEFAULT_THREADS;
+        if (args.length > 1) {
+            threadCounts = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) threadCounts[i - 1] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("%d ms per position, %d cores%n", time, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-6s %7s %14s %14s %8s%n", "mode", "threads", "playouts", "playouts/s", "speedup");
+
+        // warm up the JIT so the first measurement is not penalized
+        for (Connect4ParallelMCTSPlayer.Mode mode : Connect4ParallelMCTSPlayer.Mode.values()) {
+            run(mode, 1, Math.min(time, 200));
+        }
+
+        for (Connect4ParallelMCTSPlayer.Mode mode : Connect4ParallelMCTSPlayer.Mode.values()) {
+            long basePerSecond = 0;
+            for (int i = 0; i < threadCounts.length; i++) {
+                long[] result = run(mode, threadCounts[i], time);
+                long perSecond = result[1] == 0 ? 0 : result[0] * 1000000000L / result[1];
+                if (i == 0) basePerSecond = perSecond;
+                System.out.printf("%-6s %7d %14d %14d %8.2f%n", mode, threadCounts[i], result[0], perSecond,
+                        basePerSecond == 0 ? 0 : (double) perSecond / basePerSecond);
+            }
+        }
+    }
+
+    /**
+     * Searches every benchmark position with one player.
+     *
+     * @param mode how the search is split between threads.
+     * @param threads number of search threads.
+     * @param time search time per position in milliseconds.
+     *
+     * @return the total number of playouts and the total time in nanoseconds.
+     */
+    private static long[] run(Connect4ParallelMCTSPlayer.Mode mode, int threads, int time) {
+        Connect4ParallelMCTSPlayer player = new Connect4ParallelMCTSPlayer(mode, threads, Integer.MAX_VALUE,
+                Connect4MCTSPlayer.DEFAULT_CAPACITY);
+        player.setTimeBudget(time);
+        long playouts = 0;
+        long nanos = 0;
+        for (String position : Connect4SearchBenchmark.POSITIONS) {
+            Connect4Logic game = Connect4SearchBenchmark.play(position);
+            long start = System.nanoTime();
+            player.getColumn(game);
+            nanos += System.nanoTime() - start;
+            playouts += player.getPlayouts();
+        }
+        return new long[] {playouts, nanos};
+    }
+}
@@ -0,0 +1,124 @@
+package bench;
+
+import core.Connect4ComputerPlayer;
+import core.Connect4Logic;
+import core.TranspositionTable;
+
+/**
+ * Measures how the Connect4 search scales with the number of search threads.
+ * Each position of a fixed set is searched to a fixed depth with 1, 2, 4, 8
+ * and 16 threads, starting from an empty transposition table every time, and
+ * the time to reach the depth is compared with the single threaded search.
+ *
+ * Usage: java bench.Connect4SearchBenchmark [depth] [threads...]
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Connect4SearchBenchmark {
+    /**
+     * Positions searched by the benchmark, given as the columns (1-7) of the
+     * moves played from the empty board.
+     */
+    static final String[] POSITIONS = {
+        "",
+        "4453",
+        "44444",
+        "4343",
+        "4444333",
+        "3455432",
+        "44433352",
+        "435443",
+        "5443"
+    };
+
+    /**
+     * Search depth used when none is given.
+     */
+    private static final int DEFAULT_DEPTH = 14;
+
+    /**
+     * Thread counts measured when none are given.
+     */
+    private static final int[] DEFAULT_THREADS = {1, 2, 4, 8, 16};
+
+    /**
+     * Number of slots in the transposition table of each run.
+     */
+    private static final int TABLE_SIZE = 1 << 22;
+
+    /**
+     * Runs the benchmark and prints one line per position and thread count.
+     *
+     * @param args optional search depth followed by the thread counts to
+     * measure.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+        int[] threadCounts = DEFAULT_THREADS;
+        if (args.length > 1) {
+            threadCounts = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) threadCounts[i - 1] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("depth %d, %d cores%n", depth, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-14s %7s %10s %14s %12s %8s%n", "position", "threads", "ms", "nodes", "nodes/s", "speedup");
+
+        // warm up the JIT so the first measurement is not penalized
+        newPlayer(Math.min(depth, 10), 1).getColumn(play(POSITIONS[1]));
+
+        double[] totalMillis = new double[threadCounts.length];
+        for (String position : POSITIONS) {
+            double baseMillis = 0;
+            for (int i = 0; i < threadCounts.length; i++) {
+                Connect4ComputerPlayer player = newPlayer(depth, threadCounts[i]);
+                Connect4Logic game = play(position);
+                long start = System.nanoTime();
+                player.getColumn(game);
+                double millis = (System.nanoTime() - start) / 1e6;
+                if (i == 0) baseMillis = millis;
+                totalMillis[i] += millis;
+                System.out.printf("%-14s %7d %10.1f %14d %12d %8.2f%n", position.isEmpty() ? "(empty)" : position,
+                        threadCounts[i], millis, player.getNodesSearched(), player.getNodesPerSecond(),
+                        millis == 0 ? 0 : baseMillis / millis);
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-14s %7s %10s %8s%n", "total", "threads", "ms", "speedup");
+        for (int i = 0; i < threadCounts.length; i++) {
+            System.out.printf("%-14s %7d %10.1f %8.2f%n", "", threadCounts[i], totalMillis[i],
+                    totalMillis[0] / totalMillis[i]);
+        }
+    }
+
+    /**
+     * Creates a player with a fresh transposition table.
+     *
+     * @param depth depth to search to.
+     * @param threads number of search threads.
+     *
+     * @return the new player.
+     */
+    private static Connect4ComputerPlayer newPlayer(int depth, int threads) {
+        Connect4ComputerPlayer player = new Connect4ComputerPlayer(depth, new TranspositionTable(TABLE_SIZE));
+        player.setThreads(threads);
+        return player;
+    }
+
+    /**
+     * Builds a game from a sequence of moves.
+     *
+     * @param position columns (1-7) of the moves to play from the empty board.
+     *
+     * @return the game after the moves.
+     */
+    static Connect4Logic play(String position) {
+        Connect4Logic game = new Connect4Logic();
+        for (char c : position.toCharArray()) {
+            if (game.makeMove(c - '0') < 0) throw new IllegalArgumentException("invalid position: " + position);
+        }
+        return game;
+    }
+}
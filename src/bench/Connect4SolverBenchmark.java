@@ -0,0 +1,93 @@
+package bench;
+
+import core.Connect4Logic;
+import core.Connect4Solver;
+
+/**
+ * Solves the mid-game positions of the solver regression suite and reports the
+ * solve time of each. Every position is solved strongly (exact score) and
+ * weakly (win, draw or loss only) from an empty transposition table, and the
+ * results are checked against the known scores. Positions whose strong solve
+ * takes longer than the target time are flagged.
+ *
+ * Usage: java bench.Connect4SolverBenchmark [target ms]
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Connect4SolverBenchmark {
+    /**
+     * Regression suite positions, given as the columns (1-7) of the moves
+     * played from the empty board.
+     */
+    static final String[] POSITIONS = {
+        "667512642751",
+        "567353433124",
+        "116234254315",
+        "443566541245",
+        "571761361435",
+        "617421731336",
+        "541332377366",
+        "541175725266",
+        "626667761312",
+        "62211373322677",
+        "16547316477117",
+        "5456756527466722",
+        "3775633456333266",
+        "66633111637545371636"
+    };
+
+    /**
+     * Exact scores of the regression suite positions, from the point of view
+     * of the player to move.
+     */
+    static final int[] SCORES = {3, 3, 2, -5, -4, -2, 4, 2, -1, 2, 1, -3, 2, 8};
+
+    /**
+     * Target time for the strong solve of one position in milliseconds, used
+     * when none is given.
+     */
+    private static final long DEFAULT_TARGET = 5000;
+
+    /**
+     * Runs the benchmark and prints one line per position.
+     *
+     * @param args optional target time per position in milliseconds.
+     */
+    public static void main(String[] args) {
+        long target = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_TARGET;
+        Connect4Solver solver = new Connect4Solver();
+
+        System.out.printf("%-22s %6s %5s %10s %12s %10s %6s %s%n",
+                "position", "score", "end", "strong ms", "nodes", "weak ms", "weak", "");
+        double totalMillis = 0;
+        int failures = 0;
+        for (int i = 0; i < POSITIONS.length; i++) {
+            Connect4Logic game = Connect4SearchBenchmark.play(POSITIONS[i]);
+
+            solver.reset();
+            long start = System.nanoTime();
+            int score = solver.solve(game);
+            double strongMillis = (System.nanoTime() - start) / 1e6;
+            long nodes = solver.getNodeCount();
+
+            solver.reset();
+            start = System.nanoTime();
+            int weak = solver.solve(game, true);
+            double weakMillis = (System.nanoTime() - start) / 1e6;
+
+            String status = "";
+            if (score != SCORES[i] || weak != Integer.signum(SCORES[i])) status = "WRONG (expected " + SCORES[i] + ")";
+            else if (strongMillis > target) status = "SLOW";
+            if (!status.isEmpty()) failures++;
+            totalMillis += strongMillis;
+
+            System.out.printf("%-22s %6d %5d %10.1f %12d %10.1f %6d %s%n", POSITIONS[i], score,
+                    Connect4Solver.movesToEnd(score, POSITIONS[i].length()), strongMillis, nodes,
+                    weakMillis, weak, status);
+        }
+        System.out.printf("%ntotal %.1f ms, %d of %d positions failed (target %d ms)%n",
+                totalMillis, failures, POSITIONS.length, target);
+    }
+}
@@ -0,0 +1,138 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import core.Connect4Logic;
+import store.GameAnalytics;
+import store.GameCodec;
+import store.GameRecordReader;
+import store.GameRecordWriter;
+import store.GameSummary;
+import tic.TicTacToeLogic;
+
+/**
+ * Measures how fast GameAnalytics replays and summarizes recorded games. A
+ * directory of segments is filled with random games, half Connect4 and half
+ * TicTacToe, and then summarized on one thread and on every core, and the
+ * time for a hundred million games is estimated from the rate.
+ *
+ * Usage: java bench.GameAnalyticsBenchmark [games] [directory]
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class GameAnalyticsBenchmark {
+
+    /**
+     * Number of games recorded when none is given.
+     */
+    private static final int DEFAULT_GAMES = 10000000;
+
+    /**
+     * Names the random games are recorded under.
+     */
+    private static final String[] PLAYERS = {"random-a", "random-b", "random-c", "random-d"};
+
+    /**
+     * Runs the benchmark and prints the replay rates.
+     *
+     * @param args optional number of games and directory to record them in
+     * (a temporary directory by default, deleted afterwards).
+     *
+     * @throws IOException if the games cannot be written or read.
+     */
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        boolean temporary = args.length < 2;
+        Path directory = temporary ? Files.createTempDirectory("games") : Path.of(args[1]);
+
+        long start = System.nanoTime();
+        record(directory, games, new SplittableRandom(42));
+        List<Path> segments = GameRecordReader.segments(directory);
+        long bytes = 0;
+        for (Path segment : segments) bytes += Files.size(segment);
+        System.out.printf("%d games recorded in %.2f s: %d segments, %d bytes (%.1f per game)%n", games,
+                (System.nanoTime() - start) / 1e9, segments.size(), bytes, (double) bytes / games);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        GameAnalytics.analyze(segments, GameAnalytics.DEFAULT_OPENING_MOVES, cores);   // warm up
+        GameSummary summary = null;
+        for (int threads : cores == 1 ? new int[] {1} : new int[] {1, cores}) {
+            start = System.nanoTime();
+            summary = GameAnalytics.analyze(segments, GameAnalytics.DEFAULT_OPENING_MOVES, threads);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d threads: replayed in %.2f s, %.0f games/s, 100M games in %.0f s%n", threads,
+                    seconds, games / seconds, 1e8 * seconds / games);
+        }
+        System.out.printf("%d Connect4 and %d TicTacToe games, %d invalid%n", summary.getGames(GameCodec.CONNECT4),
+                summary.getGames(GameCodec.TICTACTOE), summary.getInvalid());
+
+        if (temporary) {
+            for (Path segment : segments) Files.delete(segment);
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * private helper method that records random games.
+     *
+     * @param directory directory of the segments.
+     * @param games number of games.
+     * @param random source of the moves.
+     *
+     * @throws IOException if the games cannot be written.
+     */
+    private static void record(Path directory, int games, SplittableRandom random) throws IOException {
+        Connect4Logic connect4 = new Connect4Logic();
+        TicTacToeLogic ticTacToe = new TicTacToeLogic();
+        int[] moves = new int[Connect4Logic.ROWS * Connect4Logic.COLUMNS];
+        try (GameRecordWriter writer = new GameRecordWriter(directory)) {
+            for (int g = 0; g < games; g++) {
+                String playerX = PLAYERS[random.nextInt(PLAYERS.length)];
+                String playerO = PLAYERS[random.nextInt(PLAYERS.length)];
+                int type;
+                int result;
+                int count;
+                if (g % 2 == 0) {
+                    type = GameCodec.CONNECT4;
+                    connect4.resetBoard();
+                    int winner = 0;
+                    while (winner == 0 && connect4.getMoveCount() < moves.length) {
+                        int col;
+                        do {
+                            col = random.nextInt(Connect4Logic.COLUMNS) + 1;
+                        } while (connect4.makeMove(col) < 0);
+                        winner = connect4.checkLastMoveForWin();
+                    }
+                    count = connect4.getMoveCount();
+                    for (int i = 0; i < count; i++) moves[i] = connect4.getMove(i);
+                    result = winner == 1 ? GameRecordWriter.X_WON : winner == 2 ? GameRecordWriter.O_WON
+                            : GameRecordWriter.DRAW;
+                }
+                else {
+                    type = GameCodec.TICTACTOE;
+                    ticTacToe.resetBoard();
+                    result = GameRecordWriter.DRAW;
+                    while (result == GameRecordWriter.DRAW && !ticTacToe.checkForTieGame()) {
+                        char player = ticTacToe.getMoveCount() % 2 == 0 ? 'X' : 'O';
+                        int cell;
+                        do {
+                            cell = random.nextInt(9);
+                        } while (!ticTacToe.makeMove(player, cell));
+                        if (ticTacToe.playerWon(player, cell)) {
+                            result = player == 'X' ? GameRecordWriter.X_WON : GameRecordWriter.O_WON;
+                        }
+                    }
+                    count = ticTacToe.getMoveCount();
+                    for (int i = 0; i < count; i++) moves[i] = ticTacToe.getMove(i);
+                }
+                writer.append(type, playerX, playerO, result, moves, count, null, 0);
+            }
+        }
+    }
+}
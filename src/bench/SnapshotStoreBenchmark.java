@@ -0,0 +1,176 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import core.Connect4Logic;
+import store.SnapshotStore;
+import tic.TicTacToeLogic;
+
+/**
+ * Measures the snapshot store the way a game server uses it. Many games are
+ * kept in progress at once, half Connect4 and half TicTacToe; every move of
+ * every game is saved, and a finished game is removed and replaced by a new
+ * one. Then the file is restored and compared with the games in memory,
+ * compacted, and restored again.
+ *
+ * Usage: java bench.SnapshotStoreBenchmark [games in progress] [moves]
+ * [file]
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class SnapshotStoreBenchmark {
+
+    /**
+     * Number of games in progress when none is given.
+     */
+    private static final int DEFAULT_GAMES = 50000;
+
+    /**
+     * Number of moves saved when none is given.
+     */
+    private static final int DEFAULT_MOVES = 2000000;
+
+    /**
+     * Runs the benchmark and prints the save rate and restore times.
+     *
+     * @param args optional number of games in progress, number of moves and
+     * file to use (a temporary file by default).
+     *
+     * @throws IOException if the file cannot be written or read.
+     * @throws InterruptedException if interrupted while syncing.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MOVES;
+        Path file = args.length > 2 ? Path.of(args[2]) : Files.createTempFile("snapshots", ".bin");
+        Files.deleteIfExists(file);
+
+        Connect4Logic[] connect4 = new Connect4Logic[games];
+        TicTacToeLogic[] ticTacToe = new TicTacToeLogic[games];
+        long[] sessions = new long[games];
+        long nextSession = 0;
+        SplittableRandom random = new SplittableRandom(42);
+
+        long start = System.nanoTime();
+        long finished = 0;
+        try (SnapshotStore store = new SnapshotStore(file)) {
+            for (int i = 0; i < games; i++) {
+                sessions[i] = nextSession++;
+                if (i % 2 == 0) connect4[i] = new Connect4Logic();
+                else ticTacToe[i] = new TicTacToeLogic();
+            }
+            for (int move = 0; move < moves; move++) {
+                int i = move % games;
+                boolean over = i % 2 == 0 ? playConnect4(connect4[i], random) : playTicTacToe(ticTacToe[i], random);
+                if (over) {
+                    store.remove(sessions[i]);
+                    finished++;
+                    sessions[i] = nextSession++;
+                    if (i % 2 == 0) connect4[i] = new Connect4Logic();
+                    else ticTacToe[i] = new TicTacToeLogic();
+                }
+                else if (i % 2 == 0) {
+                    store.save(sessions[i], connect4[i]);
+                }
+                else {
+                    store.save(sessions[i], ticTacToe[i]);
+                }
+            }
+            store.sync();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long size = Files.size(file);
+        System.out.printf("%d moves saved in %.2f s: %.0f saves/s, %d games finished, %d bytes (%.1f per record)%n",
+                moves, seconds, moves / seconds, finished, size, (double) size / moves);
+
+        restore(file, connect4, ticTacToe, sessions, "restore");
+        start = System.nanoTime();
+        SnapshotStore.compact(file);
+        System.out.printf("compacted to %d bytes in %.1f ms%n", Files.size(file), (System.nanoTime() - start) / 1e6);
+        restore(file, connect4, ticTacToe, sessions, "restore after compaction");
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Restores the file, times it and checks that the restored games are
+     * the games in memory that have moves.
+     *
+     * @param file the snapshot file.
+     * @param connect4 Connect4 games in progress, by slot.
+     * @param ticTacToe TicTacToe games in progress, by slot.
+     * @param sessions session id of each slot.
+     * @param label name of the step for the report.
+     *
+     * @throws IOException if the file cannot be read.
+     */
+    private static void restore(Path file, Connect4Logic[] connect4, TicTacToeLogic[] ticTacToe, long[] sessions,
+            String label) throws IOException {
+        long start = System.nanoTime();
+        SnapshotStore.Restored restored = SnapshotStore.restore(file);
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        Map<Long, Connect4Logic> restoredConnect4 = restored.getConnect4Games();
+        Map<Long, TicTacToeLogic> restoredTicTacToe = restored.getTicTacToeGames();
+        int expected = 0;
+        int mismatches = 0;
+        for (int i = 0; i < sessions.length; i++) {
+            if (connect4[i] != null && connect4[i].getMoveCount() > 0) {
+                expected++;
+                Connect4Logic game = restoredConnect4.get(sessions[i]);
+                if (game == null || game.getPositionKey() != connect4[i].getPositionKey()) mismatches++;
+            }
+            else if (ticTacToe[i] != null && ticTacToe[i].getMoveCount() > 0) {
+                expected++;
+                TicTacToeLogic game = restoredTicTacToe.get(sessions[i]);
+                if (game == null || game.getMask('X') != ticTacToe[i].getMask('X')
+                        || game.getMask('O') != ticTacToe[i].getMask('O')) {
+                    mismatches++;
+                }
+            }
+        }
+        int total = restoredConnect4.size() + restoredTicTacToe.size();
+        System.out.printf("%s: %d records, %d games (%d expected, %d wrong) in %.1f ms%n", label,
+                restored.getRecords(), total, expected, mismatches + Math.abs(total - expected), millis);
+    }
+
+    /**
+     * private helper method that makes a random move in a Connect4 game.
+     *
+     * @param game the game.
+     * @param random source of the move.
+     *
+     * @return true if the move ended the game.
+     */
+    private static boolean playConnect4(Connect4Logic game, SplittableRandom random) {
+        int col;
+        do {
+            col = random.nextInt(Connect4Logic.COLUMNS) + 1;
+        } while (game.checkMoveValidity(col) < 0);
+        game.makeMove(col);
+        return game.checkLastMoveForWin() != 0 || game.getMoveCount() == Connect4Logic.ROWS * Connect4Logic.COLUMNS;
+    }
+
+    /**
+     * private helper method that makes a random move in a TicTacToe game.
+     *
+     * @param game the game.
+     * @param random source of the move.
+     *
+     * @return true if the move ended the game.
+     */
+    private static boolean playTicTacToe(TicTacToeLogic game, SplittableRandom random) {
+        int cell;
+        do {
+            cell = random.nextInt(9);
+        } while (!game.isLegal(cell));
+        char player = game.getMoveCount() % 2 == 0 ? 'X' : 'O';
+        game.makeMove(player, cell);
+        return game.playerWon(player, cell) || game.checkForTieGame();
+    }
+}
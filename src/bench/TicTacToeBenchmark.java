@@ -0,0 +1,135 @@
+package bench;
+
+import java.util.SplittableRandom;
+
+import tic.TicTacToeComputerPlayer;
+import tic.TicTacToeEngine;
+import tic.TicTacToeLogic;
+
+/**
+ * Measures how many TicTacToe moves per second the perfect-play engine picks.
+ * Games start with a few random moves and are finished by the engine for both
+ * players; every position of every game is looked up in the engine's table.
+ * Games that start from an empty board must end in a draw, which is checked as
+ * well. Then full games are played headless through TicTacToeLogic (no
+ * listener) against the computer player to measure games per second.
+ *
+ * Usage: java bench.TicTacToeBenchmark [games]
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class TicTacToeBenchmark {
+    /**
+     * Number of games played when none is given.
+     */
+    private static final int DEFAULT_GAMES = 5000000;
+
+    /**
+     * Runs the benchmark and prints the move rate.
+     *
+     * @param args optional number of games to play.
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+
+        long start = System.nanoTime();
+        TicTacToeEngine.value(0);   // builds the table
+        System.out.printf("table of %d canonical positions built in %.1f ms%n", TicTacToeEngine.tableSize(),
+                (System.nanoTime() - start) / 1e6);
+
+        // warm up the JIT so the measurement is not penalized
+        play(games / 10 + 1, new SplittableRandom(1));
+
+        SplittableRandom random = new SplittableRandom(42);
+        start = System.nanoTime();
+        long[] result = play(games, random);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d moves in %.2f s: %.0f moves/s%n", games, result[0], seconds,
+                result[0] / seconds);
+        System.out.printf("%d perfect games from the empty board, %d not drawn%n", result[1], result[2]);
+
+        playHeadless(games / 10 + 1, new SplittableRandom(1));
+        start = System.nanoTime();
+        int computerLosses = playHeadless(games, random);
+        seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d headless games in %.2f s: %.0f games/s, computer lost %d%n", games, seconds,
+                games / seconds, computerLosses);
+    }
+
+    /**
+     * Plays games through TicTacToeLogic, player X moving at random and
+     * player O being the computer player.
+     *
+     * @param games number of games to play.
+     * @param random source of player X's moves.
+     *
+     * @return the number of games the computer player lost.
+     */
+    private static int playHeadless(int games, SplittableRandom random) {
+        int losses = 0;
+        for (int g = 0; g < games; g++) {
+            TicTacToeLogic logic = new TicTacToeLogic();
+            logic.createComputerPlayer();
+            TicTacToeComputerPlayer computer = logic.getComputerPlayer();
+            while (true) {
+                int cell;
+                do {
+                    cell = random.nextInt(9);
+                } while (!logic.isLegal(cell));
+                logic.makeMove('X', cell);
+                if (logic.playerWon('X', cell)) {
+                    losses++;
+                    break;
+                }
+                if (logic.checkForTieGame()) break;
+                String move = computer.makeMove(logic);
+                if (logic.playerWon('O', move)) break;
+            }
+        }
+        return losses;
+    }
+
+    /**
+     * Plays games where the first 0 to 2 moves are random and the engine
+     * plays the rest.
+     *
+     * @param games number of games to play.
+     * @param random source of the random opening moves.
+     *
+     * @return the number of engine moves, the number of games started from
+     * the empty board and how many of those were not drawn.
+     */
+    private static long[] play(int games, SplittableRandom random) {
+        long moves = 0;
+        long perfect = 0;
+        long notDrawn = 0;
+        for (int g = 0; g < games; g++) {
+            int position = 0;
+            int player = TicTacToeEngine.X;
+            int openings = random.nextInt(3);
+            for (int i = 0; i < openings; i++) {
+                int cell;
+                do {
+                    cell = random.nextInt(9);
+                } while (TicTacToeEngine.cellAt(position, cell) != TicTacToeEngine.EMPTY);
+                position = TicTacToeEngine.play(position, cell, player);
+                player = 3 - player;
+            }
+
+            int cell = TicTacToeEngine.bestMove(position);
+            while (cell >= 0) {
+                position = TicTacToeEngine.play(position, cell, player);
+                player = 3 - player;
+                moves++;
+                cell = TicTacToeEngine.bestMove(position);
+            }
+            if (openings == 0) {
+                perfect++;
+                if (TicTacToeEngine.value(position) != 0) notDrawn++;
+            }
+        }
+        return new long[] {moves, perfect, notDrawn};
+    }
+}
@@ -0,0 +1,303 @@
+package core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes Connect4 opening books. Every position reachable from a start
+ * position up to a given ply is solved with Connect4Solver, and the best move
+ * and score of each are written as a sorted book file that
+ * Connect4OpeningBook can memory-map.
+ *
+ * Usage: java core.Connect4BookGenerator file maxPly [moves]
+ *
+ * where moves are the columns (1-7) leading to the start position (the empty
+ * board if left out), so a large book can be generated in parts, for example
+ * one part per first move. The parts are then merged into one book with
+ *
+ * java core.Connect4BookGenerator merge file part...
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Connect4BookGenerator {
+
+    /**
+     * Solver used for every position.
+     */
+    private final Connect4Solver solver;
+
+    /**
+     * Deepest ply to include.
+     */
+    private final int maxPly;
+
+    /**
+     * Entries found so far, each packed as key, move and score (see pack).
+     */
+    private long[] entries;
+
+    /**
+     * Number of entries found so far.
+     */
+    private int entryCount;
+
+    /**
+     * Keys of the positions already visited, an open addressing hash set with
+     * 0 marking empty slots (no position has key 0).
+     */
+    private long[] visited;
+
+    /**
+     * Number of keys in visited.
+     */
+    private int visitedCount;
+
+    /**
+     * Constructs a generator.
+     *
+     * @param maxPly deepest ply (number of pieces on the board) to include.
+     */
+    public Connect4BookGenerator(int maxPly) {
+        if (maxPly < 0 || maxPly > Connect4Logic.ROWS * Connect4Logic.COLUMNS) {
+            throw new IllegalArgumentException("maxPly out of range: " + maxPly);
+        }
+        this.solver = new Connect4Solver();
+        this.maxPly = maxPly;
+        this.entries = new long[1024];
+        this.visited = new long[2048];
+    }
+
+    /**
+     * Solves every position reachable from a start position up to the maximum
+     * ply and writes the book file.
+     *
+     * @param start start position, which is played on during generation and
+     * left as it was.
+     * @param file path of the book file to write.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public void generate(Connect4Logic start, Path file) throws IOException {
+        this.entryCount = 0;
+        this.visitedCount = 0;
+        Arrays.fill(this.visited, 0L);
+        visit(start);
+
+        long[] sorted = Arrays.copyOf(this.entries, this.entryCount);
+        Arrays.sort(sorted);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(Connect4OpeningBook.MAGIC);
+            out.writeInt(Connect4OpeningBook.VERSION);
+            out.writeInt(this.maxPly);
+            out.writeInt(sorted.length);
+            for (long entry : sorted) {
+                out.writeLong(entry >>> 14);
+                out.writeByte((int) (entry >>> 6) & 0x7);
+                out.writeByte((int) (entry & 0x3F) - 32);
+            }
+        }
+    }
+
+    /**
+     * private helper method that solves a position and visits the positions
+     * after each of its moves. Positions reached through more than one move
+     * order, and mirror images of positions already solved, are only solved
+     * once.
+     *
+     * @param game position to visit.
+     */
+    private void visit(Connect4Logic game) {
+        if (game.getMoveCount() > this.maxPly || game.checkLastMoveForWin() != 0
+                || game.getMoveCount() == Connect4Logic.ROWS * Connect4Logic.COLUMNS) {
+            return;
+        }
+        // mirror images share one entry, see Connect4Symmetry
+        long positionKey = game.getPositionKey();
+        long key = Connect4Symmetry.canonicalKey(positionKey);
+        if (!markVisited(key)) return;
+
+        int col = this.solver.getBestColumn(game) - 1;
+        if (Connect4Symmetry.isMirrored(positionKey)) col = Connect4Symmetry.mirrorColumn(col);
+        addEntry(pack(key, col, this.solver.getBestScore()));
+
+        for (int next = 1; next <= Connect4Logic.COLUMNS; next++) {
+            if (game.makeMove(next) < 0) continue;
+            visit(game);
+            game.undoMove();
+        }
+    }
+
+    /**
+     * private helper method that packs an entry into a long that sorts in key
+     * order. Keys have 49 bits, which leaves 14 bits below them for the move
+     * (3 bits) and the score offset by 32 (6 bits).
+     *
+     * @param key canonical position key.
+     * @param col column index (0-6) of the best move of the canonical
+     * position.
+     * @param score score of the position.
+     *
+     * @return the packed entry.
+     */
+    private static long pack(long key, int col, int score) {
+        return key << 14 | (long) col << 6 | (score + 32);
+    }
+
+    /**
+     * private helper method that adds an entry, growing the array as needed.
+     *
+     * @param entry packed entry.
+     */
+    private void addEntry(long entry) {
+        if (this.entryCount == this.entries.length) this.entries = Arrays.copyOf(this.entries, this.entryCount * 2);
+        this.entries[this.entryCount++] = entry;
+    }
+
+    /**
+     * private helper method that adds a key to the visited set.
+     *
+     * @param key position key.
+     *
+     * @return true if the key was not in the set yet.
+     */
+    private boolean markVisited(long key) {
+        if (2 * (this.visitedCount + 1) > this.visited.length) {
+            long[] old = this.visited;
+            this.visited = new long[old.length * 2];
+            this.visitedCount = 0;
+            for (long k : old) {
+                if (k != 0) markVisited(k);
+            }
+        }
+        int mask = this.visited.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (this.visited[slot] != 0) {
+            if (this.visited[slot] == key) return false;
+            slot = (slot + 1) & mask;
+        }
+        this.visited[slot] = key;
+        this.visitedCount++;
+        return true;
+    }
+
+    /**
+     * Merges books, for example the parts of a book generated from several
+     * start positions, into one book file. The sorted entries of the parts
+     * are merged in one pass straight from the mapped files, and a position
+     * found in more than one part is written once. The merged book has the
+     * deepest ply of the parts.
+     *
+     * @param parts paths of the books to merge.
+     * @param file path of the book file to write.
+     *
+     * @return number of entries written.
+     *
+     * @throws IOException if a part cannot be read or the file cannot be
+     * written.
+     */
+    public static int merge(List<Path> parts, Path file) throws IOException {
+        Connect4OpeningBook[] books = new Connect4OpeningBook[parts.size()];
+        int[] next = new int[books.length];
+        int maxPly = 0;
+        for (int i = 0; i < books.length; i++) {
+            books[i] = Connect4OpeningBook.open(parts.get(i));
+            maxPly = Math.max(maxPly, books[i].getMaxPly());
+        }
+
+        int count = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(Connect4OpeningBook.MAGIC);
+            out.writeInt(Connect4OpeningBook.VERSION);
+            out.writeInt(maxPly);
+            // the entry count is filled in once it is known
+            out.writeInt(0);
+            long lastKey = -1;
+            while (true) {
+                // few parts are merged, so a scan for the smallest head is enough
+                int min = -1;
+                for (int i = 0; i < books.length; i++) {
+                    if (next[i] < books[i].size()
+                            && (min < 0 || books[i].getKey(next[i]) < books[min].getKey(next[min]))) {
+                        min = i;
+                    }
+                }
+                if (min < 0) break;
+                long key = books[min].getKey(next[min]);
+                if (key != lastKey) {
+                    out.writeLong(key);
+                    out.writeShort(books[min].getMoveAndScore(next[min]));
+                    lastKey = key;
+                    count++;
+                }
+                next[min]++;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, count), 12);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of positions written by the last call to generate.
+     *
+     * @return number of book entries.
+     */
+    public int getEntryCount() {
+        return this.entryCount;
+    }
+
+    /**
+     * Generates a book from the command line.
+     *
+     * @param args book file, maximum ply and optionally the moves leading to
+     * the start position, or "merge", the book file and the books to merge
+     * into it.
+     *
+     * @throws IOException if the book cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("merge")) {
+            if (args.length < 3) {
+                System.out.println("Usage: java core.Connect4BookGenerator merge file part...");
+                return;
+            }
+            List<Path> parts = new ArrayList<>();
+            for (int i = 2; i < args.length; i++) parts.add(Paths.get(args[i]));
+            long begin = System.nanoTime();
+            int count = merge(parts, Paths.get(args[1]));
+            System.out.printf("merged %d parts into %d positions in %s in %.1f s%n", parts.size(), count, args[1],
+                    (System.nanoTime() - begin) / 1e9);
+            return;
+        }
+        if (args.length < 2) {
+            System.out.println("Usage: java core.Connect4BookGenerator file maxPly [moves]");
+            System.out.println("       java core.Connect4BookGenerator merge file part...");
+            return;
+        }
+        Connect4Logic start = new Connect4Logic();
+        if (args.length > 2) {
+            for (char c : args[2].toCharArray()) {
+                if (start.makeMove(c - '0') < 0) throw new IllegalArgumentException("invalid moves: " + args[2]);
+            }
+        }
+
+        Connect4BookGenerator generator = new Connect4BookGenerator(Integer.parseInt(args[1]));
+        long begin = System.nanoTime();
+        generator.generate(start, Paths.get(args[0]));
+        System.out.printf("wrote %d positions to %s in %.1f s%n", generator.getEntryCount(), args[0],
+                (System.nanoTime() - begin) / 1e9);
+    }
+}
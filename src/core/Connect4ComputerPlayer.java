@@ -1,55 +1,593 @@
 package core;
 
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * handles the computer logic for the Connect4 game.
- * It is responsible for generating a random column number for the computer's move.
+ * It is responsible for choosing the column for the computer's move by
+ * running a negamax search with alpha-beta pruning on the live game position.
+ * The search deepens one move at a time until it reaches the maximum depth or
+ * runs out of its time budget, so it always has a move ready when time is up.
  * 
- * @author Borys Banaszkiewicz
- * @version 1.0
+ * With more than one thread the search runs Lazy SMP: helper threads search
+ * their own copies of the position at staggered depths while sharing the
+ * transposition table, so each thread finds the others' results in the table
+ * and the main thread's search finishes sooner.
  * 
+ * If an opening book is set, positions found in the book are played from it
+ * instantly.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 2.0
+ *
  */
-public class Connect4ComputerPlayer {
+public class Connect4ComputerPlayer implements Connect4Player {
     /**
-     * Custom exception for handling invalid moves made by computer.
+     * Difficulty levels, given as the time the computer may think per move.
      */
-    class InvalidMoveException extends Exception {
-        public InvalidMoveException() {
-            super();
+    public enum Difficulty {
+        EASY(10), MEDIUM(50), HARD(250);
+
+        /**
+         * Time budget per move in milliseconds.
+         */
+        private final long millis;
+
+        Difficulty(long millis) {
+            this.millis = millis;
+        }
+
+        /**
+         * Returns the time budget of the difficulty level.
+         *
+         * @return time budget per move in milliseconds.
+         */
+        public long getTimeBudget() {
+            return this.millis;
         }
     }
-    /** 
-     * Instance of Connect4Logic to check the validity of moves.
+
+    /**
+     * Search depth (in moves) used when none is given.
+     */
+    public static final int DEFAULT_DEPTH = 8;
+
+    /**
+     * Score of a position that is won for the player to move on this turn.
+     * Wins found deeper in the search score lower so the fastest win and the
+     * slowest loss are preferred.
+     */
+    static final int WIN_SCORE = 1000000;
+
+    /**
+     * Column indexes (0-6) in the order they are searched. Center columns are
+     * part of more lines of 4, so they are usually the better moves and
+     * searching them first makes alpha-beta cut off more of the tree.
+     */
+    static final int[] MOVE_ORDER = {3, 2, 4, 1, 5, 0, 6};
+
+    /**
+     * Scores above this are wins found within the search, whose distance to 
+     * the win has to be adjusted when moved in and out of the table.
+     */
+    private static final int WIN_THRESHOLD = WIN_SCORE - 100;
+
+    /**
+     * Bitboard of the center column, used by the evaluation.
+     */
+    private static final long CENTER_COLUMN = ((1L << Connect4Logic.ROWS) - 1) << (3 * Connect4Logic.COLUMN_BITS);
+
+    /**
+     * Maximum number of moves searched ahead.
+     */
+    private int depth;
+
+    /**
+     * Time budget per move in milliseconds, or 0 if the search always runs to
+     * the maximum depth.
+     */
+    private long timeBudget;
+
+    /**
+     * System.nanoTime at which the current search has to stop.
+     */
+    private long deadline;
+
+    /**
+     * Set when the current search ran out of time and is unwinding.
+     */
+    private boolean aborted;
+
+    /**
+     * Score of the move picked by the last completed call to searchRoot.
+     */
+    private int rootScore;
+
+    /**
+     * Deepest search completed by the last call to getColumn.
+     */
+    private int depthReached;
+
+    /**
+     * Results of earlier searches, kept between moves.
+     */
+    private final TranspositionTable table;
+
+    /**
+     * Number of positions visited by the last search.
+     */
+    private long nodesSearched;
+
+    /**
+     * Time taken by the last search in nanoseconds.
+     */
+    private long searchNanos;
+
+    /**
+     * Number of threads searching in parallel, including the calling thread.
+     */
+    private int threads = 1;
+
+    /**
+     * Players that run the helper searches, sharing this player's table.
+     */
+    private Connect4ComputerPlayer[] helpers;
+
+    /**
+     * Threads the helper searches run on.
+     */
+    private ThreadPoolExecutor helperPool;
+
+    /**
+     * Set by the main search when it is done, so helper searches stop. Null
+     * for players that are not helpers.
      */
-    private Connect4Logic connect4;
-    
+    private AtomicBoolean stop;
+
+    /**
+     * Book of solved opening positions, or null to always search.
+     */
+    private Connect4OpeningBook openingBook;
+
     /**
      * Constructor for Connect4ComputerPlayer.
-     * Initializes a new game logic instance.
+     * Searches DEFAULT_DEPTH moves ahead.
      */
     public Connect4ComputerPlayer() {
-        this.connect4 = new Connect4Logic();
+        this(DEFAULT_DEPTH);
+    }
+
+    /**
+     * Constructor for Connect4ComputerPlayer with a custom search depth.
+     *
+     * @param depth number of moves to search ahead (at least 1).
+     */
+    public Connect4ComputerPlayer(int depth) {
+        this(depth, new TranspositionTable());
+    }
+
+    /**
+     * Constructor for Connect4ComputerPlayer with a custom search depth and
+     * transposition table.
+     *
+     * @param depth number of moves to search ahead (at least 1).
+     * @param table table the search stores its results in.
+     */
+    public Connect4ComputerPlayer(int depth, TranspositionTable table) {
+        if (depth < 1) throw new IllegalArgumentException("depth must be at least 1: " + depth);
+        this.depth = depth;
+        this.table = table;
     }
-    
+
+    /**
+     * Constructor for Connect4ComputerPlayer that thinks for a fixed time per
+     * move instead of to a fixed depth.
+     *
+     * @param difficulty difficulty level giving the time budget.
+     */
+    public Connect4ComputerPlayer(Difficulty difficulty) {
+        this(Connect4Logic.ROWS * Connect4Logic.COLUMNS);
+        this.timeBudget = difficulty.getTimeBudget();
+    }
+
     /**
-     * Selects a random column to place a piece.
-     * If the selected column is full or if the move is not valid (not in range 
-     * 1 - 7) it recursively continues to select another column until a valid
-     * move is made.
-     * 
-     * @return the column number (1-7) where the computer will place its piece.
+     * Selects the best column for the player whose turn it is in the given
+     * game. Searches 1, 2, 3... moves ahead, trying the best move of the last
+     * search first, until the maximum depth is reached, the result is a
+     * forced win or loss, or the time budget runs out. The move of the deepest
+     * completed search is returned. The search plays and takes back moves on
+     * the game itself, so the game is back in its original state when this
+     * method returns.
+     *
+     * @param game the live game to pick a move for.
+     *
+     * @return the column number (1-7) where the computer will place its piece,
+     * or -1 if the board is full.
      */
-    public int getColumn() {
-        Random random = new Random();
-        int col = random.nextInt(7) + 1;
-        try {
-            if (this.connect4.checkMoveValidity(col) == -1) {
-                throw new InvalidMoveException();
+    @Override
+    public int getColumn(Connect4Logic game) {
+        long start = System.nanoTime();
+        this.deadline = this.timeBudget > 0 ? start + this.timeBudget * 1000000L : Long.MAX_VALUE;
+        this.aborted = false;
+        this.nodesSearched = 0;
+        this.depthReached = 0;
+
+        if (this.openingBook != null) {
+            int col = this.openingBook.getColumn(game);
+            if (col > 0) {
+                this.searchNanos = System.nanoTime() - start;
+                return col;
             }
         }
-        catch (InvalidMoveException ime) {
-            return getColumn();
+
+        this.table.newSearch();
+        List<Future<?>> helperSearches = this.threads > 1 ? startHelpers(game) : null;
+        int col = iterativeDeepening(game, 1);
+        if (helperSearches != null) stopHelpers(helperSearches);
+
+        this.searchNanos = System.nanoTime() - start;
+        return col < 0 ? -1 : col + 1;
+    }
+
+    /**
+     * private helper method that runs the iterative deepening search.
+     *
+     * @param game the position to pick a move for.
+     * @param firstDepth depth of the first iteration.
+     *
+     * @return column index (0-6) of the best move, or -1 if the board is full.
+     */
+    private int iterativeDeepening(Connect4Logic game, int firstDepth) {
+        this.depthReached = 0;
+        int bestCol = -1;
+        for (int col : MOVE_ORDER) {
+            if (!game.canPlay(col)) continue;
+            if (game.isWinningMove(col)) return col;
+            if (bestCol < 0) bestCol = col;
+        }
+        if (bestCol < 0) return -1;
+
+        int maxDepth = Math.min(this.depth, Connect4Logic.ROWS * Connect4Logic.COLUMNS - game.getTurnCount());
+        for (int depth = Math.min(firstDepth, maxDepth); depth <= maxDepth; depth++) {
+            int col = searchRoot(game, depth, bestCol);
+            if (this.aborted) break;
+            bestCol = col;
+            this.depthReached = depth;
+            if (Math.abs(this.rootScore) > WIN_THRESHOLD) break;
         }
-        return col;
+        return bestCol;
+    }
+
+    /**
+     * private helper method that starts the helper searches of a Lazy SMP 
+     * search. Every other helper starts one move deeper than the main search,
+     * so the threads spread out over different parts of the tree instead of
+     * all searching the same moves at the same time.
+     *
+     * @param game the position to pick a move for, copied for each helper.
+     *
+     * @return the running helper searches.
+     */
+    private List<Future<?>> startHelpers(Connect4Logic game) {
+        if (this.helpers == null || this.helpers.length != this.threads - 1) {
+            if (this.helperPool != null) this.helperPool.shutdown();
+            this.helpers = new Connect4ComputerPlayer[this.threads - 1];
+            for (int i = 0; i < this.helpers.length; i++) {
+                this.helpers[i] = new Connect4ComputerPlayer(this.depth, this.table);
+                this.helpers[i].stop = new AtomicBoolean();
+            }
+            this.helperPool = new ThreadPoolExecutor(this.helpers.length, this.helpers.length,
+                    1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+                        Thread thread = new Thread(task, "connect4-search");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            this.helperPool.allowCoreThreadTimeOut(true);
+        }
+
+        List<Future<?>> searches = new ArrayList<>(this.helpers.length);
+        for (int i = 0; i < this.helpers.length; i++) {
+            Connect4ComputerPlayer helper = this.helpers[i];
+            Connect4Logic copy = new Connect4Logic(game);
+            int firstDepth = 1 + (i + 1) % 2;
+            helper.deadline = this.deadline;
+            helper.aborted = false;
+            helper.nodesSearched = 0;
+            helper.stop.set(false);
+            searches.add(this.helperPool.submit(() -> helper.iterativeDeepening(copy, firstDepth)));
+        }
+        return searches;
+    }
+
+    /**
+     * private helper method that stops the helper searches and waits for them
+     * to finish, adding their nodes to this player's count.
+     *
+     * @param searches the running helper searches.
+     */
+    private void stopHelpers(List<Future<?>> searches) {
+        for (Connect4ComputerPlayer helper : this.helpers) helper.stop.set(true);
+        for (int i = 0; i < searches.size(); i++) {
+            try {
+                searches.get(i).get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e) {
+                throw new IllegalStateException("helper search failed", e.getCause());
+            }
+            this.nodesSearched += this.helpers[i].nodesSearched;
+        }
+    }
+
+    /**
+     * private helper method that searches every move of the root position to
+     * a fixed depth.
+     *
+     * @param game the position to pick a move for.
+     * @param depth number of moves to search ahead.
+     * @param firstCol column index (0-6) to search first, the best move of the
+     * previous iteration.
+     *
+     * @return column index (0-6) of the best move, only meaningful if the
+     * search was not aborted.
+     */
+    private int searchRoot(Connect4Logic game, int depth, int firstCol) {
+        int bestCol = -1;
+        int alpha = -WIN_SCORE - 1;
+        for (int i = -1; i < MOVE_ORDER.length; i++) {
+            int col = i < 0 ? firstCol : MOVE_ORDER[i];
+            if ((i >= 0 && col == firstCol) || !game.canPlay(col)) continue;
+            game.play(col);
+            int score = -negamax(game, depth - 1, -WIN_SCORE - 1, -alpha, 1);
+            game.unplay();
+            if (this.aborted) break;
+            if (bestCol < 0 || score > alpha) {
+                alpha = score;
+                bestCol = col;
+            }
+        }
+        this.rootScore = alpha;
+        return bestCol;
+    }
+
+    /**
+     * private helper method that scores a position with a negamax search,
+     * pruning branches that cannot change the result (alpha-beta).
+     *
+     * @param game position to search, with the player to move as given by
+     * game.getPlayerTurn().
+     * @param depth remaining number of moves to search.
+     * @param alpha score the player to move is already guaranteed.
+     * @param beta score the opponent is already guaranteed (upper bound).
+     * @param ply number of moves played since the root of the search.
+     *
+     * @return score of the position from the point of view of the player to
+     * move.
+     */
+    private int negamax(Connect4Logic game, int depth, int alpha, int beta, int ply) {
+        this.nodesSearched++;
+        if ((this.nodesSearched & 1023) == 0
+                && (System.nanoTime() > this.deadline || (this.stop != null && this.stop.get()))) {
+            this.aborted = true;
+        }
+        if (this.aborted) return 0;
+        if (game.getTurnCount() == Connect4Logic.ROWS * Connect4Logic.COLUMNS) return 0;
+
+        for (int col : MOVE_ORDER) {
+            if (game.canPlay(col) && game.isWinningMove(col)) return WIN_SCORE - ply;
+        }
+        if (depth == 0) return evaluate(game);
+
+        // a position and its mirror image share one entry, stored under the
+        // smaller hash with the best move mirrored if needed
+        long hash = game.getHash();
+        long mirroredHash = game.getMirroredHash();
+        boolean mirrored = mirroredHash < hash;
+        long key = mirrored ? mirroredHash : hash;
+        long entry = this.table.probe(key);
+        int tableMove = -1;
+        if (entry != 0) {
+            tableMove = TranspositionTable.move(entry);
+            if (mirrored) tableMove = Connect4Symmetry.mirrorColumn(tableMove);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int originalAlpha = alpha;
+        int bestScore = -WIN_SCORE - 1;
+        int bestCol = -1;
+        for (int i = -1; i < MOVE_ORDER.length; i++) {
+            // the best move of an earlier search of this position goes first
+            int col = i < 0 ? tableMove : MOVE_ORDER[i];
+            if (col < 0 || (i >= 0 && col == tableMove) || !game.canPlay(col)) continue;
+            game.play(col);
+            int score = -negamax(game, depth - 1, -beta, -alpha, ply + 1);
+            game.unplay();
+            if (this.aborted) return 0;
+            if (score > bestScore) {
+                bestScore = score;
+                bestCol = col;
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) break;
+        }
+
+        int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                : bestScore >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+        this.table.store(key, toTable(bestScore, ply), depth, bound,
+                mirrored ? Connect4Symmetry.mirrorColumn(bestCol) : bestCol);
+        return bestScore;
+    }
+
+    /**
+     * private helper method that converts a score to be stored in the table.
+     * Win scores depend on how far from the root of the search the win was
+     * found, so they are stored relative to the position instead.
+     *
+     * @param score score relative to the root of the search.
+     * @param ply number of moves from the root to the position.
+     *
+     * @return score relative to the position.
+     */
+    private static int toTable(int score, int ply) {
+        if (score > WIN_THRESHOLD) return score + ply;
+        if (score < -WIN_THRESHOLD) return score - ply;
+        return score;
+    }
+
+    /**
+     * private helper method that converts a score read from the table back to
+     * be relative to the root of the search. Reverse of toTable.
+     *
+     * @param score score relative to the position.
+     * @param ply number of moves from the root to the position.
+     *
+     * @return score relative to the root of the search.
+     */
+    private static int fromTable(int score, int ply) {
+        if (score > WIN_THRESHOLD) return score - ply;
+        if (score < -WIN_THRESHOLD) return score + ply;
+        return score;
+    }
+
+    /**
+     * private helper method that estimates how good a position is for the
+     * player to move when the search runs out of depth. Counts the empty cells
+     * each player could complete a line of 4 in, and the pieces each player
+     * has in the center column.
+     *
+     * @param game position to evaluate.
+     *
+     * @return score of the position from the point of view of the player to
+     * move.
+     */
+    private static int evaluate(Connect4Logic game) {
+        int turn = game.getPlayerTurn();
+        long own = game.getBitboard(turn);
+        long other = game.getBitboard(1 - turn);
+        long occupied = own | other;
+
+        int threats = Long.bitCount(Connect4Logic.winningCells(own, occupied))
+                - Long.bitCount(Connect4Logic.winningCells(other, occupied));
+        int center = Long.bitCount(own & CENTER_COLUMN) - Long.bitCount(other & CENTER_COLUMN);
+        return 4 * threats + center;
+    }
+
+    /**
+     * Returns the number of positions visited by the last call to getColumn,
+     * summed over all search threads.
+     *
+     * @return number of nodes searched.
+     */
+    @Override
+    public long getNodesSearched() {
+        return this.nodesSearched;
+    }
+
+    /**
+     * Returns the search speed of the last call to getColumn.
+     *
+     * @return nodes searched per second.
+     */
+    @Override
+    public long getNodesPerSecond() {
+        if (this.searchNanos == 0) return 0;
+        return this.nodesSearched * 1000000000L / this.searchNanos;
+    }
+
+    /**
+     * Returns the transposition table used by the search, for reading its
+     * hit, miss and collision counters.
+     *
+     * @return the transposition table.
+     */
+    public TranspositionTable getTranspositionTable() {
+        return this.table;
+    }
+
+    /**
+     * Returns the deepest search completed by the last call to getColumn.
+     *
+     * @return number of moves searched ahead.
+     */
+    public int getDepthReached() {
+        return this.depthReached;
+    }
+
+    /**
+     * Sets the time budget per move. With a budget of 0 every search runs to
+     * the maximum depth.
+     *
+     * @param millis time budget per move in milliseconds.
+     */
+    @Override
+    public void setTimeBudget(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("time budget must not be negative: " + millis);
+        this.timeBudget = millis;
+    }
+
+    /**
+     * Returns the time budget per move.
+     *
+     * @return time budget in milliseconds, 0 if there is none.
+     */
+    @Override
+    public long getTimeBudget() {
+        return this.timeBudget;
+    }
+
+    /**
+     * Sets the opening book. Positions found in the book are played from it
+     * without searching.
+     *
+     * @param openingBook the book, or null to always search.
+     */
+    public void setOpeningBook(Connect4OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Sets the number of threads used by each search. With 1 thread the search
+     * runs only on the thread calling getColumn.
+     *
+     * @param threads number of search threads (at least 1).
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the number of threads used by each search.
+     *
+     * @return number of search threads.
+     */
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * Returns the maximum search depth.
+     *
+     * @return number of moves searched ahead.
+     */
+    public int getDepth() {
+        return this.depth;
     }
 }
@@ -1,16 +1,83 @@
 package core;
 
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
 /**
  * Handles core functionality of the connect4 game. Includes game rules, 
  * tracking state of the board, determining win conditions, and managing player 
  * turns
  * 
+ * The board is stored as a pair of bitboards (one 64-bit long per player) and 
+ * a height per column. Each column uses 7 bits, 6 for the playable rows and 
+ * one empty sentinel bit on top, so bit (col * 7 + r) is the cell in column 
+ * col that is r rows above the bottom. This lets move generation and win 
+ * detection be done with a few shifts and ANDs instead of walking a 2D array.
+ * 
  * @author Borys Banaszkiewicz
- * @version 1.2
+ * @version 1.4
  * 
  */
 public class Connect4Logic {
     
+    /**
+     * Number of rows on the board.
+     */
+    public static final int ROWS = 6;
+    
+    /**
+     * Number of columns on the board.
+     */
+    public static final int COLUMNS = 7;
+    
+    /**
+     * Number of bits used by each column in the bitboards (rows plus one 
+     * sentinel bit that is always empty).
+     */
+    static final int COLUMN_BITS = ROWS + 1;
+    
+    /**
+     * Bitboard with the bottom cell of every column set.
+     */
+    static final long BOTTOM_ROW = 0x0000_0408_1020_4081L;
+    
+    /**
+     * Bitboard with every playable cell set (all bits except the sentinels).
+     */
+    static final long FULL_BOARD = BOTTOM_ROW * ((1L << ROWS) - 1);
+    
+    /**
+     * Random Zobrist keys, one per player and bit of the bitboards. The hash of
+     * a position is the XOR of the keys of all its pieces, so it can be kept 
+     * up to date with one XOR per move. A fixed seed keeps hashes the same 
+     * between runs.
+     */
+    private static final long[][] ZOBRIST_KEYS = new long[2][COLUMNS * COLUMN_BITS];
+    
+    static {
+        SplittableRandom random = new SplittableRandom(0x436F6E6E65637434L);
+        for (long[] keys : ZOBRIST_KEYS) {
+            for (int i = 0; i < keys.length; i++) keys[i] = random.nextLong();
+        }
+    }
+    
+    /**
+     * Zobrist keys of the mirrored cells: the key of bit (col * 7 + r) is the
+     * key of bit ((6 - col) * 7 + r), so XORing them gives the hash of the 
+     * position's mirror image.
+     */
+    private static final long[][] MIRRORED_ZOBRIST_KEYS = new long[2][COLUMNS * COLUMN_BITS];
+    
+    static {
+        for (int player = 0; player < 2; player++) {
+            for (int bit = 0; bit < COLUMNS * COLUMN_BITS; bit++) {
+                int col = bit / COLUMN_BITS;
+                int mirroredBit = (COLUMNS - 1 - col) * COLUMN_BITS + bit % COLUMN_BITS;
+                MIRRORED_ZOBRIST_KEYS[player][bit] = ZOBRIST_KEYS[player][mirroredBit];
+            }
+        }
+    }
+    
     /**
      * Tracks total number of moves made in the game so far. This count is used
      * to determine player turn as well as determining that a draw occurred if it
@@ -19,19 +86,94 @@ public class Connect4Logic {
     private int turnCount;
     
     /**
-     * Represents the state of the Connect4 game board as a 2D array of chars.
-     * Each element in the array represents an empty spot, an 'X' for a move 
-     * made by player X, or a 'O' for a move made by player O.
+     * Bitboards of the pieces on the board, index 0 holds the pieces of player
+     * X and index 1 holds the pieces of player O.
+     */
+    private final long[] bitboards;
+    
+    /**
+     * Number of pieces in each column, which is also the bottom-up index of the
+     * next empty row in that column.
+     */
+    private final byte[] heights;
+    
+    /**
+     * Zobrist hash of the pieces on the board.
+     */
+    private long hash;
+    
+    /**
+     * Zobrist hash of the mirror image of the pieces on the board.
+     */
+    private long mirroredHash;
+    
+    /**
+     * Bit index of the most recently dropped piece, or -1 if no piece has been
+     * placed since the board was last reset.
+     */
+    private int lastMove;
+    
+    /**
+     * Player that dropped the most recent piece (0 for player X, 1 for O).
+     */
+    private int lastMovePlayer;
+    
+    /**
+     * Stack of the column indexes (0-6) of the moves made so far, oldest first,
+     * so moves can be taken back without copying the board.
+     */
+    private final byte[] moves;
+    
+    /**
+     * Number of moves on the move stack.
+     */
+    private int moveCount;
+    
+    /**
+     * Char representation of the board handed out by getBoardState. It is only
+     * rebuilt from the bitboards when a UI asks for it after the board changed.
      */
     private char[][] board;
     
+    /**
+     * True if the bitboards changed since board was last materialized.
+     */
+    private boolean boardStale;
+    
     /**
      * Constructs a new Connect4Logic instance. Initializes the game by setting
      * turnCount to 0 and board to a new empty board of size 6x7.
      */
     public Connect4Logic() {
         this.turnCount = 0;
-        this.board = new char[6][7];
+        this.bitboards = new long[2];
+        this.heights = new byte[COLUMNS];
+        this.lastMove = -1;
+        this.moves = new byte[ROWS * COLUMNS];
+        this.moveCount = 0;
+        this.board = new char[ROWS][COLUMNS];
+        this.boardStale = false;
+    }
+    
+    /**
+     * Constructs a copy of another game. The copy shares no state with the
+     * original, so both can be played on independently (for example by 
+     * search threads that each need their own board).
+     * 
+     * @param other game to copy.
+     */
+    public Connect4Logic(Connect4Logic other) {
+        this.turnCount = other.turnCount;
+        this.bitboards = other.bitboards.clone();
+        this.heights = other.heights.clone();
+        this.hash = other.hash;
+        this.mirroredHash = other.mirroredHash;
+        this.lastMove = other.lastMove;
+        this.lastMovePlayer = other.lastMovePlayer;
+        this.moves = other.moves.clone();
+        this.moveCount = other.moveCount;
+        this.board = new char[ROWS][COLUMNS];
+        this.boardStale = true;
     }
     
     /**
@@ -45,19 +187,20 @@ public class Connect4Logic {
      * or the next empty row in col.
      */
     public int checkMoveValidity(int col) {
-        if (col > 7 || col < 1) return -1;
-            
-        for (int row = this.board.length - 1; row >= 0; row--) {
-            if (this.board[row][col - 1] == 'X' || this.board[row][col - 1] == 'O') continue;
-            else return row;
-        }
-        return -1;
+        if (col > COLUMNS || col < 1) return -1;
+        
+        int height = this.heights[col - 1];
+        if (height == ROWS) return -1;
+        return ROWS - 1 - height;
     }
     
     /**
-     * Updates the 2D char array board which tracks the state of the game. First
-     * checks which players turn it is, then updates corresponding spot with the
-     * symbol that indicates the player ('X' for player x and 'O' for player O).
+     * Updates the bitboards which track the state of the game. First checks 
+     * which players turn it is, then sets the bit of the corresponding spot in
+     * that player's bitboard (player X for turn 0, player O otherwise). A
+     * piece of the other player on the spot is replaced. A move to an empty
+     * spot is also pushed on the move stack so it can be taken back with
+     * undoMove.
      * 
      * @param turn indicates which players turn it is (0 for player X and 1 for
      * player O)
@@ -67,8 +210,27 @@ public class Connect4Logic {
      * piece
      */
     public void updateBoard(int turn, int row, int col) {
-        if (turn == 0) this.board[row][col - 1] = 'X';
-        else this.board[row][col - 1] = 'O';
+        int height = ROWS - row;
+        this.lastMove = bitIndex(row, col - 1);
+        this.lastMovePlayer = turn == 0 ? 0 : 1;
+        long bit = 1L << this.lastMove;
+        int other = 1 - this.lastMovePlayer;
+        if ((this.bitboards[this.lastMovePlayer] & bit) == 0) {
+            if ((this.bitboards[other] & bit) != 0) {
+                // the piece replaces the other player's piece
+                this.bitboards[other] &= ~bit;
+                this.hash ^= ZOBRIST_KEYS[other][this.lastMove];
+                this.mirroredHash ^= MIRRORED_ZOBRIST_KEYS[other][this.lastMove];
+            }
+            else if (this.moveCount < this.moves.length) {
+                this.moves[this.moveCount++] = (byte) (col - 1);
+            }
+            this.hash ^= ZOBRIST_KEYS[this.lastMovePlayer][this.lastMove];
+            this.mirroredHash ^= MIRRORED_ZOBRIST_KEYS[this.lastMovePlayer][this.lastMove];
+        }
+        this.bitboards[this.lastMovePlayer] |= bit;
+        if (height > this.heights[col - 1]) this.heights[col - 1] = (byte) height;
+        this.boardStale = true;
     }
 
     /**
@@ -80,57 +242,333 @@ public class Connect4Logic {
      * if player o won.
      */
     public int checkForWin() {
-        int[][] horizontal = {{0,0}, {0,1}, {0,2}, {0,3}};
-        int[][] vertical = {{0,0}, {1,0}, {2,0}, {3,0}};
-        int[][] across_left = {{0,0}, {-1,-1}, {-2,-2}, {-3,-3}};
-        int[][] across_right = {{0,0}, {-1,1}, {-2,2}, {-3,3}};
-
-        for (int row = board.length - 1; row >= 0; row--) {
-            for (int col = 0; col < board[0].length; col++) {
-                if (board[row][col] == 'X' || board[row][col] == 'O') {
-                    int win_horizontal = checkForWin(horizontal, row, col);
-                    if (win_horizontal != 0) return win_horizontal;
-                    
-                    int win_vertical = checkForWin(vertical, row, col);
-                    if (win_vertical != 0) return win_vertical;
-                    
-                    int win_across_left = checkForWin(across_left, row, col);
-                    if (win_across_left != 0) return win_across_left;
-                    
-                    int win_across_right = checkForWin(across_right, row, col);
-                    if (win_across_right != 0) return win_across_right;
-                }
-            }
-        }
+        if (hasFourInARow(this.bitboards[0])) return 1;
+        if (hasFourInARow(this.bitboards[1])) return 2;
         return 0;
     }
     
     /**
-     * private helper method that checks for winning conditions.
-     * 
-     * @param direction array representing direction that can result in a valid 
-     * win.
-     * @param row starting row index from which to check for a win.
-     * @param col starting column index from which to check for a win.
+     * Checks for a winner by only looking at the four lines (horizontal, 
+     * vertical and both diagonals) running through the most recently dropped 
+     * piece. A new win can only be created by the last move, so this gives the
+     * same result as checkForWin after every move while doing a constant 
+     * amount of work and no allocation. Use checkForWin to validate positions
+     * that were not built up one move at a time.
      * 
      * @return 0 if no winner (game continues), 1 if player x won, otherwise 2 
      * if player o won.
      */
-    private int checkForWin(int[][] direction, int row, int col) {
-        int count = 0;
-        for (int i = 0; i < 4; i++) {
-            int new_row = row + direction[i][0];
-            int new_col = col + direction[i][1];
-            if (new_row < 0 || new_row >= board.length || new_col < 0 || new_col >= board[0].length) continue; 
-            if (board[new_row][new_col] == board[row][col]) count++;
-        } 
-        if (count == 4) {
-            if (board[row][col] == 'X') return 1;
-            else return 2;
+    public int checkLastMoveForWin() {
+        if (this.lastMove < 0) return 0;
+        
+        long pieces = this.bitboards[this.lastMovePlayer];
+        long piece = 1L << this.lastMove;
+        if (countLine(pieces, piece, 1) >= 4
+                || countLine(pieces, piece, COLUMN_BITS) >= 4
+                || countLine(pieces, piece, COLUMN_BITS - 1) >= 4
+                || countLine(pieces, piece, COLUMN_BITS + 1) >= 4) {
+            return this.lastMovePlayer + 1;
         }
         return 0;
     }
     
+    /**
+     * private helper method that counts the concurrent pieces of a line that
+     * runs through a single piece, looking at most 3 cells in each direction.
+     * 
+     * @param pieces bitboard of the player that owns the piece.
+     * @param piece bitboard containing only the piece to start from.
+     * @param shift distance between two neighbouring cells of the line.
+     * 
+     * @return number of concurrent pieces on the line, including piece itself.
+     */
+    private static int countLine(long pieces, long piece, int shift) {
+        int count = 1;
+        for (int i = 1; i < 4 && (pieces & (piece << (shift * i))) != 0; i++) count++;
+        for (int i = 1; i < 4 && (pieces & (piece >>> (shift * i))) != 0; i++) count++;
+        return count;
+    }
+    
+    /**
+     * Drops a piece for the player whose turn it is into a column, advances 
+     * the turn and pushes the move on the move stack. Together with undoMove 
+     * this lets search, hint and replay features walk the game tree on this
+     * board without copying it.
+     * 
+     * @param col column (1-7) to drop the piece in.
+     * 
+     * @return -1 if the move is not valid (not in range 1-7 or column is full),
+     * or the row the piece landed in.
+     */
+    public int makeMove(int col) {
+        int row = checkMoveValidity(col);
+        if (row >= 0) play(col - 1);
+        return row;
+    }
+    
+    /**
+     * Takes back the last move on the move stack and the turn that made it, 
+     * leaving the board, hash, turn count and last move exactly as they were
+     * before the move.
+     * 
+     * @return the column (1-7) of the move taken back, or -1 if there is no 
+     * move to take back.
+     */
+    public int undoMove() {
+        if (this.moveCount == 0) return -1;
+        int col = this.moves[this.moveCount - 1];
+        unplay();
+        return col + 1;
+    }
+    
+    /**
+     * Drops a piece for the player whose turn it is into a column. Same as 
+     * makeMove without the validity check, for the computer player's search.
+     * 
+     * @param col column index (0-6) of a column that is not full.
+     */
+    void play(int col) {
+        int player = getPlayerTurn();
+        int bit = col * COLUMN_BITS + this.heights[col];
+        this.bitboards[player] |= 1L << bit;
+        this.hash ^= ZOBRIST_KEYS[player][bit];
+        this.mirroredHash ^= MIRRORED_ZOBRIST_KEYS[player][bit];
+        this.heights[col]++;
+        this.moves[this.moveCount++] = (byte) col;
+        this.lastMove = bit;
+        this.lastMovePlayer = player;
+        this.turnCount++;
+        this.boardStale = true;
+    }
+    
+    /**
+     * Takes back the last move on the move stack. Same as undoMove without 
+     * the check for an empty stack, for the computer player's search.
+     */
+    void unplay() {
+        int col = this.moves[--this.moveCount];
+        this.heights[col]--;
+        int bit = col * COLUMN_BITS + this.heights[col];
+        int player = (this.bitboards[0] & (1L << bit)) != 0 ? 0 : 1;
+        this.bitboards[player] &= ~(1L << bit);
+        this.hash ^= ZOBRIST_KEYS[player][bit];
+        this.mirroredHash ^= MIRRORED_ZOBRIST_KEYS[player][bit];
+        if (this.turnCount > 0) this.turnCount--;
+        
+        if (this.moveCount == 0) {
+            this.lastMove = -1;
+        }
+        else {
+            int previous = this.moves[this.moveCount - 1];
+            this.lastMove = previous * COLUMN_BITS + this.heights[previous] - 1;
+            this.lastMovePlayer = (this.bitboards[0] & (1L << this.lastMove)) != 0 ? 0 : 1;
+        }
+        this.boardStale = true;
+    }
+    
+    /**
+     * Checks if dropping a piece in a column would win the game for the player
+     * whose turn it is.
+     * 
+     * @param col column index (0-6) of a column that is not full.
+     * 
+     * @return true if the move wins the game.
+     */
+    boolean isWinningMove(int col) {
+        long piece = 1L << (col * COLUMN_BITS + this.heights[col]);
+        return hasFourInARow(this.bitboards[getPlayerTurn()] | piece);
+    }
+    
+    /**
+     * Checks if a column still has room for another piece.
+     * 
+     * @param col column index (0-6).
+     * 
+     * @return true if the column is not full.
+     */
+    boolean canPlay(int col) {
+        return this.heights[col] < ROWS;
+    }
+    
+    /**
+     * Returns the bitboard of one player's pieces.
+     * 
+     * @param player 0 for player X, 1 for player O.
+     * 
+     * @return bitboard of the player's pieces.
+     */
+    long getBitboard(int player) {
+        return this.bitboards[player];
+    }
+    
+    /**
+     * Returns the Zobrist hash of the current position. Positions with the 
+     * same pieces have the same hash no matter the order the moves were made
+     * in, which lets searches recognize positions they have already scored.
+     * 
+     * @return 64-bit hash of the board.
+     */
+    public long getHash() {
+        return this.hash;
+    }
+    
+    /**
+     * Returns the Zobrist hash of the mirror image of the current position, 
+     * which is the hash the position would have with its columns in reverse
+     * order. See Connect4Symmetry.
+     * 
+     * @return 64-bit hash of the mirrored board.
+     */
+    public long getMirroredHash() {
+        return this.mirroredHash;
+    }
+    
+    /**
+     * Returns a key that identifies the current position exactly, with no two
+     * positions sharing a key. Unlike the Zobrist hash it can be used to look
+     * positions up in stored tables such as an opening book.
+     * 
+     * @return 49-bit key of the position.
+     */
+    public long getPositionKey() {
+        long mask = this.bitboards[0] | this.bitboards[1];
+        return positionKey(this.bitboards[Long.bitCount(mask) % 2], mask);
+    }
+    
+    /**
+     * Returns the key shared by the current position and its mirror image, 
+     * see Connect4Symmetry.
+     * 
+     * @return 49-bit canonical key of the position.
+     */
+    public long getCanonicalKey() {
+        return Connect4Symmetry.canonicalKey(getPositionKey());
+    }
+    
+    /**
+     * Calculates the unique key of a position. Adding the bottom row to the 
+     * mask leaves only the bit above the top piece of each column set, which 
+     * together with the pieces of the player to move (all below those bits) 
+     * identifies the position.
+     * 
+     * @param current bitboard of the pieces of the player to move.
+     * @param mask bitboard of all pieces.
+     * 
+     * @return 49-bit key of the position.
+     */
+    static long positionKey(long current, long mask) {
+        return current + mask + BOTTOM_ROW;
+    }
+    
+    /**
+     * Returns the number of moves on the move stack.
+     * 
+     * @return number of pieces dropped since the board was reset.
+     */
+    public int getMoveCount() {
+        return this.moveCount;
+    }
+    
+    /**
+     * Returns a move from the move stack.
+     * 
+     * @param index position of the move in the game, 0 for the first move.
+     * 
+     * @return the column (1-7) the move was made in.
+     */
+    public int getMove(int index) {
+        if (index < 0 || index >= this.moveCount) throw new IndexOutOfBoundsException("no move " + index);
+        return this.moves[index] + 1;
+    }
+    
+    /**
+     * Returns the number of turns taken so far.
+     * 
+     * @return the turn count.
+     */
+    int getTurnCount() {
+        return this.turnCount;
+    }
+    
+    /**
+     * Calculates every empty cell that would complete 4 concurrent pieces for 
+     * a player if the player had a piece there, regardless of whether the cell
+     * can be played yet.
+     * 
+     * @param pieces bitboard of the player's pieces.
+     * @param occupied bitboard of all pieces on the board.
+     * 
+     * @return bitboard of the empty cells that complete a line for the player.
+     */
+    static long winningCells(long pieces, long occupied) {
+        // vertical
+        long cells = (pieces << 1) & (pieces << 2) & (pieces << 3);
+        
+        cells |= winningCells(pieces, COLUMN_BITS);      // horizontal
+        cells |= winningCells(pieces, COLUMN_BITS - 1);  // across to the left
+        cells |= winningCells(pieces, COLUMN_BITS + 1);  // across to the right
+        
+        return cells & (FULL_BOARD ^ occupied);
+    }
+    
+    /**
+     * private helper method that finds the cells completing a line of 4 in one
+     * horizontal or diagonal direction, where the missing piece can be at any
+     * of the 4 positions of the line.
+     * 
+     * @param pieces bitboard of the player's pieces.
+     * @param shift distance between two neighbouring cells of the line.
+     * 
+     * @return bitboard of the cells that complete a line in that direction.
+     */
+    private static long winningCells(long pieces, int shift) {
+        long pair = (pieces << shift) & (pieces << (2 * shift));
+        long cells = pair & (pieces << (3 * shift));
+        cells |= pair & (pieces >> shift);
+        pair = (pieces >> shift) & (pieces >> (2 * shift));
+        cells |= pair & (pieces << shift);
+        cells |= pair & (pieces >> (3 * shift));
+        return cells;
+    }
+    
+    /**
+     * Checks a single player's bitboard for 4 concurrent pieces. Shifting the 
+     * board by the distance between two neighbouring cells in a direction and 
+     * ANDing it with itself leaves the pairs in that direction, doing the same
+     * again with twice the distance leaves the runs of four. The sentinel bit
+     * on top of each column keeps runs from wrapping into the next column.
+     * 
+     * @param pieces bitboard of a single player's pieces.
+     * 
+     * @return true if the bitboard contains 4 concurrent pieces.
+     */
+    static boolean hasFourInARow(long pieces) {
+        // vertical
+        long pairs = pieces & (pieces >> 1);
+        if ((pairs & (pairs >> 2)) != 0) return true;
+        // horizontal
+        pairs = pieces & (pieces >> COLUMN_BITS);
+        if ((pairs & (pairs >> (2 * COLUMN_BITS))) != 0) return true;
+        // across to the left
+        pairs = pieces & (pieces >> (COLUMN_BITS - 1));
+        if ((pairs & (pairs >> (2 * (COLUMN_BITS - 1)))) != 0) return true;
+        // across to the right
+        pairs = pieces & (pieces >> (COLUMN_BITS + 1));
+        return (pairs & (pairs >> (2 * (COLUMN_BITS + 1)))) != 0;
+    }
+    
+    /**
+     * Calculates the bit of a board position in the bitboards.
+     * 
+     * @param row row index of the position (0 is the top row).
+     * @param col column index of the position (0 is the left column).
+     * 
+     * @return index of the bit representing the position.
+     */
+    static int bitIndex(int row, int col) {
+        return col * COLUMN_BITS + (ROWS - 1 - row);
+    }
+    
     /**
      * Calculates current players turn by using modulo operator.
      * @return 0 if player x turn (turnCount % 2 == 0) or 1 if player o turn 
@@ -153,14 +591,34 @@ public class Connect4Logic {
      */
     public void resetBoard() {
         this.turnCount = 0;
-        this.board = new char[6][7];
+        this.bitboards[0] = 0L;
+        this.bitboards[1] = 0L;
+        this.hash = 0L;
+        this.mirroredHash = 0L;
+        Arrays.fill(this.heights, (byte) 0);
+        this.lastMove = -1;
+        this.moveCount = 0;
+        this.boardStale = true;
     }
     
     /**
-     * Returns the current state of the board.
+     * Returns the current state of the board. The char array is only rebuilt 
+     * from the bitboards if the board changed since the last call, so UIs that
+     * redraw without a move in between do not pay for it.
      * @return current state of the board.
      */
     public char[][] getBoardState() {
+        if (this.boardStale) {
+            for (int row = 0; row < ROWS; row++) {
+                for (int col = 0; col < COLUMNS; col++) {
+                    long bit = 1L << bitIndex(row, col);
+                    if ((this.bitboards[0] & bit) != 0) this.board[row][col] = 'X';
+                    else if ((this.bitboards[1] & bit) != 0) this.board[row][col] = 'O';
+                    else this.board[row][col] = 0;
+                }
+            }
+            this.boardStale = false;
+        }
         return this.board;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,474 @@
+package core;
+
+/**
+ * Connect4 computer player that picks its move with Monte Carlo Tree Search
+ * (UCT) instead of alpha-beta search. It grows a tree of the most promising
+ * moves, finishes each visit with a random game (a playout) and plays the
+ * move that was explored the most.
+ *
+ * The tree lives in a node pool of parallel primitive arrays allocated once
+ * per player, so a search creates no objects. Playouts run on two local
+ * bitboards and also do not allocate.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Connect4MCTSPlayer implements Connect4Player {
+
+    /**
+     * Number of playouts per move used when none is given.
+     */
+    public static final int DEFAULT_PLAYOUTS = 20000;
+
+    /**
+     * Number of nodes in the pool used when none is given.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    /**
+     * Exploration constant of the UCT formula.
+     */
+    private static final double EXPLORATION = 1.4;
+
+    /**
+     * Value of a terminal node whose move won the game.
+     */
+    static final byte WIN = 1;
+
+    /**
+     * Value of a terminal node whose move filled the board.
+     */
+    static final byte DRAW = 2;
+
+    /**
+     * Maximum number of playouts per move.
+     */
+    private final int playouts;
+
+    /**
+     * Index of the first child of each node, -1 if the node was not expanded.
+     */
+    final int[] firstChild;
+
+    /**
+     * Number of children of each node.
+     */
+    final byte[] childCount;
+
+    /**
+     * Column index (0-6) of the move leading to each node.
+     */
+    final byte[] move;
+
+    /**
+     * WIN or DRAW if the move leading to the node ended the game, 0 otherwise.
+     */
+    final byte[] terminal;
+
+    /**
+     * Number of playouts through each node.
+     */
+    final int[] visits;
+
+    /**
+     * Total result of the playouts through each node for the player who made
+     * the move leading to it (1 for a win, 0.5 for a draw).
+     */
+    final float[] wins;
+
+    /**
+     * Number of nodes in use.
+     */
+    int nodeCount;
+
+    /**
+     * Nodes on the path from the root to the node being visited.
+     */
+    private final int[] path;
+
+    /**
+     * State of the random number generator used by the playouts.
+     */
+    private long seed;
+
+    /**
+     * Number of playouts run by the last search.
+     */
+    private long playoutCount;
+
+    /**
+     * Time taken by the last search in nanoseconds.
+     */
+    private long searchNanos;
+
+    /**
+     * Time budget per move in milliseconds, 0 for none.
+     */
+    private long timeBudget;
+
+    /**
+     * Constructs a player with DEFAULT_PLAYOUTS playouts per move.
+     */
+    public Connect4MCTSPlayer() {
+        this(DEFAULT_PLAYOUTS);
+    }
+
+    /**
+     * Constructs a player with a playout budget per move.
+     *
+     * @param playouts maximum number of playouts per move (at least 1).
+     */
+    public Connect4MCTSPlayer(int playouts) {
+        this(playouts, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a player with a playout budget per move and a node pool size.
+     * Each node takes 15 bytes. When the pool is full the tree stops growing
+     * and further playouts start from its leaves.
+     *
+     * @param playouts maximum number of playouts per move (at least 1).
+     * @param capacity number of nodes in the pool.
+     */
+    public Connect4MCTSPlayer(int playouts, int capacity) {
+        if (playouts < 1) throw new IllegalArgumentException("playouts must be at least 1: " + playouts);
+        if (capacity < Connect4Logic.COLUMNS + 1) throw new IllegalArgumentException("capacity too small: " + capacity);
+        this.playouts = playouts;
+        this.firstChild = new int[capacity];
+        this.childCount = new byte[capacity];
+        this.move = new byte[capacity];
+        this.terminal = new byte[capacity];
+        this.visits = new int[capacity];
+        this.wins = new float[capacity];
+        this.path = new int[Connect4Logic.ROWS * Connect4Logic.COLUMNS + 1];
+        this.seed = System.nanoTime();
+    }
+
+    /**
+     * Selects the column for the player whose turn it is by running playouts
+     * until the playout budget or the time budget (see setTimeBudget) runs
+     * out. The search plays and takes back moves on the game itself, so the
+     * game is back in its original state when this method returns.
+     *
+     * @param game the live game to pick a move for.
+     *
+     * @return the column number (1-7) where the computer will place its piece,
+     * or -1 if the board is full.
+     */
+    @Override
+    public int getColumn(Connect4Logic game) {
+        long start = System.nanoTime();
+        long deadline = getTimeBudget() > 0 ? start + getTimeBudget() * 1000000L : Long.MAX_VALUE;
+        this.playoutCount = 0;
+
+        int legal = 0;
+        for (int col : Connect4ComputerPlayer.MOVE_ORDER) {
+            if (!game.canPlay(col)) continue;
+            if (game.isWinningMove(col)) {
+                this.searchNanos = System.nanoTime() - start;
+                return col + 1;
+            }
+            legal++;
+        }
+        if (legal == 0) return -1;
+
+        search(game, deadline, this.playouts);
+
+        this.searchNanos = System.nanoTime() - start;
+        return mostVisitedChild(0) + 1;
+    }
+
+    /**
+     * Builds a new tree for a position by running playouts until a playout
+     * budget or a deadline is reached. The root position must have at least
+     * one legal move.
+     *
+     * @param game the root position, played on and restored.
+     * @param deadline System.nanoTime at which to stop.
+     * @param maxPlayouts maximum number of playouts.
+     */
+    void search(Connect4Logic game, long deadline, long maxPlayouts) {
+        this.playoutCount = 0;
+        resetTree();
+        while (this.playoutCount < maxPlayouts
+                && ((this.playoutCount & 63) != 0 || System.nanoTime() < deadline)) {
+            runPlayout(game);
+            this.playoutCount++;
+        }
+    }
+
+    /**
+     * Empties the node pool, leaving only the root node.
+     */
+    void resetTree() {
+        this.nodeCount = 1;
+        this.firstChild[0] = -1;
+        this.childCount[0] = 0;
+        this.terminal[0] = 0;
+        this.visits[0] = 0;
+        this.wins[0] = 0;
+    }
+
+    /**
+     * private helper method that runs one iteration of the search: walks down
+     * the tree picking children with UCT, expands the leaf it reaches, plays
+     * a random game from there and adds the result to every node on the path.
+     *
+     * @param game the root position, played on and restored.
+     */
+    private void runPlayout(Connect4Logic game) {
+        int rootTurn = game.getPlayerTurn();
+        int node = 0;
+        int depth = 0;
+        this.path[0] = 0;
+
+        int winner;
+        while (true) {
+            if (this.terminal[node] != 0) {
+                winner = this.terminal[node] == WIN ? 1 - game.getPlayerTurn() : -1;
+                break;
+            }
+            if (this.firstChild[node] < 0) {
+                if ((node == 0 || this.visits[node] > 0) && expand(node, game)) {
+                    node = this.firstChild[node];
+                    game.play(this.move[node]);
+                    this.path[++depth] = node;
+                    if (this.terminal[node] != 0) {
+                        winner = this.terminal[node] == WIN ? 1 - game.getPlayerTurn() : -1;
+                        break;
+                    }
+                }
+                winner = playout(game);
+                break;
+            }
+            node = selectChild(node);
+            game.play(this.move[node]);
+            this.path[++depth] = node;
+        }
+
+        for (int i = depth; i >= 0; i--) {
+            node = this.path[i];
+            this.visits[node]++;
+            if (i == 0) continue;
+            int mover = (rootTurn + i - 1) % 2;
+            if (winner == mover) this.wins[node] += 1f;
+            else if (winner < 0) this.wins[node] += 0.5f;
+        }
+        for (int i = 0; i < depth; i++) game.unplay();
+    }
+
+    /**
+     * Adds a child for every legal move of a node, if the pool has room.
+     *
+     * @param node node to expand.
+     * @param game the position of the node.
+     *
+     * @return true if the node was expanded.
+     */
+    boolean expand(int node, Connect4Logic game) {
+        if (this.nodeCount + Connect4Logic.COLUMNS > this.firstChild.length) return false;
+        int first = this.nodeCount;
+        int count = 0;
+        boolean full = game.getTurnCount() + 1 == Connect4Logic.ROWS * Connect4Logic.COLUMNS;
+        for (int col : Connect4ComputerPlayer.MOVE_ORDER) {
+            if (!game.canPlay(col)) continue;
+            int child = first + count++;
+            this.firstChild[child] = -1;
+            this.childCount[child] = 0;
+            this.move[child] = (byte) col;
+            this.terminal[child] = game.isWinningMove(col) ? WIN : full ? DRAW : 0;
+            this.visits[child] = 0;
+            this.wins[child] = 0;
+        }
+        this.nodeCount += count;
+        this.childCount[node] = (byte) count;
+        this.firstChild[node] = first;
+        return count > 0;
+    }
+
+    /**
+     * Picks the child of a node with the highest UCT value, which balances
+     * the win rate of a move against how rarely it was tried. Children that
+     * were never tried are picked first.
+     *
+     * @param node node to pick a child of.
+     *
+     * @return index of the picked child.
+     */
+    int selectChild(int node) {
+        int first = this.firstChild[node];
+        int last = first + this.childCount[node];
+        double logVisits = Math.log(Math.max(1, this.visits[node]));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < last; child++) {
+            int n = this.visits[child];
+            if (n == 0) return child;
+            double value = this.wins[child] / n + EXPLORATION * Math.sqrt(logVisits / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the move of the most visited child of a node.
+     *
+     * @param node node to pick a child of.
+     *
+     * @return column index (0-6) of the most visited move.
+     */
+    int mostVisitedChild(int node) {
+        int first = this.firstChild[node];
+        int best = first;
+        for (int child = first + 1; child < first + this.childCount[node]; child++) {
+            if (this.visits[child] > this.visits[best]) best = child;
+        }
+        return this.move[best];
+    }
+
+    /**
+     * Plays a random game from a position on two local bitboards. Each side
+     * wins immediately if it can and otherwise blocks an immediate win of the
+     * opponent, which makes the results much less noisy than purely random
+     * moves.
+     *
+     * @param game position to play from, which is not changed.
+     *
+     * @return the winner (0 for player X, 1 for player O) or -1 for a draw.
+     */
+    int playout(Connect4Logic game) {
+        this.seed += 0x9E3779B97F4A7C15L;
+        return playout(game.getBitboard(0), game.getBitboard(1), game.getPlayerTurn(), this.seed);
+    }
+
+    /**
+     * Plays a random game from a position given as bitboards.
+     *
+     * @param x bitboard of player X's pieces.
+     * @param o bitboard of player O's pieces.
+     * @param turn player to move (0 for X, 1 for O).
+     * @param seed seed of the random moves, a different one for each playout.
+     *
+     * @return the winner (0 for player X, 1 for player O) or -1 for a draw.
+     */
+    static int playout(long x, long o, int turn, long seed) {
+        // scramble the seed (splitmix64) so consecutive seeds give unrelated games
+        long state = (seed ^ (seed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        state = (state ^ (state >>> 27)) * 0x94D049BB133111EBL;
+        state = (state ^ (state >>> 31)) | 1;
+        int winner = -1;
+        while (true) {
+            long mask = x | o;
+            long playable = (mask + Connect4Logic.BOTTOM_ROW) & Connect4Logic.FULL_BOARD;
+            if (playable == 0) break;
+
+            long own = turn == 0 ? x : o;
+            long other = turn == 0 ? o : x;
+            if ((Connect4Logic.winningCells(own, mask) & playable) != 0) {
+                winner = turn;
+                break;
+            }
+            long blocks = Connect4Logic.winningCells(other, mask) & playable;
+            long choices = blocks != 0 ? blocks : playable;
+
+            // xorshift64* random number, then pick one of the set bits
+            state ^= state >>> 12;
+            state ^= state << 25;
+            state ^= state >>> 27;
+            long r = state * 0x2545F4914F6CDD1DL;
+            int k = (int) (((r >>> 32) * Long.bitCount(choices)) >>> 32);
+            for (int i = 0; i < k; i++) choices &= choices - 1;
+            long piece = Long.lowestOneBit(choices);
+
+            if (turn == 0) x |= piece;
+            else o |= piece;
+            turn ^= 1;
+        }
+        return winner;
+    }
+
+    /**
+     * Sets the seed of the random playouts, so players running side by side
+     * do not play the same random games.
+     *
+     * @param seed new seed.
+     */
+    void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the number of playouts run by the last call to getColumn.
+     *
+     * @return playout count.
+     */
+    public long getPlayouts() {
+        return this.playoutCount;
+    }
+
+    /**
+     * Returns the number of playouts per second of the last call to getColumn.
+     *
+     * @return playouts per second.
+     */
+    public long getPlayoutsPerSecond() {
+        if (this.searchNanos == 0) return 0;
+        return this.playoutCount * 1000000000L / this.searchNanos;
+    }
+
+    /**
+     * Returns the number of playouts run by the last call to getColumn, so
+     * the MCTS and alpha-beta players can be compared with the same calls.
+     *
+     * @return playout count.
+     */
+    @Override
+    public long getNodesSearched() {
+        return getPlayouts();
+    }
+
+    /**
+     * Returns the number of playouts per second of the last call to getColumn.
+     *
+     * @return playouts per second.
+     */
+    @Override
+    public long getNodesPerSecond() {
+        return getPlayoutsPerSecond();
+    }
+
+    /**
+     * Sets the time budget per move. With a budget of 0 every search runs
+     * its full playout budget.
+     *
+     * @param millis time budget per move in milliseconds.
+     */
+    @Override
+    public void setTimeBudget(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("time budget must not be negative: " + millis);
+        this.timeBudget = millis;
+    }
+
+    /**
+     * Returns the time budget per move.
+     *
+     * @return time budget in milliseconds, 0 if there is none.
+     */
+    @Override
+    public long getTimeBudget() {
+        return this.timeBudget;
+    }
+
+    /**
+     * Returns the maximum number of playouts per move.
+     *
+     * @return playout budget.
+     */
+    public int getPlayoutBudget() {
+        return this.playouts;
+    }
+}
@@ -0,0 +1,201 @@
+package core;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only opening book of solved Connect4 positions. The book file is
+ * memory-mapped and searched in place, so opening a book only reads its
+ * header and lookups never copy entries onto the heap.
+ *
+ * File layout (big-endian): a 16 byte header with the magic number, the
+ * format version, the deepest ply in the book and the number of entries,
+ * followed by the entries sorted by position key. Each entry is 10 bytes: the
+ * 8 byte key from Connect4Logic.getCanonicalKey, the column index (0-6) of the
+ * best move and the score of the position (see Connect4Solver). A position
+ * and its mirror image share one entry, whose move is the move of the
+ * position with the canonical key (see Connect4Symmetry).
+ *
+ * Books are written, and books generated in parts merged, by
+ * Connect4BookGenerator.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Connect4OpeningBook {
+
+    /**
+     * Magic number at the start of every book file ("C4BK").
+     */
+    static final int MAGIC = 0x4334424B;
+
+    /**
+     * Version of the file format.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Size of the file header in bytes.
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * Size of an entry in bytes.
+     */
+    static final int ENTRY_SIZE = 10;
+
+    /**
+     * The mapped book file.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Deepest ply (number of pieces on the board) of the positions in the book.
+     */
+    private final int maxPly;
+
+    /**
+     * Number of entries in the book.
+     */
+    private final int entryCount;
+
+    /**
+     * private constructor, books are opened with open.
+     *
+     * @param buffer the mapped book file.
+     * @param maxPly deepest ply in the book.
+     * @param entryCount number of entries.
+     */
+    private Connect4OpeningBook(MappedByteBuffer buffer, int maxPly, int entryCount) {
+        this.buffer = buffer;
+        this.maxPly = maxPly;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * Opens a book file by memory-mapping it.
+     *
+     * @param file path of the book file.
+     *
+     * @return the opened book.
+     *
+     * @throws IOException if the file cannot be read or is not a book file.
+     */
+    public static Connect4OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("not a Connect4 opening book: " + file);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("unsupported opening book version " + buffer.getInt(4) + ": " + file);
+            }
+            int maxPly = buffer.getInt(8);
+            int entryCount = buffer.getInt(12);
+            if ((long) entryCount * ENTRY_SIZE + HEADER_SIZE != buffer.capacity()) {
+                throw new IOException("truncated opening book: " + file);
+            }
+            return new Connect4OpeningBook(buffer, maxPly, entryCount);
+        }
+    }
+
+    /**
+     * Looks up the best move of a position with a binary search over the
+     * sorted entries.
+     *
+     * @param game position to look up.
+     *
+     * @return the column (1-7) of the best move, or -1 if the position is not
+     * in the book.
+     */
+    public int getColumn(Connect4Logic game) {
+        int entry = find(game);
+        if (entry < 0) return -1;
+        int col = this.buffer.get(HEADER_SIZE + entry * ENTRY_SIZE + 8);
+        if (Connect4Symmetry.isMirrored(game.getPositionKey())) col = Connect4Symmetry.mirrorColumn(col);
+        return col + 1;
+    }
+
+    /**
+     * Looks up the score of a position.
+     *
+     * @param game position to look up.
+     *
+     * @return the score of the position from the point of view of the player
+     * to move, or Integer.MIN_VALUE if the position is not in the book.
+     */
+    public int getScore(Connect4Logic game) {
+        int entry = find(game);
+        return entry < 0 ? Integer.MIN_VALUE : this.buffer.get(HEADER_SIZE + entry * ENTRY_SIZE + 9);
+    }
+
+    /**
+     * private helper method that finds the entry of a position.
+     *
+     * @param game position to find.
+     *
+     * @return index of the entry, or -1 if the position is not in the book.
+     */
+    private int find(Connect4Logic game) {
+        if (game.getMoveCount() > this.maxPly) return -1;
+        long key = game.getCanonicalKey();
+        int low = 0;
+        int high = this.entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = this.buffer.getLong(HEADER_SIZE + mid * ENTRY_SIZE);
+            if (midKey < key) low = mid + 1;
+            else if (midKey > key) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the key of an entry.
+     *
+     * @param entry index of the entry, 0 to size() - 1.
+     *
+     * @return canonical position key of the entry.
+     */
+    long getKey(int entry) {
+        return this.buffer.getLong(HEADER_SIZE + entry * ENTRY_SIZE);
+    }
+
+    /**
+     * Returns the move and score bytes of an entry as they are stored.
+     *
+     * @param entry index of the entry, 0 to size() - 1.
+     *
+     * @return the column index (0-6) in the high byte and the score in the
+     * low byte.
+     */
+    short getMoveAndScore(int entry) {
+        return this.buffer.getShort(HEADER_SIZE + entry * ENTRY_SIZE + 8);
+    }
+
+    /**
+     * Returns the deepest ply of the positions in the book.
+     *
+     * @return maximum number of pieces on the board of a book position.
+     */
+    public int getMaxPly() {
+        return this.maxPly;
+    }
+
+    /**
+     * Returns the number of positions in the book.
+     *
+     * @return number of entries.
+     */
+    public int size() {
+        return this.entryCount;
+    }
+}
@@ -0,0 +1,599 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Connect4 computer player that runs Monte Carlo Tree Search on several
+ * threads at once. It has two modes, picked when the player is constructed:
+ *
+ * ROOT: every thread grows its own tree (a Connect4MCTSPlayer) from the same
+ * position, and the visit counts of the root moves of all trees are added up
+ * to pick the move. The threads share nothing while they search.
+ *
+ * TREE: all threads grow one shared tree whose visit and score counters are
+ * atomic. A thread walking down the tree adds a virtual loss to every node on
+ * its path, which makes the path look worse to the other threads until its
+ * playout is done, so the threads spread out over different moves.
+ *
+ * The thread count is set with setThreads; the calling thread is one of the
+ * search threads. The other threads are kept between moves until close is
+ * called.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Connect4ParallelMCTSPlayer implements Connect4Player {
+
+    /**
+     * How the search is split between threads.
+     */
+    public enum Mode {
+        /**
+         * One tree per thread, merged at the root.
+         */
+        ROOT,
+
+        /**
+         * One shared tree with atomic counters and virtual loss.
+         */
+        TREE
+    }
+
+    /**
+     * Number of lost playouts added to a node while a thread's playout
+     * through it is running (TREE mode).
+     */
+    private static final int VIRTUAL_LOSS = 3;
+
+    /**
+     * Value of firstChild for a node that is not expanded.
+     */
+    private static final int UNEXPANDED = -1;
+
+    /**
+     * Value of firstChild for a node another thread is expanding.
+     */
+    private static final int EXPANDING = -2;
+
+    /**
+     * Exploration constant of the UCT formula.
+     */
+    private static final double EXPLORATION = 1.4;
+
+    /**
+     * How the search is split between threads.
+     */
+    private final Mode mode;
+
+    /**
+     * Maximum number of playouts per move, over all threads.
+     */
+    private final int playouts;
+
+    /**
+     * Number of nodes in the pool, shared by all trees in ROOT mode.
+     */
+    private final int capacity;
+
+    /**
+     * Index of the first child of each node, UNEXPANDED or EXPANDING (TREE
+     * mode only, null otherwise). Setting it publishes the children.
+     */
+    private final AtomicIntegerArray firstChild;
+
+    /**
+     * Number of children of each node (TREE mode).
+     */
+    private final byte[] childCount;
+
+    /**
+     * Column index (0-6) of the move leading to each node (TREE mode).
+     */
+    private final byte[] move;
+
+    /**
+     * WIN or DRAW if the move leading to the node ended the game, 0 otherwise
+     * (TREE mode).
+     */
+    private final byte[] terminal;
+
+    /**
+     * Number of playouts through each node, including running ones counted
+     * as virtual losses (TREE mode).
+     */
+    private final AtomicIntegerArray visits;
+
+    /**
+     * Total result of the playouts through each node for the player who made
+     * the move leading to it, in half points: 2 for a win, 1 for a draw (TREE
+     * mode).
+     */
+    private final AtomicIntegerArray score;
+
+    /**
+     * Number of nodes in use (TREE mode).
+     */
+    private final AtomicInteger nodeCount;
+
+    /**
+     * One tree per thread (ROOT mode), created on the first search.
+     */
+    private Connect4MCTSPlayer[] trees;
+
+    /**
+     * Threads the searches other than the calling thread's run on.
+     */
+    private ThreadPoolExecutor pool;
+
+    /**
+     * Number of playouts run by the last search.
+     */
+    private long playoutCount;
+
+    /**
+     * Time taken by the last search in nanoseconds.
+     */
+    private long searchNanos;
+
+    /**
+     * Time budget per move in milliseconds, 0 for none.
+     */
+    private long timeBudget;
+
+    /**
+     * Number of search threads, including the calling thread.
+     */
+    private int threads;
+
+    /**
+     * Constructs a player with Connect4MCTSPlayer.DEFAULT_PLAYOUTS playouts
+     * per move.
+     *
+     * @param mode how the search is split between threads.
+     * @param threads number of search threads (at least 1).
+     */
+    public Connect4ParallelMCTSPlayer(Mode mode, int threads) {
+        this(mode, threads, Connect4MCTSPlayer.DEFAULT_PLAYOUTS, Connect4MCTSPlayer.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a player with a playout budget per move and a node pool size.
+     * In ROOT mode the pool is split evenly between the trees.
+     *
+     * @param mode how the search is split between threads.
+     * @param threads number of search threads (at least 1).
+     * @param playouts maximum number of playouts per move over all threads
+     * (at least 1).
+     * @param capacity number of nodes in the pool.
+     */
+    public Connect4ParallelMCTSPlayer(Mode mode, int threads, int playouts, int capacity) {
+        if (mode == null) throw new IllegalArgumentException("mode must not be null");
+        if (playouts < 1) throw new IllegalArgumentException("playouts must be at least 1: " + playouts);
+        if (capacity < Connect4Logic.COLUMNS + 1) throw new IllegalArgumentException("capacity too small: " + capacity);
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        this.threads = threads;
+        this.mode = mode;
+        this.playouts = playouts;
+        this.capacity = capacity;
+        boolean shared = mode == Mode.TREE;
+        this.firstChild = shared ? new AtomicIntegerArray(capacity) : null;
+        this.childCount = shared ? new byte[capacity] : null;
+        this.move = shared ? new byte[capacity] : null;
+        this.terminal = shared ? new byte[capacity] : null;
+        this.visits = shared ? new AtomicIntegerArray(capacity) : null;
+        this.score = shared ? new AtomicIntegerArray(capacity) : null;
+        this.nodeCount = shared ? new AtomicInteger() : null;
+    }
+
+    /**
+     * Selects the column for the player whose turn it is by running playouts
+     * on all search threads until the playout budget or the time budget (see
+     * setTimeBudget) runs out. The game is copied for every thread but the
+     * calling one, which plays and takes back moves on the game itself, so
+     * the game is back in its original state when this method returns.
+     *
+     * @param game the live game to pick a move for.
+     *
+     * @return the column number (1-7) where the computer will place its piece,
+     * or -1 if the board is full.
+     */
+    @Override
+    public int getColumn(Connect4Logic game) {
+        long start = System.nanoTime();
+        long deadline = getTimeBudget() > 0 ? start + getTimeBudget() * 1000000L : Long.MAX_VALUE;
+        this.playoutCount = 0;
+
+        int legal = 0;
+        for (int col : Connect4ComputerPlayer.MOVE_ORDER) {
+            if (!game.canPlay(col)) continue;
+            if (game.isWinningMove(col)) {
+                this.searchNanos = System.nanoTime() - start;
+                return col + 1;
+            }
+            legal++;
+        }
+        if (legal == 0) return -1;
+
+        int threads = getThreads();
+        Connect4Logic[] positions = new Connect4Logic[threads];
+        positions[0] = game;
+        for (int i = 1; i < threads; i++) positions[i] = new Connect4Logic(game);
+
+        int col = this.mode == Mode.ROOT
+                ? searchRootParallel(positions, deadline)
+                : searchTreeParallel(positions, deadline);
+
+        this.searchNanos = System.nanoTime() - start;
+        return col + 1;
+    }
+
+    /**
+     * private helper method that grows one tree per thread and adds up the
+     * visits of each root move over all trees.
+     *
+     * @param positions the root position for each thread.
+     * @param deadline System.nanoTime at which to stop.
+     *
+     * @return column index (0-6) of the most visited move.
+     */
+    private int searchRootParallel(Connect4Logic[] positions, long deadline) {
+        int threads = positions.length;
+        if (this.trees == null || this.trees.length != threads) {
+            this.trees = new Connect4MCTSPlayer[threads];
+            int treeCapacity = Math.max(Connect4Logic.COLUMNS + 1, this.capacity / threads);
+            for (int i = 0; i < threads; i++) {
+                this.trees[i] = new Connect4MCTSPlayer(this.playouts, treeCapacity);
+                this.trees[i].setSeed(System.nanoTime() + i * 0x9E3779B97F4A7C15L);
+            }
+        }
+        long perTree = ((long) this.playouts + threads - 1) / threads;
+        runParallel(threads, i -> this.trees[i].search(positions[i], deadline, perTree));
+
+        long[] totals = new long[Connect4Logic.COLUMNS];
+        for (Connect4MCTSPlayer tree : this.trees) {
+            this.playoutCount += tree.getPlayouts();
+            int first = tree.firstChild[0];
+            for (int child = first; child < first + tree.childCount[0]; child++) {
+                totals[tree.move[child]] += tree.visits[child];
+            }
+        }
+        int best = -1;
+        for (int col : Connect4ComputerPlayer.MOVE_ORDER) {
+            if (positions[0].canPlay(col) && (best < 0 || totals[col] > totals[best])) best = col;
+        }
+        return best;
+    }
+
+    /**
+     * private helper method that grows the shared tree on all threads.
+     *
+     * @param positions the root position for each thread.
+     * @param deadline System.nanoTime at which to stop.
+     *
+     * @return column index (0-6) of the most visited move.
+     */
+    private int searchTreeParallel(Connect4Logic[] positions, long deadline) {
+        this.nodeCount.set(1);
+        this.firstChild.set(0, UNEXPANDED);
+        this.childCount[0] = 0;
+        this.terminal[0] = 0;
+        this.visits.set(0, 0);
+        this.score.set(0, 0);
+
+        long seed = System.nanoTime();
+        runParallel(positions.length, i -> {
+            int[] path = new int[Connect4Logic.ROWS * Connect4Logic.COLUMNS + 1];
+            long threadSeed = seed + i * 0x632BE59BD9B4E019L;
+            long count = 0;
+            // the root visits are the finished playouts of all threads
+            while (this.visits.get(0) < this.playouts
+                    && ((count & 63) != 0 || System.nanoTime() < deadline)) {
+                threadSeed += 0x9E3779B97F4A7C15L;
+                runSharedPlayout(positions[i], path, threadSeed);
+                count++;
+            }
+        });
+        this.playoutCount = this.visits.get(0);
+
+        int first = this.firstChild.get(0);
+        if (first < 0) {
+            // out of time before the root was expanded
+            for (int col : Connect4ComputerPlayer.MOVE_ORDER) {
+                if (positions[0].canPlay(col)) return col;
+            }
+        }
+        int best = first;
+        for (int child = first + 1; child < first + this.childCount[0]; child++) {
+            if (this.visits.get(child) > this.visits.get(best)) best = child;
+        }
+        return this.move[best];
+    }
+
+    /**
+     * private helper method that runs one iteration of the search on the
+     * shared tree: walks down the tree adding a virtual loss to every node it
+     * picks, expands the leaf it reaches, plays a random game from there and
+     * replaces the virtual losses with the result.
+     *
+     * @param game the root position, played on and restored.
+     * @param path buffer for the nodes on the path.
+     * @param seed seed of the random game.
+     */
+    private void runSharedPlayout(Connect4Logic game, int[] path, long seed) {
+        int rootTurn = game.getPlayerTurn();
+        int node = 0;
+        int depth = 0;
+
+        int winner;
+        while (true) {
+            if (this.terminal[node] != 0) {
+                winner = this.terminal[node] == Connect4MCTSPlayer.WIN ? 1 - game.getPlayerTurn() : -1;
+                break;
+            }
+            int first = this.firstChild.get(node);
+            if (first < 0) {
+                // a visited node is expanded by the first thread to get there again
+                if (first == UNEXPANDED && (node == 0 || this.visits.get(node) > VIRTUAL_LOSS)
+                        && expand(node, game)) {
+                    node = selectChild(node);
+                    this.visits.addAndGet(node, VIRTUAL_LOSS);
+                    game.play(this.move[node]);
+                    path[++depth] = node;
+                    if (this.terminal[node] != 0) {
+                        winner = this.terminal[node] == Connect4MCTSPlayer.WIN ? 1 - game.getPlayerTurn() : -1;
+                        break;
+                    }
+                }
+                winner = Connect4MCTSPlayer.playout(game.getBitboard(0), game.getBitboard(1),
+                        game.getPlayerTurn(), seed);
+                break;
+            }
+            node = selectChild(node);
+            this.visits.addAndGet(node, VIRTUAL_LOSS);
+            game.play(this.move[node]);
+            path[++depth] = node;
+        }
+
+        for (int i = depth; i > 0; i--) {
+            node = path[i];
+            this.visits.addAndGet(node, 1 - VIRTUAL_LOSS);
+            int mover = (rootTurn + i - 1) % 2;
+            if (winner == mover) this.score.addAndGet(node, 2);
+            else if (winner < 0) this.score.addAndGet(node, 1);
+        }
+        this.visits.incrementAndGet(0);
+        for (int i = 0; i < depth; i++) game.unplay();
+    }
+
+    /**
+     * private helper method that adds a child for every legal move of a node
+     * of the shared tree, if no other thread is expanding it and the pool has
+     * room. The children are filled in before firstChild is set, so threads
+     * that see firstChild also see the children.
+     *
+     * @param node node to expand.
+     * @param game the position of the node.
+     *
+     * @return true if this thread expanded the node.
+     */
+    private boolean expand(int node, Connect4Logic game) {
+        if (this.nodeCount.get() + Connect4Logic.COLUMNS > this.capacity) return false;
+        if (!this.firstChild.compareAndSet(node, UNEXPANDED, EXPANDING)) return false;
+
+        int count = 0;
+        for (int col = 0; col < Connect4Logic.COLUMNS; col++) {
+            if (game.canPlay(col)) count++;
+        }
+        int first = this.nodeCount.getAndAdd(count);
+        if (count == 0 || first + count > this.capacity) {
+            this.firstChild.set(node, UNEXPANDED);
+            return false;
+        }
+
+        boolean full = game.getTurnCount() + 1 == Connect4Logic.ROWS * Connect4Logic.COLUMNS;
+        int child = first;
+        for (int col : Connect4ComputerPlayer.MOVE_ORDER) {
+            if (!game.canPlay(col)) continue;
+            this.firstChild.set(child, UNEXPANDED);
+            this.childCount[child] = 0;
+            this.move[child] = (byte) col;
+            this.terminal[child] = game.isWinningMove(col) ? Connect4MCTSPlayer.WIN
+                    : full ? Connect4MCTSPlayer.DRAW : 0;
+            this.visits.set(child, 0);
+            this.score.set(child, 0);
+            child++;
+        }
+        this.childCount[node] = (byte) count;
+        this.firstChild.set(node, first);
+        return true;
+    }
+
+    /**
+     * private helper method that picks the child of a node of the shared tree
+     * with the highest UCT value. Children that were never tried are picked
+     * first.
+     *
+     * @param node an expanded node.
+     *
+     * @return index of the picked child.
+     */
+    private int selectChild(int node) {
+        int first = this.firstChild.get(node);
+        int last = first + this.childCount[node];
+        double logVisits = Math.log(Math.max(1, this.visits.get(node)));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < last; child++) {
+            int n = this.visits.get(child);
+            if (n == 0) return child;
+            double value = this.score.get(child) / (2.0 * n) + EXPLORATION * Math.sqrt(logVisits / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * private helper method that runs a task once for every thread index,
+     * index 0 on the calling thread and the others on the pool, and waits for
+     * all of them.
+     *
+     * @param threads number of threads.
+     * @param task task to run, given the thread index.
+     */
+    private void runParallel(int threads, IntConsumer task) {
+        if (threads > 1 && (this.pool == null || this.pool.getCorePoolSize() != threads - 1)) {
+            if (this.pool != null) this.pool.shutdown();
+            this.pool = new ThreadPoolExecutor(threads - 1, threads - 1,
+                    1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "connect4-mcts");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            this.pool.allowCoreThreadTimeOut(true);
+        }
+
+        List<Future<?>> searches = new ArrayList<>(threads - 1);
+        for (int i = 1; i < threads; i++) {
+            int index = i;
+            searches.add(this.pool.submit(() -> task.accept(index)));
+        }
+        task.accept(0);
+        for (Future<?> search : searches) {
+            try {
+                search.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (ExecutionException e) {
+                throw new IllegalStateException("search thread failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Sets the number of threads used by each search, including the thread
+     * calling getColumn.
+     *
+     * @param threads number of search threads (at least 1).
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        this.threads = threads;
+    }
+
+    /**
+     * Stops the threads kept for the searches. The player can still be used;
+     * the next search starts new threads.
+     */
+    public void close() {
+        if (this.pool != null) {
+            this.pool.shutdown();
+            this.pool = null;
+        }
+    }
+
+    /**
+     * Returns the number of threads used by each search.
+     *
+     * @return number of search threads.
+     */
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * Returns how the search is split between threads.
+     *
+     * @return the search mode.
+     */
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    /**
+     * Sets the time budget per move. With a budget of 0 every search runs
+     * its full playout budget.
+     *
+     * @param millis time budget per move in milliseconds.
+     */
+    @Override
+    public void setTimeBudget(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("time budget must not be negative: " + millis);
+        this.timeBudget = millis;
+    }
+
+    /**
+     * Returns the time budget per move.
+     *
+     * @return time budget in milliseconds, 0 if there is none.
+     */
+    @Override
+    public long getTimeBudget() {
+        return this.timeBudget;
+    }
+
+    /**
+     * Returns the maximum number of playouts per move over all threads.
+     *
+     * @return playout budget.
+     */
+    public int getPlayoutBudget() {
+        return this.playouts;
+    }
+
+    /**
+     * Returns the number of playouts run by the last call to getColumn,
+     * summed over all threads.
+     *
+     * @return playout count.
+     */
+    public long getPlayouts() {
+        return this.playoutCount;
+    }
+
+    /**
+     * Returns the number of playouts per second of the last call to getColumn,
+     * summed over all threads.
+     *
+     * @return playouts per second.
+     */
+    public long getPlayoutsPerSecond() {
+        if (this.searchNanos == 0) return 0;
+        return this.playoutCount * 1000000000L / this.searchNanos;
+    }
+
+    /**
+     * Returns the number of playouts run by the last call to getColumn, so
+     * the MCTS and alpha-beta players can be compared with the same calls.
+     *
+     * @return playout count.
+     */
+    @Override
+    public long getNodesSearched() {
+        return getPlayouts();
+    }
+
+    /**
+     * Returns the number of playouts per second of the last call to getColumn.
+     *
+     * @return playouts per second.
+     */
+    @Override
+    public long getNodesPerSecond() {
+        return getPlayoutsPerSecond();
+    }
+}
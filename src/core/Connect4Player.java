@@ -0,0 +1,56 @@
+package core;
+
+/**
+ * A Connect4 computer player: picks a column for the player whose turn it
+ * is, within an optional time budget, and reports how much searching the
+ * last pick took. The alpha-beta and Monte Carlo Tree Search players all
+ * implement it, so they can be swapped and compared through the same calls.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public interface Connect4Player {
+
+    /**
+     * Selects the column for the player whose turn it is. The game is back in
+     * its original state when this method returns.
+     *
+     * @param game the live game to pick a move for.
+     *
+     * @return the column number (1-7) where the computer will place its piece,
+     * or -1 if the board is full.
+     */
+    int getColumn(Connect4Logic game);
+
+    /**
+     * Sets the time budget per move. With a budget of 0 every search runs to
+     * its own limit (depth or playouts).
+     *
+     * @param millis time budget per move in milliseconds.
+     */
+    void setTimeBudget(long millis);
+
+    /**
+     * Returns the time budget per move.
+     *
+     * @return time budget in milliseconds, 0 if there is none.
+     */
+    long getTimeBudget();
+
+    /**
+     * Returns the amount of work done by the last call to getColumn: the
+     * positions visited by an alpha-beta search or the playouts run by a
+     * Monte Carlo search.
+     *
+     * @return number of nodes searched.
+     */
+    long getNodesSearched();
+
+    /**
+     * Returns the search speed of the last call to getColumn.
+     *
+     * @return nodes searched per second.
+     */
+    long getNodesPerSecond();
+}
@@ -0,0 +1,356 @@
+package core;
+
+/**
+ * Solves Connect4 positions, finding the exact result of the game with perfect
+ * play from both sides. Used by the expert level of the computer player.
+ *
+ * The result of a position is given as a score from the point of view of the
+ * player to move: 0 for a draw, a positive score if the player to move wins
+ * and a negative score if it loses. The sooner the game is won the larger the
+ * score: winning with the player's own last piece scores 1, winning one piece
+ * earlier scores 2, and so on.
+ *
+ * The solver runs a negamax search with alpha-beta pruning on its own compact
+ * bitboards (the pieces of the player to move and a mask of all pieces). It
+ * never plays a move that lets the opponent win on the next move, orders moves
+ * by the number of new threats they create, narrows the score down with null
+ * window searches and remembers upper bounds of scores in a transposition
+ * table.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Connect4Solver {
+
+    /**
+     * Number of cells on the board.
+     */
+    private static final int CELLS = Connect4Logic.ROWS * Connect4Logic.COLUMNS;
+
+    /**
+     * Lowest possible score (losing to the opponent's 4th piece).
+     */
+    public static final int MIN_SCORE = -CELLS / 2 + 3;
+
+    /**
+     * Highest possible score (winning with the player's own 4th piece).
+     */
+    public static final int MAX_SCORE = (CELLS + 1) / 2 - 3;
+
+    /**
+     * Upper bounds of the scores of positions already searched.
+     */
+    private final TranspositionTable table;
+
+    /**
+     * Columns of the moves to search at each number of pieces on the board,
+     * sorted best first. Kept between calls so the search does not allocate.
+     */
+    private final int[][] moveBuffers;
+
+    /**
+     * Sort keys of the moves in moveBuffers.
+     */
+    private final int[][] moveScores;
+
+    /**
+     * Number of positions visited since the counter was last reset.
+     */
+    private long nodeCount;
+
+    /**
+     * Score of the move picked by the last call to getBestColumn.
+     */
+    private int bestScore;
+
+    /**
+     * Constructs a solver with a transposition table of the default size.
+     */
+    public Connect4Solver() {
+        this(TranspositionTable.DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructs a solver with a transposition table of a given size.
+     *
+     * @param tableSize number of slots in the transposition table.
+     */
+    public Connect4Solver(int tableSize) {
+        this.table = new TranspositionTable(tableSize);
+        this.moveBuffers = new int[CELLS + 1][Connect4Logic.COLUMNS];
+        this.moveScores = new int[CELLS + 1][Connect4Logic.COLUMNS];
+    }
+
+    /**
+     * Finds the exact score of a position.
+     *
+     * @param game position to solve, which must not already be won.
+     *
+     * @return the score of the position from the point of view of the player
+     * to move.
+     */
+    public int solve(Connect4Logic game) {
+        return solve(game, false);
+    }
+
+    /**
+     * Finds the score of a position. A weak solve only tells a win, draw or
+     * loss apart, which is usually a lot faster than finding the exact score.
+     *
+     * @param game position to solve, which must not already be won.
+     * @param weak true for a weak solve.
+     *
+     * @return the score of the position from the point of view of the player
+     * to move, or only its sign (1, 0 or -1) for a weak solve.
+     */
+    public int solve(Connect4Logic game, boolean weak) {
+        if (game.checkForWin() != 0) throw new IllegalArgumentException("position is already won");
+        long mask = game.getBitboard(0) | game.getBitboard(1);
+        int moves = Long.bitCount(mask);
+        long current = game.getBitboard(moves % 2);
+        return solve(current, mask, moves, weak);
+    }
+
+    /**
+     * Finds the best column for the player to move, the one with the highest
+     * score. Plays and takes back moves on the game, which is back in its
+     * original state when this method returns.
+     *
+     * @param game position to find the move for, which must not already be
+     * won.
+     *
+     * @return the column (1-7) of the best move, or -1 if the board is full.
+     */
+    public int getBestColumn(Connect4Logic game) {
+        int bestCol = -1;
+        int bestScore = Integer.MIN_VALUE;
+        for (int col : Connect4ComputerPlayer.MOVE_ORDER) {
+            if (!game.canPlay(col)) continue;
+            if (game.isWinningMove(col)) {
+                this.bestScore = (CELLS + 1 - game.getTurnCount()) / 2;
+                return col + 1;
+            }
+            game.play(col);
+            int score = game.getTurnCount() == CELLS ? 0 : -solve(game);
+            game.unplay();
+            if (score > bestScore) {
+                bestScore = score;
+                bestCol = col;
+            }
+        }
+        this.bestScore = bestCol < 0 ? 0 : bestScore;
+        return bestCol < 0 ? -1 : bestCol + 1;
+    }
+
+    /**
+     * Returns the score of the move picked by the last call to getBestColumn,
+     * which is the score of the position it was called on.
+     *
+     * @return score of the best move.
+     */
+    public int getBestScore() {
+        return this.bestScore;
+    }
+
+    /**
+     * Calculates how many moves (counting both players) are left until the
+     * game ends with perfect play.
+     *
+     * @param score score of the position found by solve.
+     * @param moveCount number of pieces on the board.
+     *
+     * @return number of moves until the winning piece is dropped, or until the
+     * board is full for a draw.
+     */
+    public static int movesToEnd(int score, int moveCount) {
+        if (score > 0) return 2 * ((CELLS + 1 - moveCount) / 2 - score) + 1;
+        if (score < 0) return 2 * ((CELLS - moveCount) / 2 + score) + 2;
+        return CELLS - moveCount;
+    }
+
+    /**
+     * private helper method that finds the score of a position by narrowing
+     * the range of possible scores with null window searches, each of which
+     * only tells whether the score is above or below a value.
+     *
+     * @param current bitboard of the pieces of the player to move.
+     * @param mask bitboard of all pieces.
+     * @param moves number of pieces on the board.
+     * @param weak true to only tell a win, draw or loss apart.
+     *
+     * @return the score of the position.
+     */
+    private int solve(long current, long mask, int moves, boolean weak) {
+        if (canWinNext(current, mask)) return weak ? 1 : (CELLS + 1 - moves) / 2;
+        if (moves == CELLS) return 0;
+
+        int min = weak ? -1 : -(CELLS - moves) / 2;
+        int max = weak ? 1 : (CELLS + 1 - moves) / 2;
+        while (min < max) {
+            int med = min + (max - min) / 2;
+            // search closer to 0 first, where the result usually is
+            if (med <= 0 && min / 2 < med) med = min / 2;
+            else if (med >= 0 && max / 2 > med) med = max / 2;
+            int result = negamax(current, mask, moves, med, med + 1);
+            if (result <= med) max = result;
+            else min = result;
+        }
+        // a weak search can fail high past 1, only its sign is meaningful
+        return weak ? Integer.signum(min) : min;
+    }
+
+    /**
+     * private helper method that scores a position with a negamax search,
+     * pruning branches that cannot change the result (alpha-beta). The player
+     * to move must not be able to win with its next move.
+     *
+     * @param current bitboard of the pieces of the player to move.
+     * @param mask bitboard of all pieces.
+     * @param moves number of pieces on the board.
+     * @param alpha score the player to move is already guaranteed.
+     * @param beta score the opponent is already guaranteed (upper bound).
+     *
+     * @return the exact score if it is between alpha and beta, otherwise a
+     * bound on the score on the same side of the window.
+     */
+    private int negamax(long current, long mask, int moves, int alpha, int beta) {
+        this.nodeCount++;
+
+        long next = nonLosingMoves(current, mask);
+        if (next == 0) return -(CELLS - moves) / 2;   // every move lets the opponent win
+        if (moves >= CELLS - 2) return 0;              // the game ends in a draw
+
+        int min = -(CELLS - 2 - moves) / 2;            // the opponent cannot win on its next move
+        if (alpha < min) {
+            alpha = min;
+            if (alpha >= beta) return alpha;
+        }
+
+        long key = key(current, mask);
+        int max = (CELLS - 1 - moves) / 2;             // the player cannot win on its next move
+        long entry = this.table.probe(key);
+        if (entry != 0) max = TranspositionTable.score(entry);
+        if (beta > max) {
+            beta = max;
+            if (alpha >= beta) return beta;
+        }
+
+        int[] cols = this.moveBuffers[moves];
+        int[] scores = this.moveScores[moves];
+        int count = 0;
+        for (int col : Connect4ComputerPlayer.MOVE_ORDER) {
+            long move = next & columnMask(col);
+            if (move == 0) continue;
+            int score = Long.bitCount(Connect4Logic.winningCells(current | move, mask));
+            // insertion sort, keeping center first among equal scores
+            int i = count++;
+            for (; i > 0 && scores[i - 1] < score; i--) {
+                cols[i] = cols[i - 1];
+                scores[i] = scores[i - 1];
+            }
+            cols[i] = col;
+            scores[i] = score;
+        }
+
+        for (int i = 0; i < count; i++) {
+            long move = next & columnMask(cols[i]);
+            // the opponent's pieces become the pieces of the player to move
+            int score = -negamax(current ^ mask, mask | move, moves + 1, -beta, -alpha);
+            if (score >= beta) return score;
+            if (score > alpha) alpha = score;
+        }
+
+        this.table.store(key, alpha, 0, TranspositionTable.UPPER_BOUND, -1);
+        return alpha;
+    }
+
+    /**
+     * private helper method that finds the moves that do not let the opponent
+     * win on its next move. If the opponent threatens to win somewhere the
+     * player has to block it, and if it threatens to win in two places every
+     * move loses.
+     *
+     * @param current bitboard of the pieces of the player to move.
+     * @param mask bitboard of all pieces.
+     *
+     * @return bitboard of the cells the player can safely play, 0 if none.
+     */
+    private static long nonLosingMoves(long current, long mask) {
+        long possible = (mask + Connect4Logic.BOTTOM_ROW) & Connect4Logic.FULL_BOARD;
+        long opponentWins = Connect4Logic.winningCells(current ^ mask, mask);
+        long forced = possible & opponentWins;
+        if (forced != 0) {
+            if ((forced & (forced - 1)) != 0) return 0;
+            possible = forced;
+        }
+        // do not play right below a cell the opponent would win with
+        return possible & ~(opponentWins >> 1);
+    }
+
+    /**
+     * private helper method that checks if the player to move can win with its
+     * next move.
+     *
+     * @param current bitboard of the pieces of the player to move.
+     * @param mask bitboard of all pieces.
+     *
+     * @return true if one of the playable cells completes a line of 4.
+     */
+    private static boolean canWinNext(long current, long mask) {
+        long possible = (mask + Connect4Logic.BOTTOM_ROW) & Connect4Logic.FULL_BOARD;
+        return (Connect4Logic.winningCells(current, mask) & possible) != 0;
+    }
+
+    /**
+     * private helper method that returns a bitboard of the playable cells of a
+     * column.
+     *
+     * @param col column index (0-6).
+     *
+     * @return bitboard of the column.
+     */
+    private static long columnMask(int col) {
+        return ((1L << Connect4Logic.ROWS) - 1) << (col * Connect4Logic.COLUMN_BITS);
+    }
+
+    /**
+     * private helper method that calculates the table key of a position. A
+     * position and its mirror image have the same score, so they share the
+     * canonical key (see Connect4Symmetry). The key is scrambled (by an odd
+     * multiplier, so it stays unique) so its low bits, which pick the table
+     * slot, are well mixed.
+     *
+     * @param current bitboard of the pieces of the player to move.
+     * @param mask bitboard of all pieces.
+     *
+     * @return key of the position.
+     */
+    private static long key(long current, long mask) {
+        return Connect4Symmetry.canonicalKey(Connect4Logic.positionKey(current, mask)) * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Returns the number of positions visited since the counter was reset.
+     *
+     * @return node count.
+     */
+    public long getNodeCount() {
+        return this.nodeCount;
+    }
+
+    /**
+     * Resets the node counter.
+     */
+    public void resetNodeCount() {
+        this.nodeCount = 0;
+    }
+
+    /**
+     * Empties the transposition table.
+     */
+    public void reset() {
+        this.table.clear();
+        this.nodeCount = 0;
+    }
+}
@@ -0,0 +1,94 @@
+package core;
+
+/**
+ * Maps Connect4 positions to a canonical form under the board's left-right
+ * mirror symmetry. A position and its mirror image have the same value, and
+ * the best move of one is the mirrored best move of the other, so tables that
+ * are keyed by the canonical key only have to store one of the two.
+ *
+ * The canonical key of a position is the smaller of its key and the key of
+ * its mirror image. If the mirror image's key was picked the position is
+ * "mirrored": moves read from or written to a table under the canonical key
+ * have to be mirrored with mirrorColumn.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public final class Connect4Symmetry {
+
+    /**
+     * Bits of one column of a bitboard or key.
+     */
+    private static final long COLUMN_MASK = (1L << Connect4Logic.COLUMN_BITS) - 1;
+
+    /**
+     * private constructor, the class only has static methods.
+     */
+    private Connect4Symmetry() {
+    }
+
+    /**
+     * Mirrors a bitboard or position key left to right, swapping column 0
+     * with column 6, column 1 with column 5 and column 2 with column 4.
+     *
+     * @param bitboard bitboard or key to mirror.
+     *
+     * @return the mirrored bitboard.
+     */
+    public static long mirror(long bitboard) {
+        long mirrored = 0L;
+        for (int col = 0; col < Connect4Logic.COLUMNS; col++) {
+            long bits = (bitboard >>> (col * Connect4Logic.COLUMN_BITS)) & COLUMN_MASK;
+            mirrored |= bits << ((Connect4Logic.COLUMNS - 1 - col) * Connect4Logic.COLUMN_BITS);
+        }
+        return mirrored;
+    }
+
+    /**
+     * Returns the canonical key of a position, shared by the position and its
+     * mirror image.
+     *
+     * @param positionKey key from Connect4Logic.getPositionKey.
+     *
+     * @return the smaller of the key and the key of the mirror image.
+     */
+    public static long canonicalKey(long positionKey) {
+        return Math.min(positionKey, mirror(positionKey));
+    }
+
+    /**
+     * Checks if the canonical key of a position is the key of its mirror
+     * image, in which case moves have to be mirrored.
+     *
+     * @param positionKey key from Connect4Logic.getPositionKey.
+     *
+     * @return true if the position is stored as its mirror image.
+     */
+    public static boolean isMirrored(long positionKey) {
+        return mirror(positionKey) < positionKey;
+    }
+
+    /**
+     * Returns the canonical Zobrist hash of a position, shared by the
+     * position and its mirror image.
+     *
+     * @param game position to hash.
+     *
+     * @return the smaller of the position's hash and its mirrored hash.
+     */
+    public static long canonicalHash(Connect4Logic game) {
+        return Math.min(game.getHash(), game.getMirroredHash());
+    }
+
+    /**
+     * Mirrors a column index, or leaves -1 (no move) as it is.
+     *
+     * @param col column index (0-6) or -1.
+     *
+     * @return the mirrored column index, or -1.
+     */
+    static int mirrorColumn(int col) {
+        return col < 0 ? col : Connect4Logic.COLUMNS - 1 - col;
+    }
+}
@@ -0,0 +1,262 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results for Connect4 positions, keyed by
+ * the Zobrist hash from Connect4Logic.getHash. Lets a search answer a
+ * position it already scored through a different move order in O(1).
+ *
+ * The table is stored in two primitive arrays, one with the full 64-bit keys
+ * and one with the entries packed into a long (score, remaining depth, bound
+ * type, best move and the search generation that stored it), so there is no
+ * object per entry. The size is a power of two so the slot of a key is just
+ * its low bits.
+ *
+ * One table can be shared by several search threads without locking. Each
+ * slot stores the key XORed with the entry, so a slot that was written by two
+ * threads at once (one thread's key with the other's entry) does not match
+ * either key and is treated as empty. The hit, miss and collision counters
+ * are not synchronized and are only approximate while the table is shared.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class TranspositionTable {
+
+    /**
+     * Bound type of an entry whose score is exact.
+     */
+    public static final int EXACT = 1;
+
+    /**
+     * Bound type of an entry whose score is a lower bound (the search failed
+     * high, the real score is at least this).
+     */
+    public static final int LOWER_BOUND = 2;
+
+    /**
+     * Bound type of an entry whose score is an upper bound (the search failed
+     * low, the real score is at most this).
+     */
+    public static final int UPPER_BOUND = 3;
+
+    /**
+     * Number of slots used when none is given (2^20).
+     */
+    public static final int DEFAULT_SIZE = 1 << 20;
+
+    /**
+     * Full Zobrist key of the position stored in each slot, XORed with the
+     * entry of the slot.
+     */
+    private final long[] keys;
+
+    /**
+     * Packed entry stored in each slot, 0 if the slot is empty.
+     */
+    private final long[] entries;
+
+    /**
+     * Mask selecting the slot bits of a key.
+     */
+    private final int mask;
+
+    /**
+     * Generation of the current search, stored with each entry so entries
+     * left over from earlier searches can be replaced first.
+     */
+    private volatile int generation;
+
+    /**
+     * Number of probes that found the position.
+     */
+    private long hits;
+
+    /**
+     * Number of probes that did not find the position.
+     */
+    private long misses;
+
+    /**
+     * Number of probes that found their slot used by a different position
+     * (these are also counted as misses).
+     */
+    private long collisions;
+
+    /**
+     * Constructs a table with DEFAULT_SIZE slots.
+     */
+    public TranspositionTable() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructs a table with the given number of slots, rounded up to the
+     * next power of two. Each slot takes 16 bytes.
+     *
+     * @param size minimum number of slots.
+     */
+    public TranspositionTable(int size) {
+        if (size < 1 || size > (1 << 30)) throw new IllegalArgumentException("size out of range: " + size);
+        int slots = Integer.highestOneBit(size);
+        if (slots < size) slots <<= 1;
+        this.keys = new long[slots];
+        this.entries = new long[slots];
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key Zobrist hash of the position.
+     *
+     * @return the packed entry (read it with score, depth, bound and move) or 0
+     * if the position is not in the table.
+     */
+    public long probe(long key) {
+        int slot = (int) key & this.mask;
+        long entry = this.entries[slot];
+        if (entry != 0 && (this.keys[slot] ^ entry) == key) {
+            this.hits++;
+            return entry;
+        }
+        this.misses++;
+        if (entry != 0) this.collisions++;
+        return 0;
+    }
+
+    /**
+     * Stores the result of searching a position. A slot holding a different
+     * position is only replaced if the new result was searched at least as
+     * deep or the old one is from an earlier search, so deep results survive
+     * the many shallow ones written near the leaves.
+     *
+     * @param key Zobrist hash of the position.
+     * @param score score of the position.
+     * @param depth remaining depth the position was searched to (0-255).
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND.
+     * @param move best column index (0-6) found, or -1 if none.
+     */
+    public void store(long key, int score, int depth, int bound, int move) {
+        int slot = (int) key & this.mask;
+        long old = this.entries[slot];
+        if (old != 0 && (this.keys[slot] ^ old) != key
+                && depth(old) > depth && generation(old) == this.generation) {
+            return;
+        }
+        long entry = (score & 0xFFFFFFFFL)
+                | (long) (depth & 0xFF) << 32
+                | (long) bound << 40
+                | (long) (move + 1) << 42
+                | (long) this.generation << 46;
+        this.keys[slot] = key ^ entry;
+        this.entries[slot] = entry;
+    }
+
+    /**
+     * Starts a new search generation, making the entries of earlier searches
+     * the first to be replaced.
+     */
+    public void newSearch() {
+        this.generation = (this.generation + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(this.entries, 0L);
+        this.hits = 0;
+        this.misses = 0;
+        this.collisions = 0;
+    }
+
+    /**
+     * Returns the score of a packed entry.
+     *
+     * @param entry entry returned by probe.
+     * @return the stored score.
+     */
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Returns the remaining depth of a packed entry.
+     *
+     * @param entry entry returned by probe.
+     * @return the depth the position was searched to.
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    /**
+     * Returns the bound type of a packed entry.
+     *
+     * @param entry entry returned by probe.
+     * @return EXACT, LOWER_BOUND or UPPER_BOUND.
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /**
+     * Returns the best move of a packed entry.
+     *
+     * @param entry entry returned by probe.
+     * @return column index (0-6) of the best move, or -1 if none was stored.
+     */
+    public static int move(long entry) {
+        return ((int) (entry >>> 42) & 0xF) - 1;
+    }
+
+    /**
+     * private helper method that returns the search generation of a packed
+     * entry.
+     *
+     * @param entry packed entry.
+     * @return generation that stored the entry.
+     */
+    private static int generation(long entry) {
+        return (int) (entry >>> 46) & 0xFF;
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return capacity of the table.
+     */
+    public int size() {
+        return this.keys.length;
+    }
+
+    /**
+     * Returns the number of probes that found the position.
+     *
+     * @return hit count.
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of probes that did not find the position.
+     *
+     * @return miss count.
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns the number of probes whose slot held a different position.
+     *
+     * @return collision count.
+     */
+    public long getCollisions() {
+        return this.collisions;
+    }
+}
@@ -0,0 +1,392 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+import core.Connect4Logic;
+import sim.LatencyHistogram;
+
+/**
+ * Load generator for Connect4Server. Opens many sessions from one thread
+ * with non-blocking sockets, and every session plays games back to back
+ * with random legal moves, sending the next command as soon as the reply to
+ * the last one arrives. Each session keeps its own copy of the game to pick
+ * legal moves and to check the server's replies. At the end it reports how
+ * many sessions were connected and still healthy, the move rate and the
+ * round trip time of MOVE commands.
+ *
+ * Usage: java server.Connect4LoadClient [host] [port] [sessions] [seconds]
+ * [depth]
+ *
+ * A depth above 0 makes the server's computer player answer every move; 0
+ * has the client make the moves of both players.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Connect4LoadClient {
+
+    /**
+     * Number of sessions opened when none is given.
+     */
+    private static final int DEFAULT_SESSIONS = 1000;
+
+    /**
+     * Length of the run in seconds when none is given.
+     */
+    private static final int DEFAULT_SECONDS = 10;
+
+    /**
+     * Search depth of the server's computer player when none is given.
+     */
+    private static final int DEFAULT_DEPTH = 2;
+
+    /**
+     * Host the server runs on.
+     */
+    private final String host;
+
+    /**
+     * Port the server listens on.
+     */
+    private final int port;
+
+    /**
+     * Search depth asked for in NEW commands.
+     */
+    private final int depth;
+
+    /**
+     * Round trip times of MOVE commands.
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Source of the random moves.
+     */
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    /**
+     * Number of sessions that connected.
+     */
+    private int connected;
+
+    /**
+     * Number of sessions that failed: could not connect, were closed, or got
+     * a reply that did not match the game.
+     */
+    private int failed;
+
+    /**
+     * Number of games finished.
+     */
+    private long games;
+
+    /**
+     * Number of moves made, by the client and the server's computer player.
+     */
+    private long moves;
+
+    /**
+     * Constructor for Connect4LoadClient.
+     *
+     * @param host host the server runs on.
+     * @param port port the server listens on.
+     * @param depth search depth of the server's computer player, 0 for none.
+     */
+    public Connect4LoadClient(String host, int port, int depth) {
+        this.host = host;
+        this.port = port;
+        this.depth = depth;
+    }
+
+    /**
+     * One session of the client.
+     */
+    private static final class Session {
+
+        /**
+         * The client's copy of the game.
+         */
+        final Connect4Logic game = new Connect4Logic();
+
+        /**
+         * Reply bytes read but not yet handled.
+         */
+        final ByteBuffer in = ByteBuffer.allocate(Connect4Server.MAX_LINE);
+
+        /**
+         * Command waiting to be written, in read mode.
+         */
+        final ByteBuffer out = ByteBuffer.allocate(Connect4Server.MAX_LINE);
+
+        /**
+         * Column of the MOVE command waiting for its reply, or 0 if the
+         * command was NEW.
+         */
+        int column;
+
+        /**
+         * Time the last command was sent.
+         */
+        long sentAt;
+    }
+
+    /**
+     * Opens the sessions and runs them for a while.
+     *
+     * @param sessions number of sessions to open.
+     * @param seconds how long to run after all sessions were opened.
+     *
+     * @throws IOException if the selector cannot be opened.
+     */
+    public void run(int sessions, int seconds) throws IOException {
+        try (Selector selector = Selector.open()) {
+            InetSocketAddress address = new InetSocketAddress(this.host, this.port);
+            for (int i = 0; i < sessions; i++) {
+                try {
+                    SocketChannel channel = SocketChannel.open();
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    channel.connect(address);
+                    channel.register(selector, SelectionKey.OP_CONNECT, new Session());
+                }
+                catch (IOException e) {
+                    this.failed++;
+                }
+            }
+
+            long end = System.nanoTime() + seconds * 1000000000L;
+            long start = System.nanoTime();
+            for (long now = start; now < end; now = System.nanoTime()) {
+                selector.select(Math.max(1, (end - now) / 1000000));
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isValid() && key.isConnectable()) connect(key);
+                        if (key.isValid() && key.isWritable()) write(key);
+                        if (key.isValid() && key.isReadable()) read(key);
+                    }
+                    catch (IOException | IllegalStateException e) {
+                        fail(key);
+                    }
+                }
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            int open = 0;
+            for (SelectionKey key : selector.keys()) {
+                if (key.isValid() && key.channel().isOpen()) open++;
+                key.channel().close();
+            }
+            report(sessions, open, elapsed);
+        }
+    }
+
+    /**
+     * private helper method that finishes connecting a session and starts
+     * its first game.
+     *
+     * @param key key of the session.
+     *
+     * @throws IOException if the connection failed.
+     */
+    private void connect(SelectionKey key) throws IOException {
+        ((SocketChannel) key.channel()).finishConnect();
+        this.connected++;
+        startGame(key, (Session) key.attachment());
+    }
+
+    /**
+     * private helper method that reads replies and answers each with the
+     * session's next command.
+     *
+     * @param key key of the session.
+     *
+     * @throws IOException if the connection failed.
+     */
+    private void read(SelectionKey key) throws IOException {
+        Session session = (Session) key.attachment();
+        if (((SocketChannel) key.channel()).read(session.in) < 0) {
+            throw new IOException("closed by server");
+        }
+        ByteBuffer in = session.in;
+        in.flip();
+        int start = in.position();
+        for (int i = start; i < in.limit(); i++) {
+            if (in.get(i) != '\n') continue;
+            String reply = new String(in.array(), start, i - start, StandardCharsets.US_ASCII);
+            start = i + 1;
+            handle(key, session, reply);
+        }
+        in.position(start);
+        in.compact();
+    }
+
+    /**
+     * private helper method that writes the rest of a session's command.
+     *
+     * @param key key of the session.
+     *
+     * @throws IOException if the connection failed.
+     */
+    private void write(SelectionKey key) throws IOException {
+        Session session = (Session) key.attachment();
+        ((SocketChannel) key.channel()).write(session.out);
+        if (!session.out.hasRemaining()) key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * private helper method that checks a reply against the session's copy
+     * of the game and sends the next command.
+     *
+     * @param key key of the session.
+     * @param session the session.
+     * @param reply the reply line, without the line end.
+     *
+     * @throws IOException if the connection failed.
+     */
+    private void handle(SelectionKey key, Session session, String reply) throws IOException {
+        if (session.column == 0) {
+            if (!reply.equals("OK")) throw new IllegalStateException("unexpected reply to NEW: " + reply);
+            sendMove(key, session);
+            return;
+        }
+
+        this.latency.record(System.nanoTime() - session.sentAt);
+        Connect4Logic game = session.game;
+        game.makeMove(session.column);
+        this.moves++;
+        int space = reply.indexOf(' ', reply.startsWith("WIN") ? 4 : 0);
+        if (space > 0) {
+            game.makeMove(reply.charAt(space + 1) - '0');
+            this.moves++;
+        }
+
+        boolean over = game.checkLastMoveForWin() != 0
+                || game.getMoveCount() == Connect4Logic.ROWS * Connect4Logic.COLUMNS;
+        if (over != (reply.startsWith("WIN") || reply.startsWith("DRAW"))
+                || !(over || reply.startsWith("OK"))) {
+            throw new IllegalStateException("unexpected reply to MOVE: " + reply);
+        }
+        if (over) {
+            this.games++;
+            startGame(key, session);
+        }
+        else {
+            sendMove(key, session);
+        }
+    }
+
+    /**
+     * private helper method that starts a new game in a session.
+     *
+     * @param key key of the session.
+     * @param session the session.
+     *
+     * @throws IOException if the connection failed.
+     */
+    private void startGame(SelectionKey key, Session session) throws IOException {
+        session.game.resetBoard();
+        session.column = 0;
+        send(key, session, this.depth == 0 ? "NEW\n" : "NEW " + this.depth + "\n");
+    }
+
+    /**
+     * private helper method that sends a random legal move.
+     *
+     * @param key key of the session.
+     * @param session the session.
+     *
+     * @throws IOException if the connection failed.
+     */
+    private void sendMove(SelectionKey key, Session session) throws IOException {
+        int col;
+        do {
+            col = this.random.nextInt(Connect4Logic.COLUMNS) + 1;
+        } while (session.game.checkMoveValidity(col) < 0);
+        session.column = col;
+        send(key, session, "MOVE " + col + "\n");
+    }
+
+    /**
+     * private helper method that sends a command, watching the connection
+     * for writing if it could not all be written at once.
+     *
+     * @param key key of the session.
+     * @param session the session.
+     * @param command the command line.
+     *
+     * @throws IOException if the connection failed.
+     */
+    private void send(SelectionKey key, Session session, String command) throws IOException {
+        session.out.clear();
+        session.out.put(command.getBytes(StandardCharsets.US_ASCII));
+        session.out.flip();
+        session.sentAt = System.nanoTime();
+        ((SocketChannel) key.channel()).write(session.out);
+        key.interestOps(session.out.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    /**
+     * private helper method that counts a failed session and closes it.
+     *
+     * @param key key of the session.
+     */
+    private void fail(SelectionKey key) {
+        this.failed++;
+        key.cancel();
+        try {
+            key.channel().close();
+        }
+        catch (IOException e) {
+            // closing anyway
+        }
+    }
+
+    /**
+     * private helper method that prints the results of a run.
+     *
+     * @param sessions number of sessions asked for.
+     * @param open number of sessions still open at the end.
+     * @param seconds length of the run.
+     */
+    private void report(int sessions, int open, double seconds) {
+        System.out.printf("%d sessions asked for, %d connected, %d sustained, %d failed%n", sessions,
+                this.connected, open, this.failed);
+        System.out.printf("%d games, %d moves in %.1f s: %.0f moves/s, %.0f games/s%n", this.games, this.moves,
+                seconds, this.moves / seconds, this.games / seconds);
+        System.out.printf("MOVE round trip (us): mean %.1f, p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                this.latency.getMean() / 1e3, this.latency.getPercentile(0.5) / 1e3,
+                this.latency.getPercentile(0.9) / 1e3, this.latency.getPercentile(0.99) / 1e3,
+                this.latency.getMax() / 1e3);
+    }
+
+    /**
+     * Runs the load generator against a server.
+     *
+     * @param args optional host, port, number of sessions, seconds to run
+     * and search depth of the server's computer player.
+     *
+     * @throws IOException if the selector cannot be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : Connect4Server.DEFAULT_PORT;
+        int sessions = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SESSIONS;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_SECONDS;
+        int depth = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_DEPTH;
+        new Connect4LoadClient(host, port, depth).run(sessions, seconds);
+    }
+}
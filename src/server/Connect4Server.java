@@ -0,0 +1,807 @@
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import core.Connect4ComputerPlayer;
+import core.Connect4Logic;
+import core.TranspositionTable;
+
+/**
+ * Hosts many Connect4 games at once over non-blocking sockets. Every
+ * connection is a session that owns one Connect4Logic. Connections are
+ * spread over a small pool of event loops, each a single thread with its own
+ * selector that reads commands, runs the game logic and writes replies for
+ * all of its sessions, so there is no thread per connection.
+ *
+ * The computer player's searches run on a separate, fixed pool of search
+ * threads, so a deep search never holds up the other sessions of a loop.
+ * While its search runs a session is not read from and its game is only
+ * touched by the search thread; the search thread hands the session back to
+ * its loop through a queue and wakes the selector, and the loop plays the
+ * answer and writes the reply. Each session has at most one search queued or
+ * running, so the search queue never holds more than one task per session.
+ *
+ * The protocol is ASCII lines ending in '\n'; every command gets exactly one
+ * reply line:
+ *
+ * NEW [depth]: starts a new game. The client is player X and moves first.
+ * With a depth of 1 to MAX_DEPTH the computer plays O, searching that many
+ * moves ahead; with no depth (or 0) the client makes the moves of both
+ * players. Reply: OK.
+ *
+ * MOVE col: drops a piece in column 1-7 for the player whose turn it is.
+ * Reply: OK (game goes on), OK c (the computer answered in column c), WIN X,
+ * WIN O, WIN O c (the computer won in column c), DRAW or DRAW c.
+ *
+ * BOARD: reply BOARD followed by the 42 spaces of the board, top row first,
+ * each X, O or '.'.
+ *
+ * QUIT: reply BYE and close the connection.
+ *
+ * Errors are answered with ERR and a reason.
+ *
+ * Usage: java server.Connect4Server [port] [event loops] [search threads]
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Connect4Server implements Closeable {
+
+    /**
+     * Port listened on when none is given.
+     */
+    public static final int DEFAULT_PORT = 4444;
+
+    /**
+     * Deepest search a session may ask the computer player for.
+     */
+    public static final int MAX_DEPTH = 8;
+
+    /**
+     * Longest command line accepted, including the '\n'.
+     */
+    static final int MAX_LINE = 64;
+
+    /**
+     * Size of a session's reply buffer. Commands are only read while at
+     * least MAX_REPLY bytes are free in it, so a client that does not read
+     * its replies stops being read from instead of using more memory.
+     */
+    private static final int OUT_BUFFER = 512;
+
+    /**
+     * Longest reply line.
+     */
+    private static final int MAX_REPLY = 64;
+
+    /**
+     * Connections waiting to be accepted.
+     */
+    private static final int BACKLOG = 4096;
+
+    /**
+     * Slots of the transposition table of each computer player.
+     */
+    private static final int TABLE_SIZE = 1 << 18;
+
+    // commands and replies of the protocol
+    private static final byte[] NEW = ascii("NEW");
+    private static final byte[] MOVE = ascii("MOVE");
+    private static final byte[] BOARD = ascii("BOARD");
+    private static final byte[] QUIT = ascii("QUIT");
+    private static final byte[] OK = ascii("OK");
+    private static final byte[] WIN_X = ascii("WIN X");
+    private static final byte[] WIN_O = ascii("WIN O");
+    private static final byte[] DRAW = ascii("DRAW");
+    private static final byte[] BYE = ascii("BYE");
+    private static final byte[] ERR_COMMAND = ascii("ERR unknown command");
+    private static final byte[] ERR_NO_GAME = ascii("ERR no game");
+    private static final byte[] ERR_GAME_OVER = ascii("ERR game over");
+    private static final byte[] ERR_COLUMN = ascii("ERR invalid column");
+    private static final byte[] ERR_DEPTH = ascii("ERR invalid depth");
+    private static final byte[] ERR_LINE = ascii("ERR line too long");
+
+    /**
+     * The listening socket.
+     */
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * The event loops connections are spread over.
+     */
+    private final EventLoop[] loops;
+
+    /**
+     * Threads running the computer player's searches.
+     */
+    private final ExecutorService searchPool;
+
+    /**
+     * Computer players of each search thread by search depth, created when
+     * first needed and shared by the sessions the thread searches for.
+     */
+    private final ThreadLocal<Connect4ComputerPlayer[]> players =
+            ThreadLocal.withInitial(() -> new Connect4ComputerPlayer[MAX_DEPTH + 1]);
+
+    /**
+     * Thread accepting connections.
+     */
+    private Thread acceptor;
+
+    /**
+     * True until the server is closed.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Number of open sessions.
+     */
+    private final AtomicInteger sessions = new AtomicInteger();
+
+    /**
+     * Number of sessions opened since the server started.
+     */
+    private final AtomicLong sessionsOpened = new AtomicLong();
+
+    /**
+     * Number of moves made by clients and the computer player.
+     */
+    private final AtomicLong moves = new AtomicLong();
+
+    /**
+     * Number of games that ended in a win or a draw.
+     */
+    private final AtomicLong games = new AtomicLong();
+
+    /**
+     * Constructor for Connect4Server with one search thread per processor.
+     * Binds the port; call start to begin serving.
+     *
+     * @param port port to listen on, 0 for any free port.
+     * @param loops number of event loop threads (at least 1).
+     *
+     * @throws IOException if the port cannot be bound.
+     */
+    public Connect4Server(int port, int loops) throws IOException {
+        this(port, loops, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for Connect4Server. Binds the port; call start to begin
+     * serving.
+     *
+     * @param port port to listen on, 0 for any free port.
+     * @param loops number of event loop threads (at least 1).
+     * @param searchThreads number of threads running the computer player's
+     * searches (at least 1).
+     *
+     * @throws IOException if the port cannot be bound.
+     */
+    public Connect4Server(int port, int loops, int searchThreads) throws IOException {
+        if (loops < 1) throw new IllegalArgumentException("loops must be at least 1: " + loops);
+        if (searchThreads < 1) {
+            throw new IllegalArgumentException("search threads must be at least 1: " + searchThreads);
+        }
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        this.serverChannel.bind(new InetSocketAddress(port), BACKLOG);
+        this.loops = new EventLoop[loops];
+        for (int i = 0; i < loops; i++) this.loops[i] = new EventLoop(Selector.open());
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.searchPool = new ThreadPoolExecutor(searchThreads, searchThreads, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "connect4-search-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Starts the event loops and the thread accepting connections.
+     */
+    public void start() {
+        for (int i = 0; i < this.loops.length; i++) {
+            Thread thread = new Thread(this.loops[i], "connect4-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        this.acceptor = new Thread(this::accept, "connect4-accept");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return port number.
+     */
+    public int getPort() {
+        return this.serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the number of open sessions.
+     *
+     * @return session count.
+     */
+    public int getSessions() {
+        return this.sessions.get();
+    }
+
+    /**
+     * Returns the number of sessions opened since the server started.
+     *
+     * @return session count.
+     */
+    public long getSessionsOpened() {
+        return this.sessionsOpened.get();
+    }
+
+    /**
+     * Returns the number of moves made in all sessions.
+     *
+     * @return move count.
+     */
+    public long getMoves() {
+        return this.moves.get();
+    }
+
+    /**
+     * Returns the number of games that ended in a win or a draw.
+     *
+     * @return game count.
+     */
+    public long getGames() {
+        return this.games.get();
+    }
+
+    /**
+     * Stops accepting connections and closes all sessions.
+     */
+    @Override
+    public void close() {
+        this.running = false;
+        try {
+            this.serverChannel.close();
+        }
+        catch (IOException e) {
+            // closing anyway
+        }
+        this.searchPool.shutdownNow();
+        for (EventLoop loop : this.loops) loop.selector.wakeup();
+    }
+
+    /**
+     * private helper method run by the acceptor thread: hands every new
+     * connection to the next event loop in turn.
+     */
+    private void accept() {
+        int next = 0;
+        while (this.running) {
+            try {
+                SocketChannel channel = this.serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                this.loops[next].add(channel);
+                next = (next + 1) % this.loops.length;
+            }
+            catch (ClosedChannelException e) {
+                return;
+            }
+            catch (IOException e) {
+                if (!this.running) return;
+                System.err.println("accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One game connection: its game and its buffers.
+     */
+    private static final class Session {
+
+        /**
+         * The session's game.
+         */
+        final Connect4Logic game = new Connect4Logic();
+
+        /**
+         * Command bytes read but not yet handled.
+         */
+        final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+
+        /**
+         * Reply bytes not yet written, in write mode.
+         */
+        final ByteBuffer out = ByteBuffer.allocate(OUT_BUFFER);
+
+        /**
+         * Search depth of the computer player, 0 if the client plays both
+         * sides.
+         */
+        int depth;
+
+        /**
+         * True while a game is being played.
+         */
+        boolean playing;
+
+        /**
+         * True while the computer player searches for this session's move.
+         */
+        boolean searching;
+
+        /**
+         * Column (1-7) found by the last search.
+         */
+        int answer;
+
+        /**
+         * True once the connection should be closed after the replies are
+         * written.
+         */
+        boolean closing;
+    }
+
+    /**
+     * A thread serving a share of the sessions with one selector.
+     */
+    private final class EventLoop implements Runnable {
+
+        /**
+         * Selector of the loop's connections.
+         */
+        final Selector selector;
+
+        /**
+         * Connections accepted but not yet registered with the selector.
+         */
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Connections whose search finished, to be answered by the loop.
+         */
+        private final Queue<SelectionKey> searched = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Constructor for EventLoop.
+         *
+         * @param selector selector of the loop.
+         */
+        EventLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        /**
+         * Hands a new connection to the loop.
+         *
+         * @param channel the connection, in non-blocking mode.
+         */
+        void add(SocketChannel channel) {
+            this.pending.add(channel);
+            this.selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    this.selector.select();
+                    registerPending();
+                    answerSearched();
+                    Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        try {
+                            if (key.isValid() && key.isWritable()) write(key);
+                            if (key.isValid() && key.isReadable()) read(key);
+                        }
+                        catch (IOException e) {
+                            closeSession(key);
+                        }
+                    }
+                }
+            }
+            catch (IOException e) {
+                System.err.println("event loop failed: " + e.getMessage());
+            }
+            finally {
+                for (SelectionKey key : this.selector.keys()) closeSession(key);
+                try {
+                    this.selector.close();
+                }
+                catch (IOException e) {
+                    // closing anyway
+                }
+            }
+        }
+
+        /**
+         * private helper method that registers the connections handed to
+         * the loop since the last select.
+         *
+         * @throws IOException if a connection cannot be registered.
+         */
+        private void registerPending() throws IOException {
+            SocketChannel channel;
+            while ((channel = this.pending.poll()) != null) {
+                channel.register(this.selector, SelectionKey.OP_READ, new Session());
+                sessions.incrementAndGet();
+                sessionsOpened.incrementAndGet();
+            }
+        }
+
+        /**
+         * private helper method that plays the computer player's answers of
+         * the searches finished since the last select, writes their replies
+         * and handles the commands the sessions sent meanwhile.
+         */
+        private void answerSearched() {
+            SelectionKey key;
+            while ((key = this.searched.poll()) != null) {
+                Session session = (Session) key.attachment();
+                if (session == null) continue;
+                session.searching = false;
+                Connect4Logic game = session.game;
+                game.makeMove(session.answer);
+                moves.incrementAndGet();
+                if (!endsGame(session, session.out, session.answer)) {
+                    session.out.put(OK).put((byte) ' ').put((byte) ('0' + session.answer)).put((byte) '\n');
+                }
+                try {
+                    handleLines(key, session);
+                }
+                catch (IOException e) {
+                    closeSession(key);
+                }
+            }
+        }
+
+        /**
+         * private helper method that reads from a readable connection and
+         * handles every complete command line.
+         *
+         * @param key key of the connection.
+         *
+         * @throws IOException if the connection failed.
+         */
+        private void read(SelectionKey key) throws IOException {
+            Session session = (Session) key.attachment();
+            if (((SocketChannel) key.channel()).read(session.in) < 0) {
+                closeSession(key);
+                return;
+            }
+            handleLines(key, session);
+        }
+
+        /**
+         * private helper method that writes pending replies to a writable
+         * connection, then handles any commands that were held back while
+         * the reply buffer was full.
+         *
+         * @param key key of the connection.
+         *
+         * @throws IOException if the connection failed.
+         */
+        private void write(SelectionKey key) throws IOException {
+            Session session = (Session) key.attachment();
+            flush(key, session);
+            if (session.out.position() == 0 && key.isValid()) handleLines(key, session);
+        }
+
+        /**
+         * private helper method that handles the complete lines in a
+         * session's input buffer, as long as there is room for the replies,
+         * and writes the replies.
+         *
+         * @param key key of the connection.
+         * @param session the connection's session.
+         *
+         * @throws IOException if the connection failed.
+         */
+        private void handleLines(SelectionKey key, Session session) throws IOException {
+            ByteBuffer in = session.in;
+            in.flip();
+            int start = in.position();
+            for (int i = start; i < in.limit() && !session.closing && !session.searching; i++) {
+                if (in.get(i) != '\n') continue;
+                if (session.out.remaining() < MAX_REPLY) break;
+                int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+                handle(key, session, in, start, end);
+                start = i + 1;
+            }
+            in.position(start);
+            in.compact();
+            if (!in.hasRemaining() && !session.searching && session.out.remaining() >= MAX_REPLY) {
+                // a full buffer without a line end can never become a command
+                reply(session.out, ERR_LINE);
+                session.closing = true;
+            }
+            flush(key, session);
+        }
+
+        /**
+         * private helper method that writes as much of a session's replies
+         * as the connection takes. The connection is watched for writing
+         * (and no longer for reading) until all replies are written, then
+         * for reading again, or closed if the session asked for it. A
+         * session waiting for a search is not watched for reading.
+         *
+         * @param key key of the connection.
+         * @param session the connection's session.
+         *
+         * @throws IOException if the connection failed.
+         */
+        private void flush(SelectionKey key, Session session) throws IOException {
+            ByteBuffer out = session.out;
+            out.flip();
+            ((SocketChannel) key.channel()).write(out);
+            out.compact();
+            if (out.position() > 0) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+            else if (session.closing) {
+                closeSession(key);
+            }
+            else {
+                key.interestOps(session.searching ? 0 : SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * private helper method that handles one command line and puts its
+         * reply in the session's reply buffer.
+         *
+         * @param key key of the session's connection.
+         * @param session the session the command is for.
+         * @param in buffer holding the line.
+         * @param start index of the first byte of the line.
+         * @param end index after the last byte of the line.
+         */
+        private void handle(SelectionKey key, Session session, ByteBuffer in, int start, int end) {
+            ByteBuffer out = session.out;
+            if (matches(in, start, end, MOVE)) {
+                move(key, session, parseNumber(in, start + MOVE.length, end));
+            }
+            else if (matches(in, start, end, NEW)) {
+                int depth = start + NEW.length == end ? 0 : parseNumber(in, start + NEW.length, end);
+                if (depth < 0 || depth > MAX_DEPTH) {
+                    reply(out, ERR_DEPTH);
+                    return;
+                }
+                session.game.resetBoard();
+                session.depth = depth;
+                session.playing = true;
+                reply(out, OK);
+            }
+            else if (matches(in, start, end, BOARD)) {
+                char[][] board = session.game.getBoardState();
+                out.put(BOARD).put((byte) ' ');
+                for (int row = 0; row < Connect4Logic.ROWS; row++) {
+                    for (int col = 0; col < Connect4Logic.COLUMNS; col++) {
+                        out.put(board[row][col] == 0 ? (byte) '.' : (byte) board[row][col]);
+                    }
+                }
+                out.put((byte) '\n');
+            }
+            else if (matches(in, start, end, QUIT)) {
+                reply(out, BYE);
+                session.closing = true;
+            }
+            else {
+                reply(out, ERR_COMMAND);
+            }
+        }
+
+        /**
+         * private helper method that makes a client's move and, if the
+         * session plays the computer and the game goes on, starts the search
+         * for the computer's answer. The reply is written when the search
+         * is done (see answerSearched).
+         *
+         * @param key key of the session's connection.
+         * @param session the session to move in.
+         * @param col column (1-7) of the client's move, or -1 if it was not a
+         * number.
+         */
+        private void move(SelectionKey key, Session session, int col) {
+            ByteBuffer out = session.out;
+            Connect4Logic game = session.game;
+            if (!session.playing) {
+                reply(out, game.getMoveCount() == 0 ? ERR_NO_GAME : ERR_GAME_OVER);
+                return;
+            }
+            if (game.makeMove(col) < 0) {
+                reply(out, ERR_COLUMN);
+                return;
+            }
+            moves.incrementAndGet();
+            if (endsGame(session, out, -1)) return;
+            if (session.depth == 0) {
+                reply(out, OK);
+                return;
+            }
+
+            session.searching = true;
+            try {
+                searchPool.execute(() -> search(key, session));
+            }
+            catch (RejectedExecutionException e) {
+                // the server is closing
+                session.searching = false;
+                session.closing = true;
+            }
+        }
+
+        /**
+         * private helper method run on a search thread: finds the computer
+         * player's answer for a session and hands the session back to the
+         * loop.
+         *
+         * @param key key of the session's connection.
+         * @param session the session, not touched by the loop until it is
+         * handed back.
+         */
+        private void search(SelectionKey key, Session session) {
+            Connect4ComputerPlayer[] threadPlayers = players.get();
+            Connect4ComputerPlayer player = threadPlayers[session.depth];
+            if (player == null) {
+                player = new Connect4ComputerPlayer(session.depth, new TranspositionTable(TABLE_SIZE));
+                threadPlayers[session.depth] = player;
+            }
+            session.answer = player.getColumn(session.game);
+            this.searched.add(key);
+            this.selector.wakeup();
+        }
+
+        /**
+         * private helper method that checks if the last move ended the game
+         * and if so writes the WIN or DRAW reply.
+         *
+         * @param session the session that was moved in.
+         * @param out reply buffer.
+         * @param col column of the computer's move to add to the reply, or
+         * -1 if the client made the last move.
+         *
+         * @return true if the game is over.
+         */
+        private boolean endsGame(Session session, ByteBuffer out, int col) {
+            Connect4Logic game = session.game;
+            int winner = game.checkLastMoveForWin();
+            if (winner != 0) out.put(winner == 1 ? WIN_X : WIN_O);
+            else if (game.getMoveCount() == Connect4Logic.ROWS * Connect4Logic.COLUMNS) out.put(DRAW);
+            else return false;
+            if (col > 0) out.put((byte) ' ').put((byte) ('0' + col));
+            out.put((byte) '\n');
+            session.playing = false;
+            games.incrementAndGet();
+            return true;
+        }
+
+        /**
+         * private helper method that closes a connection and forgets its
+         * session.
+         *
+         * @param key key of the connection.
+         */
+        private void closeSession(SelectionKey key) {
+            if (key.attachment() == null) return;
+            key.attach(null);
+            key.cancel();
+            sessions.decrementAndGet();
+            try {
+                key.channel().close();
+            }
+            catch (IOException e) {
+                // closing anyway
+            }
+        }
+    }
+
+    /**
+     * private helper method that adds a reply line to a reply buffer.
+     *
+     * @param out reply buffer.
+     * @param reply the reply, without the line end.
+     */
+    private static void reply(ByteBuffer out, byte[] reply) {
+        out.put(reply).put((byte) '\n');
+    }
+
+    /**
+     * private helper method that checks if a line is a command: the
+     * command's name followed by the end of the line or a space.
+     *
+     * @param in buffer holding the line.
+     * @param start index of the first byte of the line.
+     * @param end index after the last byte of the line.
+     * @param command name of the command.
+     *
+     * @return true if the line is the command.
+     */
+    private static boolean matches(ByteBuffer in, int start, int end, byte[] command) {
+        if (end - start < command.length) return false;
+        for (int i = 0; i < command.length; i++) {
+            if (in.get(start + i) != command[i]) return false;
+        }
+        return end - start == command.length || in.get(start + command.length) == ' ';
+    }
+
+    /**
+     * private helper method that reads a non-negative number after a space.
+     *
+     * @param in buffer holding the line.
+     * @param start index of the space before the number.
+     * @param end index after the last byte of the line.
+     *
+     * @return the number, or -1 if there is no number.
+     */
+    private static int parseNumber(ByteBuffer in, int start, int end) {
+        if (end - start < 2 || end - start > 5 || in.get(start) != ' ') return -1;
+        int number = 0;
+        for (int i = start + 1; i < end; i++) {
+            int digit = in.get(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+
+    /**
+     * private helper method that encodes a protocol word.
+     *
+     * @param text the word.
+     *
+     * @return its ASCII bytes.
+     */
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Runs the server until the process is stopped, printing the session
+     * and move counts every 10 seconds.
+     *
+     * @param args optional port, number of event loops and number of search
+     * threads.
+     *
+     * @throws IOException if the port cannot be bound.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int loops = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int searchThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Connect4Server server = new Connect4Server(port, loops, searchThreads);
+        server.start();
+        System.out.printf("Connect4 server listening on port %d with %d event loops and %d search threads%n",
+                server.getPort(), loops, searchThreads);
+        while (true) {
+            Thread.sleep(10000);
+            System.out.printf("%d sessions open, %d opened, %d games, %d moves%n", server.getSessions(),
+                    server.getSessionsOpened(), server.getGames(), server.getMoves());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sim.LatencyHistogram;
+
+/**
+ * Local load test of TicTacToeServer. Starts a server in this JVM on a free
+ * loopback port and runs two phases:
+ *
+ * Idle sessions: opens many connections that never send anything, so every
+ * session sits in the text console waiting for the player's first answer,
+ * and measures how much heap the server (and the client side of the
+ * connections, which lives in the same JVM) uses per session. Thread stacks
+ * of platform threads are native memory and are not included; stacks of
+ * virtual threads are on the heap and are.
+ *
+ * Games: a number of client threads play full games against the computer
+ * player through the text console, reading the console's output line by
+ * line and answering its prompts with random free spaces, and the game rate
+ * and time per game are measured.
+ *
+ * Usage: java server.TicTacToeLoadTest [idle sessions] [games] [clients]
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class TicTacToeLoadTest {
+
+    /**
+     * Number of idle sessions opened when none is given.
+     */
+    private static final int DEFAULT_IDLE = 5000;
+
+    /**
+     * Number of games played when none is given.
+     */
+    private static final int DEFAULT_GAMES = 20000;
+
+    /**
+     * Number of client threads playing games when none is given.
+     */
+    private static final int DEFAULT_CLIENTS = 64;
+
+    /**
+     * How long to wait for the server to start all idle sessions.
+     */
+    private static final long SESSION_TIMEOUT = 60000;
+
+    /**
+     * The spaces of the board in the console's format.
+     */
+    private static final String[] SPACES = {"1a", "1b", "1c", "2a", "2b", "2c", "3a", "3b", "3c"};
+
+    /**
+     * Runs both phases and prints the results.
+     *
+     * @param args optional number of idle sessions, games and client
+     * threads.
+     *
+     * @throws Exception if the server cannot be started or a phase fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int idle = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_IDLE;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_GAMES;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CLIENTS;
+
+        try (TicTacToeServer server = new TicTacToeServer(0)) {
+            server.start();
+            System.out.printf("sessions on %s threads%n", TicTacToeServer.usesVirtualThreads() ? "virtual" : "platform");
+            idleSessions(server, idle);
+            playGames(server, games, clients);
+        }
+    }
+
+    /**
+     * private helper method that opens idle sessions and measures the heap
+     * used per session.
+     *
+     * @param server the server.
+     * @param count number of sessions to open.
+     *
+     * @throws Exception if a connection fails or the sessions do not start
+     * in time.
+     */
+    private static void idleSessions(TicTacToeServer server, int count) throws Exception {
+        InetSocketAddress address = new InetSocketAddress("localhost", server.getPort());
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+
+        List<SocketChannel> connections = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) connections.add(SocketChannel.open(address));
+            long deadline = System.currentTimeMillis() + SESSION_TIMEOUT;
+            while (server.getSessions() < count) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("only " + server.getSessions() + " sessions started");
+                }
+                Thread.sleep(10);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Thread.sleep(500);   // let every session reach its first read
+
+            long heapAfter = usedHeap();
+            int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+            System.out.printf("%d idle sessions opened in %.2f s (%.0f/s)%n", count, seconds, count / seconds);
+            System.out.printf("heap per session: %.0f bytes (%.1f MB for all), platform threads +%d%n",
+                    (double) (heapAfter - heapBefore) / count, (heapAfter - heapBefore) / 1e6,
+                    threadsAfter - threadsBefore);
+        }
+        finally {
+            for (SocketChannel connection : connections) connection.close();
+        }
+        while (server.getSessions() > 0) Thread.sleep(10);
+    }
+
+    /**
+     * private helper method that plays games against the computer player on
+     * several client threads and prints the game rate.
+     *
+     * @param server the server.
+     * @param games number of games to play.
+     * @param clients number of client threads.
+     *
+     * @throws Exception if a game fails.
+     */
+    private static void playGames(TicTacToeServer server, int games, int clients) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        AtomicInteger next = new AtomicInteger();
+        long start = System.nanoTime();
+        List<Future<LatencyHistogram>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            results.add(pool.submit(() -> {
+                LatencyHistogram latency = new LatencyHistogram();
+                while (next.getAndIncrement() < games) {
+                    long gameStart = System.nanoTime();
+                    playGame(server.getPort());
+                    latency.record(System.nanoTime() - gameStart);
+                }
+                return latency;
+            }));
+        }
+        LatencyHistogram latency = new LatencyHistogram();
+        for (Future<LatencyHistogram> result : results) latency.add(result.get());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.printf("%d games on %d clients in %.2f s: %.0f games/s, server counted %d%n", games, clients,
+                seconds, games / seconds, server.getGames());
+        System.out.printf("time per game (ms): mean %.2f, p50 %.2f, p99 %.2f, max %.2f%n",
+                latency.getMean() / 1e6, latency.getPercentile(0.5) / 1e6, latency.getPercentile(0.99) / 1e6,
+                latency.getMax() / 1e6);
+    }
+
+    /**
+     * private helper method that plays one game against the computer
+     * player, answering every prompt for player X with a random free space.
+     *
+     * @param port port of the server.
+     *
+     * @throws IOException if the connection fails or the game does not end
+     * with a result.
+     */
+    private static void playGame(int port) throws IOException {
+        List<String> free = new ArrayList<>(List.of(SPACES));
+        Collections.shuffle(free);
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintStream out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            boolean playerX = false;
+            boolean over = false;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.startsWith("Enter 'P'")) {
+                    out.println("C");
+                }
+                else if (line.endsWith("PlayerX - your turn.")) {
+                    playerX = true;
+                }
+                else if (line.endsWith("PlayerO - your turn.")) {
+                    playerX = false;
+                }
+                else if (line.startsWith(">> ")) {
+                    free.remove(line.substring(3));
+                }
+                else if (line.startsWith("Choose a cell") && playerX) {
+                    out.println(free.remove(free.size() - 1));
+                }
+                else if (line.endsWith("Won the Game") || line.startsWith("Tie game")) {
+                    over = true;
+                }
+            }
+            if (!over) throw new IOException("game ended without a result");
+        }
+    }
+
+    /**
+     * private helper method that measures the heap in use after garbage
+     * collection.
+     *
+     * @return bytes of heap in use.
+     *
+     * @throws InterruptedException if interrupted while waiting for the
+     * collection.
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
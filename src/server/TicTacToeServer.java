@@ -0,0 +1,240 @@
+package server;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tac.TicTacToeTextConsole;
+
+/**
+ * Serves TicTacToe games over the network with the text console. Every
+ * connection gets its own thread running TicTacToeTextConsole's turn loop on
+ * the socket's streams, in the same blocking style as on System.in and
+ * System.out. With virtual threads (see VirtualThreads) a thread that waits
+ * for a player's input costs little more than its stack, so one server can
+ * hold a very large number of mostly idle sessions; without them every
+ * session takes a platform thread.
+ *
+ * A session plays one game, like the console does, and the connection is
+ * closed when the game is over.
+ *
+ * Usage: java server.TicTacToeServer [port]
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class TicTacToeServer implements Closeable {
+
+    /**
+     * Port listened on when none is given.
+     */
+    public static final int DEFAULT_PORT = 4445;
+
+    /**
+     * Size of the output buffer of a session, small because a screen of the
+     * game is only a few hundred bytes.
+     */
+    private static final int OUT_BUFFER = 512;
+
+    /**
+     * Connections waiting to be accepted.
+     */
+    private static final int BACKLOG = 4096;
+
+    /**
+     * The listening socket.
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * Runs the sessions, one thread each.
+     */
+    private final ExecutorService sessionThreads;
+
+    /**
+     * Thread accepting connections.
+     */
+    private Thread acceptor;
+
+    /**
+     * True until the server is closed.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Number of open sessions.
+     */
+    private final AtomicInteger sessions = new AtomicInteger();
+
+    /**
+     * Number of sessions opened since the server started.
+     */
+    private final AtomicLong sessionsOpened = new AtomicLong();
+
+    /**
+     * Number of games played to the end.
+     */
+    private final AtomicLong games = new AtomicLong();
+
+    /**
+     * Constructor for TicTacToeServer. Binds the port; call start to begin
+     * serving.
+     *
+     * @param port port to listen on, 0 for any free port.
+     *
+     * @throws IOException if the port cannot be bound.
+     */
+    public TicTacToeServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.setReuseAddress(true);
+        this.serverSocket.bind(new InetSocketAddress(port), BACKLOG);
+        this.sessionThreads = VirtualThreads.newThreadPerTaskExecutor("tictactoe-session");
+    }
+
+    /**
+     * Starts the thread accepting connections.
+     */
+    public void start() {
+        this.acceptor = new Thread(this::accept, "tictactoe-accept");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    /**
+     * Checks if sessions run on virtual threads.
+     *
+     * @return true for virtual threads, false for platform threads.
+     */
+    public static boolean usesVirtualThreads() {
+        return VirtualThreads.available();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return port number.
+     */
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of open sessions.
+     *
+     * @return session count.
+     */
+    public int getSessions() {
+        return this.sessions.get();
+    }
+
+    /**
+     * Returns the number of sessions opened since the server started.
+     *
+     * @return session count.
+     */
+    public long getSessionsOpened() {
+        return this.sessionsOpened.get();
+    }
+
+    /**
+     * Returns the number of games played to the end.
+     *
+     * @return game count.
+     */
+    public long getGames() {
+        return this.games.get();
+    }
+
+    /**
+     * Stops accepting connections. Sessions that are running end when their
+     * client leaves.
+     */
+    @Override
+    public void close() {
+        this.running = false;
+        try {
+            this.serverSocket.close();
+        }
+        catch (IOException e) {
+            // closing anyway
+        }
+        this.sessionThreads.shutdownNow();
+    }
+
+    /**
+     * private helper method run by the acceptor thread: starts a session for
+     * every new connection.
+     */
+    private void accept() {
+        while (this.running) {
+            try {
+                Socket socket = this.serverSocket.accept();
+                this.sessionThreads.execute(() -> serve(socket));
+            }
+            catch (IOException e) {
+                if (!this.running) return;
+                System.err.println("accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * private helper method that plays one game with the text console on a
+     * connection and closes it.
+     *
+     * @param socket the connection.
+     */
+    private void serve(Socket socket) {
+        this.sessions.incrementAndGet();
+        this.sessionsOpened.incrementAndGet();
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream(), OUT_BUFFER),
+                    false, StandardCharsets.UTF_8);
+            new TicTacToeTextConsole(socket.getInputStream(), out).play();
+            this.games.incrementAndGet();
+        }
+        catch (NoSuchElementException | SocketException e) {
+            // the client left before the game was over
+        }
+        catch (IOException e) {
+            System.err.println("session failed: " + e.getMessage());
+        }
+        finally {
+            this.sessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Runs the server until the process is stopped, printing the session
+     * and game counts every 10 seconds.
+     *
+     * @param args optional port.
+     *
+     * @throws IOException if the port cannot be bound.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        TicTacToeServer server = new TicTacToeServer(port);
+        server.start();
+        System.out.printf("TicTacToe server listening on port %d, sessions on %s threads%n", server.getPort(),
+                usesVirtualThreads() ? "virtual" : "platform");
+        while (true) {
+            Thread.sleep(10000);
+            System.out.printf("%d sessions open, %d opened, %d games%n", server.getSessions(),
+                    server.getSessionsOpened(), server.getGames());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors that run every task on its own virtual thread when the
+ * Java runtime has them. Executors.newVirtualThreadPerTaskExecutor is looked
+ * up by reflection, so the code also builds and runs on runtimes without
+ * virtual threads (or with them only as a preview feature that is not
+ * enabled), where each task gets its own daemon platform thread instead.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+final class VirtualThreads {
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor, or null if the runtime
+     * cannot create virtual threads.
+     */
+    private static final Method FACTORY = findFactory();
+
+    /**
+     * private constructor, the class only has static methods.
+     */
+    private VirtualThreads() {
+    }
+
+    /**
+     * Creates an executor that starts a new thread for every task: a virtual
+     * thread if the runtime supports them, otherwise a daemon platform
+     * thread.
+     *
+     * @param name prefix of the platform thread names.
+     *
+     * @return the executor.
+     */
+    static ExecutorService newThreadPerTaskExecutor(String name) {
+        if (FACTORY != null) {
+            try {
+                return (ExecutorService) FACTORY.invoke(null);
+            }
+            catch (ReflectiveOperationException e) {
+                // fall back to platform threads
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    /**
+     * Checks if executors from newThreadPerTaskExecutor use virtual threads.
+     *
+     * @return true if virtual threads are available.
+     */
+    static boolean available() {
+        return FACTORY != null;
+    }
+
+    /**
+     * private helper method that looks up the virtual thread executor
+     * factory and checks that it works: on runtimes where virtual threads are
+     * a preview feature it exists but throws unless previews are enabled.
+     *
+     * @return the factory method, or null.
+     */
+    private static Method findFactory() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ((ExecutorService) factory.invoke(null)).shutdown();
+            return factory;
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
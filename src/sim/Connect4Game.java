@@ -0,0 +1,78 @@
+package sim;
+
+import core.Connect4Logic;
+
+/**
+ * Connect4 for the simulator. Moves are columns 1-7.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Connect4Game implements SimGame {
+
+    /**
+     * The game being played.
+     */
+    private final Connect4Logic logic = new Connect4Logic();
+
+    /**
+     * Result after the last move.
+     */
+    private int result = ONGOING;
+
+    /**
+     * Returns the game logic, for players to search on.
+     *
+     * @return the Connect4 game.
+     */
+    public Connect4Logic getLogic() {
+        return this.logic;
+    }
+
+    @Override
+    public void reset() {
+        this.logic.resetBoard();
+        this.result = ONGOING;
+    }
+
+    @Override
+    public int getPlayerTurn() {
+        return this.logic.getPlayerTurn();
+    }
+
+    @Override
+    public void play(int move) {
+        int player = this.logic.getPlayerTurn();
+        if (this.result != ONGOING || this.logic.makeMove(move) < 0) {
+            throw new IllegalArgumentException("illegal Connect4 move: " + move);
+        }
+        if (this.logic.checkLastMoveForWin() != 0) this.result = player;
+        else if (this.logic.getMoveCount() == Connect4Logic.ROWS * Connect4Logic.COLUMNS) this.result = DRAW;
+    }
+
+    @Override
+    public int legalMoves(int[] moves) {
+        int count = 0;
+        if (this.result != ONGOING) return count;
+        for (int col = 1; col <= Connect4Logic.COLUMNS; col++) {
+            if (this.logic.checkMoveValidity(col) >= 0) moves[count++] = col;
+        }
+        return count;
+    }
+
+    @Override
+    public int getResult() {
+        return this.result;
+    }
+
+    @Override
+    public int getMoveCount() {
+        return this.logic.getMoveCount();
+    }
+
+    @Override
+    public int getMove(int index) {
+        return this.logic.getMove(index);
+    }
+}
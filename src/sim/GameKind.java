@@ -0,0 +1,289 @@
+package sim;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import core.Connect4ComputerPlayer;
+import core.Connect4Logic;
+import core.Connect4MCTSPlayer;
+import core.Connect4ParallelMCTSPlayer;
+import core.Connect4Solver;
+import core.TranspositionTable;
+import store.GameCodec;
+import tic.MNKComputerPlayer;
+import tic.MNKLogic;
+import tic.TicTacToeComputerPlayer;
+
+/**
+ * A game the simulator can play together with the computer players that can
+ * play it. Players are named by a spec, a registered name optionally followed
+ * by a colon and an argument, for example "alphabeta:6" or "mcts:5000".
+ *
+ * Players for both games are registered when the class is loaded; more can be
+ * added with register before a simulation starts.
+ *
+ * @param <G> the game.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public final class GameKind<G extends SimGame> {
+
+    /**
+     * Slots of the transposition table each alpha-beta player gets, smaller
+     * than the default so many players can run at once.
+     */
+    private static final int TABLE_SIZE = 1 << 18;
+
+    /**
+     * Connect4 and its players: random, alphabeta[:depth], easy, medium,
+     * hard, mcts[:playouts], mcts-root[:threads], mcts-tree[:threads] and
+     * solver (which is only fast late in the game).
+     */
+    public static final GameKind<Connect4Game> CONNECT4 = new GameKind<>("connect4", GameCodec.CONNECT4,
+            Connect4Game::new);
+
+    /**
+     * TicTacToe and its players: random, perfect (the TicTacToe computer
+     * player) and mnk[:millis] (the m,n,k player on a 3,3,3 board).
+     */
+    public static final GameKind<TicTacToeGame> TICTACTOE = new GameKind<>("tictactoe", GameCodec.TICTACTOE,
+            TicTacToeGame::new);
+
+    static {
+        CONNECT4.register("random", arg -> {
+            SplittableRandom random = new SplittableRandom();
+            return game -> randomColumn(game.getLogic(), random);
+        });
+        CONNECT4.register("alphabeta", arg -> {
+            int depth = arg == null ? Connect4ComputerPlayer.DEFAULT_DEPTH : Integer.parseInt(arg);
+            Connect4ComputerPlayer player = new Connect4ComputerPlayer(depth, new TranspositionTable(TABLE_SIZE));
+            return game -> player.getColumn(game.getLogic());
+        });
+        for (Connect4ComputerPlayer.Difficulty difficulty : Connect4ComputerPlayer.Difficulty.values()) {
+            CONNECT4.register(difficulty.name().toLowerCase(), arg -> {
+                Connect4ComputerPlayer player = new Connect4ComputerPlayer(difficulty);
+                return game -> player.getColumn(game.getLogic());
+            });
+        }
+        CONNECT4.register("mcts", arg -> {
+            Connect4MCTSPlayer player = arg == null ? new Connect4MCTSPlayer()
+                    : new Connect4MCTSPlayer(Integer.parseInt(arg));
+            return game -> player.getColumn(game.getLogic());
+        });
+        for (Connect4ParallelMCTSPlayer.Mode mode : Connect4ParallelMCTSPlayer.Mode.values()) {
+            CONNECT4.register("mcts-" + mode.name().toLowerCase(), arg -> {
+                int threads = arg == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(arg);
+                Connect4ParallelMCTSPlayer player = new Connect4ParallelMCTSPlayer(mode, threads);
+                return new SimPlayer<Connect4Game>() {
+                    @Override
+                    public int selectMove(Connect4Game game) {
+                        return player.getColumn(game.getLogic());
+                    }
+
+                    @Override
+                    public void close() {
+                        player.close();
+                    }
+                };
+            });
+        }
+        CONNECT4.register("solver", arg -> {
+            Connect4Solver solver = new Connect4Solver();
+            return game -> solver.getBestColumn(game.getLogic());
+        });
+
+        TICTACTOE.register("random", arg -> {
+            SplittableRandom random = new SplittableRandom();
+            return game -> {
+                int cell;
+                do {
+                    cell = random.nextInt(9);
+                } while (!game.getLogic().isLegal(cell));
+                return cell;
+            };
+        });
+        TICTACTOE.register("perfect", arg -> {
+            TicTacToeComputerPlayer player = new TicTacToeComputerPlayer();
+            return game -> player.findMove(game.getLogic());
+        });
+        TICTACTOE.register("mnk", arg -> {
+            MNKComputerPlayer player = arg == null ? new MNKComputerPlayer()
+                    : new MNKComputerPlayer(Long.parseLong(arg));
+            MNKLogic board = new MNKLogic(3, 3, 3);
+            return game -> player.findMove(syncMNK(game, board));
+        });
+    }
+
+    /**
+     * Name of the game.
+     */
+    private final String name;
+
+    /**
+     * Game type of the game's records (see store.GameCodec).
+     */
+    private final int type;
+
+    /**
+     * Creates a new game for each simulator thread.
+     */
+    private final Supplier<G> games;
+
+    /**
+     * Player factories by name, in the order they were registered. The
+     * argument of the spec (or null) is passed to the factory.
+     */
+    private final Map<String, Function<String, SimPlayer<G>>> players = new LinkedHashMap<>();
+
+    /**
+     * Constructor for GameKind.
+     *
+     * @param name name of the game.
+     * @param type game type of the game's records.
+     * @param games creates a new game.
+     */
+    private GameKind(String name, int type, Supplier<G> games) {
+        this.name = name;
+        this.type = type;
+        this.games = games;
+    }
+
+    /**
+     * Finds a game by name.
+     *
+     * @param name "connect4" or "tictactoe".
+     *
+     * @return the game.
+     *
+     * @throws IllegalArgumentException if there is no game with the name.
+     */
+    public static GameKind<?> forName(String name) {
+        if (CONNECT4.name.equalsIgnoreCase(name)) return CONNECT4;
+        if (TICTACTOE.name.equalsIgnoreCase(name)) return TICTACTOE;
+        throw new IllegalArgumentException("unknown game: " + name);
+    }
+
+    /**
+     * Returns the name of the game.
+     *
+     * @return name of the game.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the game type the game is recorded as.
+     *
+     * @return GameCodec.CONNECT4 or GameCodec.TICTACTOE.
+     */
+    public int getType() {
+        return this.type;
+    }
+
+    /**
+     * Creates a new game on an empty board.
+     *
+     * @return the new game.
+     */
+    public G newGame() {
+        return this.games.get();
+    }
+
+    /**
+     * Registers a player, replacing any player with the same name.
+     *
+     * @param name name used in player specs.
+     * @param factory creates a player from the spec's argument, which is null
+     * if the spec has none.
+     */
+    public synchronized void register(String name, Function<String, SimPlayer<G>> factory) {
+        this.players.put(name, factory);
+    }
+
+    /**
+     * Returns the names of the registered players.
+     *
+     * @return player names, in the order they were registered.
+     */
+    public synchronized Set<String> getPlayerNames() {
+        return Collections.unmodifiableSet(this.players.keySet());
+    }
+
+    /**
+     * Creates a player from a spec.
+     *
+     * @param spec a registered name, optionally followed by ":" and an
+     * argument.
+     *
+     * @return a new player.
+     *
+     * @throws IllegalArgumentException if no player has the name or the
+     * argument is not valid.
+     */
+    public SimPlayer<G> newPlayer(String spec) {
+        int colon = spec.indexOf(':');
+        String playerName = colon < 0 ? spec : spec.substring(0, colon);
+        String arg = colon < 0 ? null : spec.substring(colon + 1);
+        Function<String, SimPlayer<G>> factory;
+        synchronized (this) {
+            factory = this.players.get(playerName);
+        }
+        if (factory == null) {
+            throw new IllegalArgumentException("unknown " + this.name + " player: " + playerName
+                    + " (players: " + String.join(", ", this.players.keySet()) + ")");
+        }
+        return factory.apply(arg);
+    }
+
+    /**
+     * private helper method that picks a random column that is not full.
+     *
+     * @param game the game to move in.
+     * @param random source of the choice.
+     *
+     * @return column (1-7).
+     */
+    private static int randomColumn(Connect4Logic game, SplittableRandom random) {
+        int col;
+        do {
+            col = random.nextInt(Connect4Logic.COLUMNS) + 1;
+        } while (game.checkMoveValidity(col) < 0);
+        return col;
+    }
+
+    /**
+     * private helper method that brings a player's 3,3,3 m,n,k board up to
+     * date with a TicTacToe game, playing only the moves made since the last
+     * call. The board is emptied first if it is not on the game's moves, for
+     * example when a new game has started.
+     *
+     * @param game the game to follow.
+     * @param board the player's board, on an earlier position of the game or
+     * of another game.
+     *
+     * @return the board, on the game's position.
+     */
+    private static MNKLogic syncMNK(TicTacToeGame game, MNKLogic board) {
+        int played = board.getMoveCount();
+        boolean sameGame = played <= game.getMoveCount();
+        for (int i = 0; i < played && sameGame; i++) {
+            sameGame = board.getMove(i) == game.getMove(i);
+        }
+        if (!sameGame) {
+            board.resetBoard();
+            played = 0;
+        }
+        for (int i = played; i < game.getMoveCount(); i++) {
+            board.makeMove(game.getMove(i));
+        }
+        return board;
+    }
+}
@@ -0,0 +1,149 @@
+package sim;
+
+/**
+ * Counts latencies in buckets whose width grows with the latency, so any
+ * number of samples takes a fixed amount of memory and recording a sample
+ * does not allocate. Each power of two is split into SUB_BUCKETS buckets, so
+ * a percentile is off by at most 1 / SUB_BUCKETS of its value.
+ *
+ * Not thread safe: each thread records into its own histogram and the
+ * histograms are merged with add afterwards.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class LatencyHistogram {
+
+    /**
+     * Bits of the sub-bucket index within a power of two.
+     */
+    private static final int SUB_BITS = 4;
+
+    /**
+     * Buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * Sample count of each bucket.
+     */
+    private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+
+    /**
+     * Number of samples.
+     */
+    private long total;
+
+    /**
+     * Sum of the samples.
+     */
+    private long sum;
+
+    /**
+     * Largest sample.
+     */
+    private long max;
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos latency in nanoseconds, negative values count as 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        this.counts[bucket(nanos)]++;
+        this.total++;
+        this.sum += nanos;
+        if (nanos > this.max) this.max = nanos;
+    }
+
+    /**
+     * Adds the samples of another histogram to this one.
+     *
+     * @param other histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.total += other.total;
+        this.sum += other.sum;
+        this.max = Math.max(this.max, other.max);
+    }
+
+    /**
+     * Returns the number of samples.
+     *
+     * @return sample count.
+     */
+    public long getCount() {
+        return this.total;
+    }
+
+    /**
+     * Returns the mean latency.
+     *
+     * @return mean in nanoseconds, or 0 if there are no samples.
+     */
+    public double getMean() {
+        return this.total == 0 ? 0 : (double) this.sum / this.total;
+    }
+
+    /**
+     * Returns the largest latency.
+     *
+     * @return maximum in nanoseconds.
+     */
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * Returns a latency that the given fraction of samples do not exceed.
+     *
+     * @param fraction fraction of samples, 0.5 for the median.
+     *
+     * @return upper edge of the bucket holding the percentile in nanoseconds
+     * (never more than the maximum), or 0 if there are no samples.
+     */
+    public long getPercentile(double fraction) {
+        if (this.total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * this.total));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) return Math.min(upperBound(i), this.max);
+        }
+        return this.max;
+    }
+
+    /**
+     * private helper method that finds the bucket of a latency. Values below
+     * SUB_BUCKETS get a bucket each; above that, the highest bit picks the
+     * power of two and the next SUB_BITS bits pick the bucket within it.
+     *
+     * @param nanos latency, at least 0.
+     *
+     * @return bucket index.
+     */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * private helper method that gives the largest latency in a bucket.
+     *
+     * @param bucket bucket index.
+     *
+     * @return upper edge of the bucket in nanoseconds.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
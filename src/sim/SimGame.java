@@ -0,0 +1,77 @@
+package sim;
+
+/**
+ * A two player game the simulator can drive without a user interface. Moves
+ * are plain ints in the game's own notation (a column 1-7 for Connect4, a
+ * space 0-8 for TicTacToe), so a game can be played without allocating.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public interface SimGame {
+
+    /**
+     * Result of a game that is not over yet.
+     */
+    int ONGOING = -2;
+
+    /**
+     * Result of a drawn game.
+     */
+    int DRAW = -1;
+
+    /**
+     * Starts a new game on an empty board.
+     */
+    void reset();
+
+    /**
+     * Returns the player whose turn it is.
+     *
+     * @return 0 for the player who moved first, 1 for the other player.
+     */
+    int getPlayerTurn();
+
+    /**
+     * Makes a move for the player whose turn it is.
+     *
+     * @param move the move in the game's notation.
+     *
+     * @throws IllegalArgumentException if the move is not legal.
+     */
+    void play(int move);
+
+    /**
+     * Lists the legal moves for the player whose turn it is.
+     *
+     * @param moves array to fill, large enough for every move of the game.
+     *
+     * @return the number of moves written to the array.
+     */
+    int legalMoves(int[] moves);
+
+    /**
+     * Returns the result of the game so far.
+     *
+     * @return ONGOING, DRAW, or the winner (0 for the player who moved first,
+     * 1 for the other player).
+     */
+    int getResult();
+
+    /**
+     * Returns the number of moves made in the current game.
+     *
+     * @return move count.
+     */
+    int getMoveCount();
+
+    /**
+     * Returns one of the moves made in the current game.
+     *
+     * @param index position of the move in the game, 0 for the first move.
+     *
+     * @return the move in the game's notation.
+     */
+    int getMove(int index);
+}
@@ -0,0 +1,33 @@
+package sim;
+
+/**
+ * A computer player the simulator can run. Each simulator thread gets its own
+ * player instances, so implementations do not have to be thread safe, and
+ * closes them when it has played its games.
+ *
+ * @param <G> the game the player plays.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public interface SimPlayer<G extends SimGame> {
+
+    /**
+     * Picks a move for the player whose turn it is. The game must be left in
+     * the state it was given in.
+     *
+     * @param game the game to move in, which is not over.
+     *
+     * @return the move in the game's notation.
+     */
+    int selectMove(G game);
+
+    /**
+     * Releases what the player holds between moves, such as search threads.
+     * Called once when the simulator thread is done with the player; does
+     * nothing by default.
+     */
+    default void close() {
+    }
+}
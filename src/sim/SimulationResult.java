@@ -0,0 +1,280 @@
+package sim;
+
+/**
+ * Outcome of a batch of games between two players, A and B. Wins, draws and
+ * losses are counted from player A's side; move latencies are kept per
+ * player.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class SimulationResult {
+
+    /**
+     * Spec of player A.
+     */
+    private final String playerA;
+
+    /**
+     * Spec of player B.
+     */
+    private final String playerB;
+
+    /**
+     * Games won by A.
+     */
+    private long wins;
+
+    /**
+     * Drawn games.
+     */
+    private long draws;
+
+    /**
+     * Games lost by A.
+     */
+    private long losses;
+
+    /**
+     * Games won by whoever moved first.
+     */
+    private long firstPlayerWins;
+
+    /**
+     * Moves made in all games, opening moves included.
+     */
+    private long moves;
+
+    /**
+     * Wall clock time of the whole batch in nanoseconds.
+     */
+    private long nanos;
+
+    /**
+     * Time player A took per move.
+     */
+    private final LatencyHistogram latencyA = new LatencyHistogram();
+
+    /**
+     * Time player B took per move.
+     */
+    private final LatencyHistogram latencyB = new LatencyHistogram();
+
+    /**
+     * Constructor for SimulationResult.
+     *
+     * @param playerA spec of player A.
+     * @param playerB spec of player B.
+     */
+    public SimulationResult(String playerA, String playerB) {
+        this.playerA = playerA;
+        this.playerB = playerB;
+    }
+
+    /**
+     * Counts one finished game.
+     *
+     * @param result result of the game (see SimGame.getResult), with player
+     * 0 being the player who moved first.
+     * @param aFirst true if player A moved first.
+     * @param moveCount number of moves in the game.
+     */
+    void addGame(int result, boolean aFirst, int moveCount) {
+        if (result == SimGame.DRAW) this.draws++;
+        else if ((result == 0) == aFirst) this.wins++;
+        else this.losses++;
+        if (result == 0) this.firstPlayerWins++;
+        this.moves += moveCount;
+    }
+
+    /**
+     * Adds the games and latencies of another result for the same players.
+     *
+     * @param other result to add.
+     */
+    void add(SimulationResult other) {
+        this.wins += other.wins;
+        this.draws += other.draws;
+        this.losses += other.losses;
+        this.firstPlayerWins += other.firstPlayerWins;
+        this.moves += other.moves;
+        this.latencyA.add(other.latencyA);
+        this.latencyB.add(other.latencyB);
+    }
+
+    /**
+     * Sets the wall clock time of the batch.
+     *
+     * @param nanos time in nanoseconds.
+     */
+    void setNanos(long nanos) {
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the spec of player A.
+     *
+     * @return player spec.
+     */
+    public String getPlayerA() {
+        return this.playerA;
+    }
+
+    /**
+     * Returns the spec of player B.
+     *
+     * @return player spec.
+     */
+    public String getPlayerB() {
+        return this.playerB;
+    }
+
+    /**
+     * Returns the number of games played.
+     *
+     * @return game count.
+     */
+    public long getGames() {
+        return this.wins + this.draws + this.losses;
+    }
+
+    /**
+     * Returns the number of games player A won.
+     *
+     * @return win count.
+     */
+    public long getWins() {
+        return this.wins;
+    }
+
+    /**
+     * Returns the number of drawn games.
+     *
+     * @return draw count.
+     */
+    public long getDraws() {
+        return this.draws;
+    }
+
+    /**
+     * Returns the number of games player A lost.
+     *
+     * @return loss count.
+     */
+    public long getLosses() {
+        return this.losses;
+    }
+
+    /**
+     * Returns the number of games won by the player who moved first.
+     *
+     * @return win count of the first player.
+     */
+    public long getFirstPlayerWins() {
+        return this.firstPlayerWins;
+    }
+
+    /**
+     * Returns player A's score, a win counting 1 and a draw 1/2.
+     *
+     * @return score per game between 0 and 1, or 0.5 if no game was played.
+     */
+    public double getScore() {
+        long games = getGames();
+        return games == 0 ? 0.5 : (this.wins + this.draws / 2.0) / games;
+    }
+
+    /**
+     * Returns the number of moves made in all games.
+     *
+     * @return move count.
+     */
+    public long getMoves() {
+        return this.moves;
+    }
+
+    /**
+     * Returns the wall clock time of the batch.
+     *
+     * @return time in nanoseconds.
+     */
+    public long getNanos() {
+        return this.nanos;
+    }
+
+    /**
+     * Returns how many games were finished per second.
+     *
+     * @return games per second.
+     */
+    public double getGamesPerSecond() {
+        return this.nanos == 0 ? 0 : getGames() * 1e9 / this.nanos;
+    }
+
+    /**
+     * Returns the time player A took per move.
+     *
+     * @return latency histogram.
+     */
+    public LatencyHistogram getLatencyA() {
+        return this.latencyA;
+    }
+
+    /**
+     * Returns the time player B took per move.
+     *
+     * @return latency histogram.
+     */
+    public LatencyHistogram getLatencyB() {
+        return this.latencyB;
+    }
+
+    /**
+     * Formats the result as a short report: the score line followed by the
+     * move latency percentiles of both players in microseconds.
+     *
+     * @return the report.
+     */
+    @Override
+    public String toString() {
+        long games = getGames();
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%s vs %s: %d games, +%d =%d -%d (win %.1f%%, draw %.1f%%, loss %.1f%%)%n",
+                this.playerA, this.playerB, games, this.wins, this.draws, this.losses,
+                percent(this.wins, games), percent(this.draws, games), percent(this.losses, games)));
+        report.append(String.format("first player won %.1f%%, %.1f moves per game, %.1f games/s%n",
+                percent(this.firstPlayerWins, games), games == 0 ? 0 : (double) this.moves / games,
+                getGamesPerSecond()));
+        report.append(String.format("%-20s %8s %10s %10s %10s %10s %10s%n",
+                "move latency (us)", "moves", "mean", "p50", "p90", "p99", "max"));
+        appendLatency(report, this.playerA, this.latencyA);
+        appendLatency(report, this.playerB, this.latencyB);
+        return report.toString();
+    }
+
+    /**
+     * private helper method that formats one player's latency line.
+     *
+     * @param report report to append to.
+     * @param player spec of the player.
+     * @param latency the player's move latencies.
+     */
+    private static void appendLatency(StringBuilder report, String player, LatencyHistogram latency) {
+        report.append(String.format("%-20s %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", player, latency.getCount(),
+                latency.getMean() / 1e3, latency.getPercentile(0.5) / 1e3, latency.getPercentile(0.9) / 1e3,
+                latency.getPercentile(0.99) / 1e3, latency.getMax() / 1e3));
+    }
+
+    /**
+     * private helper method that gives a count as a percentage.
+     *
+     * @param count part.
+     * @param total whole.
+     *
+     * @return percentage, or 0 if total is 0.
+     */
+    private static double percent(long count, long total) {
+        return total == 0 ? 0 : 100.0 * count / total;
+    }
+}
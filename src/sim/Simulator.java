@@ -0,0 +1,338 @@
+package sim;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import store.GameRecordWriter;
+
+/**
+ * Plays batches of games between two computer players without a user
+ * interface, spreading the games over a pool of threads. Every thread creates
+ * its own game and its own instance of both players, so players never share
+ * state across threads (a thread that plays several pairings keeps one
+ * instance per player spec). Players swap who moves first every game, and each
+ * game can start with a few random moves so that deterministic players do not
+ * play the same game over and over. Finished games can be appended to a
+ * GameRecordWriter.
+ *
+ * Usage: java sim.Simulator game playerA playerB [games] [threads] [random
+ * opening moves] [record directory]
+ *
+ * For example: java sim.Simulator connect4 mcts:5000 alphabeta:6 200 4 2
+ *
+ * @param <G> the game being played.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Simulator<G extends SimGame> {
+
+    /**
+     * Number of games played when none is given.
+     */
+    private static final int DEFAULT_GAMES = 100;
+
+    /**
+     * Largest number of legal moves in any position of the games.
+     */
+    private static final int MAX_MOVES = 9;
+
+    /**
+     * Largest number of moves in a game of either game.
+     */
+    private static final int MAX_GAME_MOVES = 42;
+
+    /**
+     * The game being played.
+     */
+    private final GameKind<G> kind;
+
+    /**
+     * Number of threads games are played on.
+     */
+    private final int threads;
+
+    /**
+     * Number of random moves each game starts with.
+     */
+    private int openingMoves;
+
+    /**
+     * Seed of the random opening moves; game i uses seed + i.
+     */
+    private long seed = 42;
+
+    /**
+     * Log finished games are appended to, or null.
+     */
+    private GameRecordWriter recorder;
+
+    /**
+     * Constructor for Simulator.
+     *
+     * @param kind the game to play.
+     * @param threads number of threads to play games on (at least 1).
+     */
+    public Simulator(GameKind<G> kind, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        this.kind = kind;
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the number of random moves each game starts with, before the
+     * players take over.
+     *
+     * @param openingMoves number of random moves (0 for none).
+     */
+    public void setOpeningMoves(int openingMoves) {
+        this.openingMoves = openingMoves;
+    }
+
+    /**
+     * Sets the seed of the random opening moves, so a batch can be repeated.
+     *
+     * @param seed random seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets a log to append every finished game to, with each player's think
+     * time per move. Random opening moves are recorded with no think time.
+     *
+     * @param recorder the log, or null to stop recording.
+     */
+    public void setRecorder(GameRecordWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Plays a batch of games between two players and waits for all of them.
+     * Player A moves first in even numbered games and player B in odd
+     * numbered games.
+     *
+     * @param playerA spec of player A (see GameKind.newPlayer).
+     * @param playerB spec of player B.
+     * @param games number of games to play.
+     *
+     * @return the combined result of all games.
+     *
+     * @throws IllegalArgumentException if a player spec is not valid.
+     */
+    public SimulationResult run(String playerA, String playerB, int games) {
+        return run(new String[][] {{playerA, playerB}}, games)[0];
+    }
+
+    /**
+     * Plays a batch of games for each of several pairings of players and
+     * waits for all of them. The games of all pairings go through one queue,
+     * so the threads stay busy until the last game. Game i of every pairing
+     * starts with the same random opening moves.
+     *
+     * @param pairings specs of player A and player B of each pairing.
+     * @param games number of games to play per pairing.
+     *
+     * @return the result of each pairing, in the order of the pairings.
+     *
+     * @throws IllegalArgumentException if a player spec is not valid.
+     */
+    public SimulationResult[] run(String[][] pairings, int games) {
+        // fail on a bad spec here rather than on every thread
+        for (String[] pairing : pairings) {
+            this.kind.newPlayer(pairing[0]).close();
+            this.kind.newPlayer(pairing[1]).close();
+        }
+
+        int totalGames = pairings.length * games;
+        int workers = Math.max(1, Math.min(this.threads, totalGames));
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "simulator");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        AtomicInteger nextGame = new AtomicInteger();
+        SimulationResult[] totals = newResults(pairings);
+        long start = System.nanoTime();
+        try {
+            List<Future<SimulationResult[]>> results = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                results.add(pool.submit(() -> play(pairings, games, nextGame)));
+            }
+            for (Future<SimulationResult[]> result : results) {
+                SimulationResult[] partial = result.get();
+                for (int i = 0; i < pairings.length; i++) totals[i].add(partial[i]);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("simulator thread failed", e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        long nanos = System.nanoTime() - start;
+        for (SimulationResult total : totals) total.setNanos(nanos);
+        return totals;
+    }
+
+    /**
+     * private helper method run by each thread: plays games until all games
+     * of the batch are taken. The thread creates each player spec it meets
+     * once per side and keeps using that instance, so a pairing of a spec
+     * with itself still plays two separate players, and closes the players
+     * when it is done.
+     *
+     * @param pairings specs of player A and player B of each pairing.
+     * @param games number of games per pairing.
+     * @param nextGame index of the next game to play over all pairings,
+     * shared by the threads.
+     *
+     * @return the result of the games this thread played, per pairing.
+     */
+    private SimulationResult[] play(String[][] pairings, int games, AtomicInteger nextGame) {
+        Map<String, SimPlayer<G>> playersA = new HashMap<>();
+        Map<String, SimPlayer<G>> playersB = new HashMap<>();
+        G game = this.kind.newGame();
+        int[] moves = new int[MAX_MOVES];
+        int[] playedMoves = new int[MAX_GAME_MOVES];
+        int[] thinkMicros = new int[MAX_GAME_MOVES];
+        SimulationResult[] results = newResults(pairings);
+        int totalGames = pairings.length * games;
+
+        try {
+            for (int next = nextGame.getAndIncrement(); next < totalGames; next = nextGame.getAndIncrement()) {
+                if (Thread.currentThread().isInterrupted()) break;
+                int pairing = next / games;
+                int index = next % games;
+                SimPlayer<G> playerA = playersA.computeIfAbsent(pairings[pairing][0], this.kind::newPlayer);
+                SimPlayer<G> playerB = playersB.computeIfAbsent(pairings[pairing][1], this.kind::newPlayer);
+                SimulationResult result = results[pairing];
+
+                game.reset();
+                long gameStart = System.nanoTime();
+                SplittableRandom random = new SplittableRandom(this.seed + index);
+                for (int i = 0; i < this.openingMoves && game.getResult() == SimGame.ONGOING; i++) {
+                    thinkMicros[game.getMoveCount()] = 0;
+                    game.play(moves[random.nextInt(game.legalMoves(moves))]);
+                }
+
+                boolean aFirst = (index & 1) == 0;
+                while (game.getResult() == SimGame.ONGOING) {
+                    boolean aToMove = (game.getPlayerTurn() == 0) == aFirst;
+                    long moveStart = System.nanoTime();
+                    int move = aToMove ? playerA.selectMove(game) : playerB.selectMove(game);
+                    long nanos = System.nanoTime() - moveStart;
+                    if (aToMove) result.getLatencyA().record(nanos);
+                    else result.getLatencyB().record(nanos);
+                    thinkMicros[game.getMoveCount()] = (int) Math.min(nanos / 1000, Integer.MAX_VALUE);
+                    game.play(move);
+                }
+                result.addGame(game.getResult(), aFirst, game.getMoveCount());
+                if (this.recorder != null) {
+                    String[] players = aFirst ? pairings[pairing]
+                            : new String[] {pairings[pairing][1], pairings[pairing][0]};
+                    record(game, players, playedMoves, thinkMicros, (System.nanoTime() - gameStart) / 1000);
+                }
+            }
+            return results;
+        }
+        finally {
+            for (SimPlayer<G> player : playersA.values()) player.close();
+            for (SimPlayer<G> player : playersB.values()) player.close();
+        }
+    }
+
+    /**
+     * private helper method that appends a finished game to the recorder.
+     *
+     * @param game the finished game.
+     * @param players specs of the player who moved first and the other
+     * player.
+     * @param playedMoves array to copy the game's moves to.
+     * @param thinkMicros think time of each move in microseconds.
+     * @param durationMicros length of the game in microseconds.
+     */
+    private void record(G game, String[] players, int[] playedMoves, int[] thinkMicros, long durationMicros) {
+        int count = game.getMoveCount();
+        for (int i = 0; i < count; i++) playedMoves[i] = game.getMove(i);
+        int result = game.getResult() == SimGame.DRAW ? GameRecordWriter.DRAW
+                : game.getResult() == 0 ? GameRecordWriter.X_WON : GameRecordWriter.O_WON;
+        try {
+            this.recorder.append(this.kind.getType(), players[0], players[1], result, playedMoves, count,
+                    thinkMicros, durationMicros);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * private helper method that creates an empty result for each pairing.
+     *
+     * @param pairings specs of player A and player B of each pairing.
+     *
+     * @return empty results, in the order of the pairings.
+     */
+    private static SimulationResult[] newResults(String[][] pairings) {
+        SimulationResult[] results = new SimulationResult[pairings.length];
+        for (int i = 0; i < pairings.length; i++) {
+            results[i] = new SimulationResult(pairings[i][0], pairings[i][1]);
+        }
+        return results;
+    }
+
+    /**
+     * Runs a batch of games from the command line and prints the result.
+     *
+     * @param args game ("connect4" or "tictactoe"), player A, player B, and
+     * optionally the number of games, threads, random opening moves and a
+     * directory to record the games in.
+     *
+     * @throws IOException if the games cannot be recorded.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("usage: java sim.Simulator game playerA playerB [games] [threads] [opening moves]"
+                    + " [record directory]");
+            for (GameKind<?> kind : new GameKind<?>[] {GameKind.CONNECT4, GameKind.TICTACTOE}) {
+                System.out.println(kind.getName() + " players: " + String.join(", ", kind.getPlayerNames()));
+            }
+            return;
+        }
+        GameKind<?> kind = GameKind.forName(args[0]);
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_GAMES;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        int openingMoves = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+
+        Simulator<?> simulator = new Simulator<>(kind, threads);
+        simulator.setOpeningMoves(openingMoves);
+        if (args.length > 6) {
+            try (GameRecordWriter recorder = new GameRecordWriter(Paths.get(args[6]))) {
+                simulator.setRecorder(recorder);
+                System.out.print(simulator.run(args[1], args[2], games));
+                System.out.println("recorded " + recorder.getGames() + " games in " + args[6]);
+            }
+        }
+        else {
+            System.out.print(simulator.run(args[1], args[2], games));
+        }
+    }
+}
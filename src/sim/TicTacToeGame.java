@@ -0,0 +1,80 @@
+package sim;
+
+import tic.TicTacToeLogic;
+
+/**
+ * TicTacToe for the simulator. Moves are spaces 0-8 (row * 3 + column), and
+ * player X always moves first.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class TicTacToeGame implements SimGame {
+
+    /**
+     * The game being played.
+     */
+    private final TicTacToeLogic logic = new TicTacToeLogic();
+
+    /**
+     * Result after the last move.
+     */
+    private int result = ONGOING;
+
+    /**
+     * Returns the game logic, for players to look at.
+     *
+     * @return the TicTacToe game.
+     */
+    public TicTacToeLogic getLogic() {
+        return this.logic;
+    }
+
+    @Override
+    public void reset() {
+        this.logic.resetBoard();
+        this.result = ONGOING;
+    }
+
+    @Override
+    public int getPlayerTurn() {
+        return this.logic.getMoveCount() & 1;
+    }
+
+    @Override
+    public void play(int move) {
+        int player = getPlayerTurn();
+        char piece = player == 0 ? 'X' : 'O';
+        if (this.result != ONGOING || !this.logic.makeMove(piece, move)) {
+            throw new IllegalArgumentException("illegal TicTacToe move: " + move);
+        }
+        if (this.logic.playerWon(piece, move)) this.result = player;
+        else if (this.logic.checkForTieGame()) this.result = DRAW;
+    }
+
+    @Override
+    public int legalMoves(int[] moves) {
+        int count = 0;
+        if (this.result != ONGOING) return count;
+        for (int cell = 0; cell < 9; cell++) {
+            if (this.logic.isLegal(cell)) moves[count++] = cell;
+        }
+        return count;
+    }
+
+    @Override
+    public int getResult() {
+        return this.result;
+    }
+
+    @Override
+    public int getMoveCount() {
+        return this.logic.getMoveCount();
+    }
+
+    @Override
+    public int getMove(int index) {
+        return this.logic.getMove(index);
+    }
+}
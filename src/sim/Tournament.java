@@ -0,0 +1,390 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Runs a round-robin tournament between computer players: every pair of
+ * players plays the same number of games, half with each player moving first.
+ * The games of all pairings are played in parallel by a Simulator.
+ *
+ * Each player gets an Elo rating fitted to all results at once (the
+ * Bradley-Terry maximum likelihood ratings, shifted so that the average is
+ * 0) with a 95% confidence interval, next to the average time it thought per
+ * move, so a stronger but slower version of a player shows up as both.
+ *
+ * Usage: java sim.Tournament game games threads openingMoves player player
+ * [player...]
+ *
+ * For example: java sim.Tournament connect4 50 4 2 alphabeta:4 alphabeta:6
+ * mcts:2000 random
+ *
+ * @param <G> the game being played.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class Tournament<G extends SimGame> {
+
+    /**
+     * Normal quantile of a two sided 95% confidence interval.
+     */
+    private static final double Z95 = 1.959964;
+
+    /**
+     * Iterations of the rating fit.
+     */
+    private static final int FIT_ITERATIONS = 1000;
+
+    /**
+     * Plays the games.
+     */
+    private final Simulator<G> simulator;
+
+    /**
+     * Specs of the players.
+     */
+    private final List<String> players = new ArrayList<>();
+
+    /**
+     * Constructor for Tournament.
+     *
+     * @param kind the game to play.
+     * @param threads number of threads to play games on.
+     */
+    public Tournament(GameKind<G> kind, int threads) {
+        this.simulator = new Simulator<>(kind, threads);
+    }
+
+    /**
+     * Returns the simulator that plays the games, to set the opening moves
+     * and the seed.
+     *
+     * @return the simulator.
+     */
+    public Simulator<G> getSimulator() {
+        return this.simulator;
+    }
+
+    /**
+     * Adds a player to the tournament.
+     *
+     * @param spec player spec (see GameKind.newPlayer).
+     */
+    public void addPlayer(String spec) {
+        this.players.add(spec);
+    }
+
+    /**
+     * Plays every pairing of the players and rates them.
+     *
+     * @param games number of games per pairing.
+     *
+     * @return the standings.
+     *
+     * @throws IllegalStateException if there are fewer than 2 players.
+     */
+    public Standings run(int games) {
+        int n = this.players.size();
+        if (n < 2) throw new IllegalStateException("a tournament needs at least 2 players");
+        String[][] pairings = new String[n * (n - 1) / 2][];
+        int[][] pairs = new int[pairings.length][];
+        int p = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                pairings[p] = new String[] {this.players.get(i), this.players.get(j)};
+                pairs[p++] = new int[] {i, j};
+            }
+        }
+        return new Standings(this.players.toArray(new String[0]), pairs, this.simulator.run(pairings, games));
+    }
+
+    /**
+     * Ratings, scores and think times of the players after a tournament.
+     */
+    public static class Standings {
+
+        /**
+         * Player specs.
+         */
+        private final String[] players;
+
+        /**
+         * Result of each pairing.
+         */
+        private final SimulationResult[] results;
+
+        /**
+         * Elo rating of each player.
+         */
+        private final double[] elo;
+
+        /**
+         * Lower and upper edge of the 95% interval of each rating.
+         */
+        private final double[][] interval;
+
+        /**
+         * Score of each player, a win counting 1 and a draw 1/2.
+         */
+        private final double[] points;
+
+        /**
+         * Games of each player.
+         */
+        private final long[] games;
+
+        /**
+         * Move latencies of each player over all its games.
+         */
+        private final LatencyHistogram[] latency;
+
+        /**
+         * scores[i][j] is player i's score against player j.
+         */
+        private final double[][] scores;
+
+        /**
+         * Constructor for Standings.
+         *
+         * @param players player specs.
+         * @param pairs player indexes of each pairing (player A, player B).
+         * @param results result of each pairing.
+         */
+        Standings(String[] players, int[][] pairs, SimulationResult[] results) {
+            int n = players.length;
+            this.players = players;
+            this.results = results;
+            this.points = new double[n];
+            this.games = new long[n];
+            this.latency = new LatencyHistogram[n];
+            this.scores = new double[n][n];
+            double[][] played = new double[n][n];
+            for (int i = 0; i < n; i++) this.latency[i] = new LatencyHistogram();
+
+            for (int p = 0; p < pairs.length; p++) {
+                int a = pairs[p][0];
+                int b = pairs[p][1];
+                SimulationResult result = results[p];
+                double pointsA = result.getWins() + result.getDraws() / 2.0;
+                this.points[a] += pointsA;
+                this.points[b] += result.getGames() - pointsA;
+                this.games[a] += result.getGames();
+                this.games[b] += result.getGames();
+                this.scores[a][b] += pointsA;
+                this.scores[b][a] += result.getGames() - pointsA;
+                played[a][b] += result.getGames();
+                played[b][a] += result.getGames();
+                this.latency[a].add(result.getLatencyA());
+                this.latency[b].add(result.getLatencyB());
+            }
+
+
+            this.elo = fit(this.scores, played);
+            this.interval = new double[n][];
+            for (int i = 0; i < n; i++) this.interval[i] = interval(i, pairs);
+        }
+
+        /**
+         * private helper method that fits Bradley-Terry strengths to the
+         * scores with the minorization-maximization iteration and turns them
+         * into Elo ratings. Every pairing counts one extra drawn game so that
+         * a player who won or lost every game still gets a finite rating.
+         *
+         * @param scores scores[i][j] is player i's score against player j.
+         * @param played played[i][j] is the number of games between i and j.
+         *
+         * @return Elo rating of each player, averaging 0.
+         */
+        private static double[] fit(double[][] scores, double[][] played) {
+            int n = scores.length;
+            double[] strength = new double[n];
+            Arrays.fill(strength, 1.0);
+            for (int iteration = 0; iteration < FIT_ITERATIONS; iteration++) {
+                double[] next = new double[n];
+                double logSum = 0;
+                for (int i = 0; i < n; i++) {
+                    double won = 0;
+                    double denominator = 0;
+                    for (int j = 0; j < n; j++) {
+                        if (j == i || played[i][j] == 0) continue;
+                        won += scores[i][j] + 0.5;
+                        denominator += (played[i][j] + 1) / (strength[i] + strength[j]);
+                    }
+                    next[i] = denominator == 0 ? 1.0 : won / denominator;
+                    logSum += Math.log(next[i]);
+                }
+                double scale = Math.exp(logSum / n);
+                for (int i = 0; i < n; i++) strength[i] = next[i] / scale;
+            }
+            double[] elo = new double[n];
+            for (int i = 0; i < n; i++) elo[i] = 400 * Math.log10(strength[i]);
+            return elo;
+        }
+
+        /**
+         * private helper method that finds the 95% interval of a player's
+         * rating. A Wilson score interval is put around the player's average
+         * score per game, using the variance of the player's results (draws
+         * make it smaller), which stays sensible for a player who won or lost
+         * every game. The edges are turned into Elo around the average score
+         * and the rating is moved by the same amounts.
+         *
+         * @param player index of the player.
+         * @param pairs player indexes of each pairing.
+         *
+         * @return lower and upper edge of the interval.
+         */
+        private double[] interval(int player, int[][] pairs) {
+            long n = this.games[player];
+            if (n == 0) return new double[] {Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+            double mean = this.points[player] / n;
+            double squares = 0;
+            for (int p = 0; p < pairs.length; p++) {
+                SimulationResult result = this.results[p];
+                boolean isA = pairs[p][0] == player;
+                if (!isA && pairs[p][1] != player) continue;
+                long wins = isA ? result.getWins() : result.getLosses();
+                long losses = isA ? result.getLosses() : result.getWins();
+                squares += wins * (1 - mean) * (1 - mean) + result.getDraws() * (0.5 - mean) * (0.5 - mean)
+                        + losses * mean * mean;
+            }
+            double variance = squares / n;
+            double z2 = Z95 * Z95 / n;
+            double center = (mean + z2 / 2) / (1 + z2);
+            double width = Z95 * Math.sqrt(variance / n + z2 / (4 * n)) / (1 + z2);
+            double edge = 0.5 / n;
+            double clamped = Math.min(Math.max(mean, edge), 1 - edge);
+            double low = toElo(Math.max(center - width, edge)) - toElo(clamped);
+            double high = toElo(Math.min(center + width, 1 - edge)) - toElo(clamped);
+            return new double[] {this.elo[player] + Math.min(low, 0), this.elo[player] + Math.max(high, 0)};
+        }
+
+        /**
+         * private helper method that gives the Elo difference that makes a
+         * given score expected.
+         *
+         * @param score expected score per game, strictly between 0 and 1.
+         *
+         * @return Elo difference.
+         */
+        private static double toElo(double score) {
+            return -400 * Math.log10(1 / score - 1);
+        }
+
+        /**
+         * Returns the player specs.
+         *
+         * @return player specs, in the order they were added.
+         */
+        public String[] getPlayers() {
+            return this.players.clone();
+        }
+
+        /**
+         * Returns a player's Elo rating.
+         *
+         * @param player index of the player.
+         *
+         * @return Elo rating, relative to the average of all players.
+         */
+        public double getElo(int player) {
+            return this.elo[player];
+        }
+
+        /**
+         * Returns the 95% confidence interval of a player's rating.
+         *
+         * @param player index of the player.
+         *
+         * @return lower and upper edge of the interval.
+         */
+        public double[] getInterval(int player) {
+            return this.interval[player].clone();
+        }
+
+        /**
+         * Returns a player's move latencies over all its games.
+         *
+         * @param player index of the player.
+         *
+         * @return latency histogram.
+         */
+        public LatencyHistogram getLatency(int player) {
+            return this.latency[player];
+        }
+
+        /**
+         * Returns the result of every pairing.
+         *
+         * @return pairing results.
+         */
+        public SimulationResult[] getResults() {
+            return this.results.clone();
+        }
+
+        /**
+         * Formats the standings, strongest player first: rating with its
+         * interval, score, and think time per move, followed by a cross
+         * table of the score of each player against each other player.
+         *
+         * @return the report.
+         */
+        @Override
+        public String toString() {
+            int n = this.players.length;
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingDouble(i -> -this.elo[i]));
+
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("%4s %-20s %7s %15s %7s %7s %12s %12s%n", "rank", "player", "elo",
+                    "95% interval", "games", "score", "mean ms/mv", "p99 ms/mv"));
+            for (int r = 0; r < n; r++) {
+                int i = order[r];
+                report.append(String.format("%4d %-20s %7.0f %7.0f..%-6.0f %7d %6.1f%% %12.3f %12.3f%n", r + 1,
+                        this.players[i], this.elo[i], this.interval[i][0], this.interval[i][1], this.games[i],
+                        this.games[i] == 0 ? 0 : 100 * this.points[i] / this.games[i],
+                        this.latency[i].getMean() / 1e6, this.latency[i].getPercentile(0.99) / 1e6));
+            }
+
+            report.append(String.format("%n%-20s", "score vs"));
+            for (int c = 0; c < n; c++) report.append(String.format(" %7d", c + 1));
+            report.append(String.format("%n"));
+            for (int r = 0; r < n; r++) {
+                int i = order[r];
+                report.append(String.format("%-20s", (r + 1) + " " + this.players[i]));
+                for (int c = 0; c < n; c++) {
+                    int j = order[c];
+                    if (i == j) report.append(String.format(" %7s", "-"));
+                    else report.append(String.format(" %7.1f", this.scores[i][j]));
+                }
+                report.append(String.format("%n"));
+            }
+            return report.toString();
+        }
+    }
+
+    /**
+     * Runs a tournament from the command line and prints the standings.
+     *
+     * @param args game ("connect4" or "tictactoe"), games per pairing,
+     * threads, random opening moves, then 2 or more player specs.
+     */
+    public static void main(String[] args) {
+        if (args.length < 6) {
+            System.out.println("usage: java sim.Tournament game games threads openingMoves player player [player...]");
+            return;
+        }
+        Tournament<?> tournament = new Tournament<>(GameKind.forName(args[0]), Integer.parseInt(args[2]));
+        tournament.getSimulator().setOpeningMoves(Integer.parseInt(args[3]));
+        for (int i = 4; i < args.length; i++) tournament.addPlayer(args[i]);
+        long start = System.nanoTime();
+        Standings standings = tournament.run(Integer.parseInt(args[1]));
+        System.out.print(standings);
+        System.out.printf("%.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,268 @@
+package store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import core.Connect4Logic;
+import tic.TicTacToeEngine;
+import tic.TicTacToeLogic;
+
+/**
+ * Replays the game records of a directory of segments (see GameRecordWriter)
+ * and summarizes them: results and average length per game type, results
+ * per opening and the most common losing moves (see GameSummary).
+ *
+ * The segments are split between the threads of a fork-join pool, one task
+ * per segment. Each task streams its segment through a GameRecordReader and
+ * replays every game on one Connect4Logic or TicTacToeLogic that is reset
+ * between games, checking that the moves are legal and lead to the recorded
+ * result (a draw only on a full board), and counts the game in its own
+ * GameSummary. The summaries are merged as the tasks join. Nothing is
+ * allocated per game, so the work grows with the number of moves and the
+ * number of threads divides it; a hundred million games written with the
+ * default segment size are about a hundred segments, enough to keep every
+ * core of one machine busy.
+ *
+ * Usage: java store.GameAnalytics directory [opening moves] [threads]
+ * [summary file]
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class GameAnalytics {
+
+    /**
+     * Number of moves of an opening when none is given.
+     */
+    public static final int DEFAULT_OPENING_MOVES = 2;
+
+    /**
+     * private constructor, the class only has static methods.
+     */
+    private GameAnalytics() {
+    }
+
+    /**
+     * Replays and summarizes the games of some segments.
+     *
+     * @param segments the segments, for example GameRecordReader.segments of
+     * a directory.
+     * @param openingMoves number of moves of an opening, 1 to 8.
+     * @param threads number of threads to replay on.
+     *
+     * @return the summary of all games.
+     *
+     * @throws IOException if a segment cannot be read.
+     */
+    public static GameSummary analyze(List<Path> segments, int openingMoves, int threads) throws IOException {
+        if (segments.isEmpty()) return new GameSummary(openingMoves);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new SegmentTask(segments, 0, segments.size(), openingMoves));
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Summarizes a range of segments, splitting it in half until each task
+     * has one segment.
+     */
+    private static class SegmentTask extends RecursiveTask<GameSummary> {
+
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * All segments.
+         */
+        private final transient List<Path> segments;
+
+        /**
+         * Index of the first segment of the range.
+         */
+        private final int from;
+
+        /**
+         * Index after the last segment of the range.
+         */
+        private final int to;
+
+        /**
+         * Number of moves of an opening.
+         */
+        private final int openingMoves;
+
+        /**
+         * Constructor for SegmentTask.
+         *
+         * @param segments all segments.
+         * @param from index of the first segment of the range.
+         * @param to index after the last segment of the range.
+         * @param openingMoves number of moves of an opening.
+         */
+        SegmentTask(List<Path> segments, int from, int to, int openingMoves) {
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+            this.openingMoves = openingMoves;
+        }
+
+        /**
+         * Summarizes the range, or splits it and merges the summaries of the
+         * halves.
+         *
+         * @return summary of the range.
+         */
+        @Override
+        protected GameSummary compute() {
+            if (this.to - this.from > 1) {
+                int middle = (this.from + this.to) >>> 1;
+                SegmentTask left = new SegmentTask(this.segments, this.from, middle, this.openingMoves);
+                SegmentTask right = new SegmentTask(this.segments, middle, this.to, this.openingMoves);
+                left.fork();
+                GameSummary summary = right.compute();
+                summary.add(left.join());
+                return summary;
+            }
+            GameSummary summary = new GameSummary(this.openingMoves);
+            GameRecordReader reader = new GameRecordReader(this.segments.subList(this.from, this.to));
+            Connect4Logic connect4 = new Connect4Logic();
+            TicTacToeLogic ticTacToe = new TicTacToeLogic();
+            try {
+                while (reader.next()) {
+                    boolean valid = reader.getType() == GameCodec.CONNECT4
+                            ? replayConnect4(reader, connect4, summary)
+                            : replayTicTacToe(reader, ticTacToe, summary);
+                    if (!valid) summary.addInvalid();
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return summary;
+        }
+    }
+
+    /**
+     * private helper method that replays a Connect4 game and counts it if
+     * the moves are legal and lead to the recorded result.
+     *
+     * @param record the reader, on the game.
+     * @param game board to replay on.
+     * @param summary summary to count the game in.
+     *
+     * @return false if the game could not be replayed.
+     */
+    private static boolean replayConnect4(GameRecordReader record, Connect4Logic game, GameSummary summary) {
+        game.resetBoard();
+        int moveCount = record.getMoveCount();
+        int result = record.getResult();
+        long opening = 0;
+        long losingMove = -1;
+        int winner = 0;
+        for (int i = 0; i < moveCount; i++) {
+            int col = record.getMove(i);
+            if (winner != 0) return false;
+            if (i == moveCount - 2 && result != GameRecordWriter.DRAW) {
+                losingMove = GameSummary.connect4LosingMove(game.getPositionKey(), col);
+            }
+            if (game.makeMove(col) < 0) return false;
+            if (i < 8) opening |= (long) col << (4 * i);
+            winner = game.checkLastMoveForWin();
+        }
+        if (winner != (result == GameRecordWriter.X_WON ? 1 : result == GameRecordWriter.O_WON ? 2 : 0)) {
+            return false;
+        }
+        // a game without a winner is only a draw once the board is full
+        if (result == GameRecordWriter.DRAW && moveCount != Connect4Logic.ROWS * Connect4Logic.COLUMNS) {
+            return false;
+        }
+        summary.addGame(GameCodec.CONNECT4, result, moveCount, opening, losingMove);
+        return true;
+    }
+
+    /**
+     * private helper method that replays a TicTacToe game and counts it if
+     * the moves are legal and lead to the recorded result.
+     *
+     * @param record the reader, on the game.
+     * @param game board to replay on.
+     * @param summary summary to count the game in.
+     *
+     * @return false if the game could not be replayed.
+     */
+    private static boolean replayTicTacToe(GameRecordReader record, TicTacToeLogic game, GameSummary summary) {
+        game.resetBoard();
+        int moveCount = record.getMoveCount();
+        int result = record.getResult();
+        long opening = 0;
+        long losingMove = -1;
+        int position = 0;
+        boolean won = false;
+        for (int i = 0; i < moveCount; i++) {
+            int cell = record.getMove(i);
+            boolean x = (i & 1) == 0;
+            if (won || !game.makeMove(x ? 'X' : 'O', cell)) return false;
+            if (i == moveCount - 2 && result != GameRecordWriter.DRAW) {
+                losingMove = GameSummary.ticTacToeLosingMove(position, cell);
+            }
+            position = TicTacToeEngine.play(position, cell, x ? TicTacToeEngine.X : TicTacToeEngine.O);
+            if (i < 8) opening |= (long) cell << (4 * i);
+            won = game.playerWon(x ? 'X' : 'O', cell);
+        }
+        boolean xMovedLast = (moveCount & 1) == 1;
+        if (result == GameRecordWriter.DRAW ? won || moveCount != 9
+                : !won || xMovedLast != (result == GameRecordWriter.X_WON)) {
+            return false;
+        }
+        summary.addGame(GameCodec.TICTACTOE, result, moveCount, opening, losingMove);
+        return true;
+    }
+
+    /**
+     * Summarizes the games in a directory from the command line, printing
+     * the summary and optionally writing it to a file.
+     *
+     * @param args directory of the segments, and optionally the number of
+     * moves of an opening, the number of threads and a file to write the
+     * summary to.
+     *
+     * @throws IOException if the games cannot be read or the summary cannot
+     * be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: java store.GameAnalytics directory [opening moves] [threads] [summary file]");
+            return;
+        }
+        int openingMoves = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_OPENING_MOVES;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        List<Path> segments = GameRecordReader.segments(Paths.get(args[0]));
+        long start = System.nanoTime();
+        GameSummary summary = analyze(segments, openingMoves, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long games = summary.getGames(GameCodec.CONNECT4) + summary.getGames(GameCodec.TICTACTOE)
+                + summary.getInvalid();
+
+        System.out.print(summary);
+        System.out.printf("%d games in %d segments replayed in %.2f s on %d threads (%.0f games/s)%n", games,
+                segments.size(), seconds, threads, games / seconds);
+        if (args.length > 3) Files.writeString(Paths.get(args[3]), summary.toString(), StandardCharsets.UTF_8);
+    }
+}
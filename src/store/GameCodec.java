@@ -0,0 +1,214 @@
+package store;
+
+import core.Connect4Logic;
+import tic.TicTacToeLogic;
+
+/**
+ * Compact binary encoding of Connect4 and TicTacToe games. A game is stored
+ * as its move history, from which the position is rebuilt by replaying the
+ * moves, so the position and the history take the same few bytes:
+ *
+ * Connect4: one byte with the number of moves, then each move's column (0-6)
+ * in 3 bits, packed from the lowest bit up. A full board of 42 moves takes
+ * 17 bytes.
+ *
+ * TicTacToe: one byte with the number of moves in bits 0-3 and, in bit 4,
+ * whether player O moved first, then each move's space (0-8) in 4 bits. A
+ * full board takes 6 bytes.
+ *
+ * Decoding replays the moves with the games' own move checks, so a corrupt
+ * encoding is rejected instead of producing an impossible position.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public final class GameCodec {
+
+    /**
+     * Game type of Connect4.
+     */
+    public static final int CONNECT4 = 0;
+
+    /**
+     * Game type of TicTacToe.
+     */
+    public static final int TICTACTOE = 1;
+
+    /**
+     * Longest encoding of either game.
+     */
+    public static final int MAX_LENGTH = 1 + (Connect4Logic.ROWS * Connect4Logic.COLUMNS * 3 + 7) / 8;
+
+    /**
+     * Bit 4 of the TicTacToe count byte: player O made the first move.
+     */
+    private static final int O_FIRST = 0x10;
+
+    /**
+     * private constructor, the class only has static methods.
+     */
+    private GameCodec() {
+    }
+
+    /**
+     * Encodes a Connect4 game.
+     *
+     * @param game the game.
+     * @param dst array to write to, with room for MAX_LENGTH bytes.
+     * @param offset index of the first byte to write.
+     *
+     * @return index after the last byte written.
+     */
+    public static int encode(Connect4Logic game, byte[] dst, int offset) {
+        int count = game.getMoveCount();
+        dst[offset] = (byte) count;
+        int length = connect4Length(count);
+        for (int i = offset + 1; i < offset + length; i++) dst[i] = 0;
+        for (int i = 0; i < count; i++) {
+            putBits(dst, offset + 1, i * 3, game.getMove(i) - 1);
+        }
+        return offset + length;
+    }
+
+    /**
+     * Encodes a TicTacToe game.
+     *
+     * @param game the game.
+     * @param dst array to write to, with room for MAX_LENGTH bytes.
+     * @param offset index of the first byte to write.
+     *
+     * @return index after the last byte written.
+     */
+    public static int encode(TicTacToeLogic game, byte[] dst, int offset) {
+        int count = game.getMoveCount();
+        boolean oFirst = count > 0 && (game.getMask('O') & (1 << game.getMove(0))) != 0;
+        dst[offset] = (byte) (count | (oFirst ? O_FIRST : 0));
+        int length = ticTacToeLength(count);
+        for (int i = offset + 1; i < offset + length; i++) dst[i] = 0;
+        for (int i = 0; i < count; i++) {
+            putBits(dst, offset + 1, i * 4, game.getMove(i));
+        }
+        return offset + length;
+    }
+
+    /**
+     * Decodes a Connect4 game by replaying its moves.
+     *
+     * @param src array holding the encoding.
+     * @param offset index of the first byte of the encoding.
+     *
+     * @return the game.
+     *
+     * @throws IllegalArgumentException if the encoding is not a legal game.
+     */
+    public static Connect4Logic decodeConnect4(byte[] src, int offset) {
+        int count = src[offset] & 0xFF;
+        if (count > Connect4Logic.ROWS * Connect4Logic.COLUMNS) {
+            throw new IllegalArgumentException("too many Connect4 moves: " + count);
+        }
+        Connect4Logic game = new Connect4Logic();
+        for (int i = 0; i < count; i++) {
+            if (game.checkLastMoveForWin() != 0 || game.makeMove(getBits(src, offset + 1, i * 3, 3) + 1) < 0) {
+                throw new IllegalArgumentException("illegal Connect4 move " + i);
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Decodes a TicTacToe game by replaying its moves.
+     *
+     * @param src array holding the encoding.
+     * @param offset index of the first byte of the encoding.
+     *
+     * @return the game.
+     *
+     * @throws IllegalArgumentException if the encoding is not a legal game.
+     */
+    public static TicTacToeLogic decodeTicTacToe(byte[] src, int offset) {
+        int count = src[offset] & 0x0F;
+        if (count > 9 || (src[offset] & ~(0x0F | O_FIRST)) != 0) {
+            throw new IllegalArgumentException("bad TicTacToe count byte: " + src[offset]);
+        }
+        TicTacToeLogic game = new TicTacToeLogic();
+        char player = (src[offset] & O_FIRST) != 0 ? 'O' : 'X';
+        boolean won = false;
+        for (int i = 0; i < count; i++) {
+            int cell = getBits(src, offset + 1, i * 4, 4);
+            if (won || !game.makeMove(player, cell)) {
+                throw new IllegalArgumentException("illegal TicTacToe move " + i);
+            }
+            won = game.playerWon(player, cell);
+            player = game.changePlayer(player);
+        }
+        return game;
+    }
+
+    /**
+     * Returns the length of the encoding of a Connect4 game.
+     *
+     * @param moveCount number of moves in the game.
+     *
+     * @return length in bytes.
+     */
+    public static int connect4Length(int moveCount) {
+        return 1 + (moveCount * 3 + 7) / 8;
+    }
+
+    /**
+     * Returns the length of the encoding of a TicTacToe game.
+     *
+     * @param moveCount number of moves in the game.
+     *
+     * @return length in bytes.
+     */
+    public static int ticTacToeLength(int moveCount) {
+        return 1 + (moveCount + 1) / 2;
+    }
+
+    /**
+     * Returns the length of an encoding from its first byte.
+     *
+     * @param type CONNECT4 or TICTACTOE.
+     * @param first first byte of the encoding.
+     *
+     * @return length in bytes.
+     */
+    public static int length(int type, byte first) {
+        return type == CONNECT4 ? connect4Length(first & 0xFF) : ticTacToeLength(first & 0x0F);
+    }
+
+    /**
+     * private helper method that writes a value of a few bits into a zeroed
+     * bit array, lowest bit first.
+     *
+     * @param dst array holding the bits.
+     * @param offset index of the byte holding bit 0.
+     * @param bit index of the value's lowest bit.
+     * @param value value to write.
+     */
+    private static void putBits(byte[] dst, int offset, int bit, int value) {
+        int shifted = value << (bit & 7);
+        dst[offset + (bit >>> 3)] |= (byte) shifted;
+        if ((shifted >>> 8) != 0) dst[offset + (bit >>> 3) + 1] |= (byte) (shifted >>> 8);
+    }
+
+    /**
+     * private helper method that reads a value of a few bits, lowest bit
+     * first.
+     *
+     * @param src array holding the bits.
+     * @param offset index of the byte holding bit 0.
+     * @param bit index of the value's lowest bit.
+     * @param bits number of bits (at most 8).
+     *
+     * @return the value.
+     */
+    private static int getBits(byte[] src, int offset, int bit, int bits) {
+        int index = offset + (bit >>> 3);
+        int word = src[index] & 0xFF;
+        if ((bit & 7) + bits > 8) word |= (src[index + 1] & 0xFF) << 8;
+        return (word >>> (bit & 7)) & ((1 << bits) - 1);
+    }
+}
@@ -0,0 +1,148 @@
+package store;
+
+/**
+ * Picks game records for a GameRecordReader. A filter looks at the record the
+ * reader is on through the reader's accessors, so filtering allocates
+ * nothing. Filters combine with and, or and negate, for example all games
+ * where X lost in under 10 moves:
+ *
+ * GameRecordFilter.lost('X').and(GameRecordFilter.shorterThan(10))
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+@FunctionalInterface
+public interface GameRecordFilter {
+
+    /**
+     * Checks if the record the reader is on should be read.
+     *
+     * @param record the reader, positioned on a game record.
+     *
+     * @return true to return the record from next.
+     */
+    boolean accept(GameRecordReader record);
+
+    /**
+     * Combines this filter with another, both have to accept.
+     *
+     * @param other the other filter.
+     *
+     * @return the combined filter.
+     */
+    default GameRecordFilter and(GameRecordFilter other) {
+        return record -> accept(record) && other.accept(record);
+    }
+
+    /**
+     * Combines this filter with another, either has to accept.
+     *
+     * @param other the other filter.
+     *
+     * @return the combined filter.
+     */
+    default GameRecordFilter or(GameRecordFilter other) {
+        return record -> accept(record) || other.accept(record);
+    }
+
+    /**
+     * Returns a filter that accepts what this filter rejects.
+     *
+     * @return the negated filter.
+     */
+    default GameRecordFilter negate() {
+        return record -> !accept(record);
+    }
+
+    /**
+     * Accepts games of one game type.
+     *
+     * @param type GameCodec.CONNECT4 or GameCodec.TICTACTOE.
+     *
+     * @return the filter.
+     */
+    static GameRecordFilter type(int type) {
+        return record -> record.getType() == type;
+    }
+
+    /**
+     * Accepts games a side lost.
+     *
+     * @param side 'X' (the player who moved first) or 'O'.
+     *
+     * @return the filter.
+     */
+    static GameRecordFilter lost(char side) {
+        int result = side(side) == 'X' ? GameRecordWriter.O_WON : GameRecordWriter.X_WON;
+        return record -> record.getResult() == result;
+    }
+
+    /**
+     * Accepts games a side won.
+     *
+     * @param side 'X' (the player who moved first) or 'O'.
+     *
+     * @return the filter.
+     */
+    static GameRecordFilter won(char side) {
+        int result = side(side) == 'X' ? GameRecordWriter.X_WON : GameRecordWriter.O_WON;
+        return record -> record.getResult() == result;
+    }
+
+    /**
+     * Accepts drawn games.
+     *
+     * @return the filter.
+     */
+    static GameRecordFilter drawn() {
+        return record -> record.getResult() == GameRecordWriter.DRAW;
+    }
+
+    /**
+     * Accepts games of fewer moves than a limit.
+     *
+     * @param moves the limit.
+     *
+     * @return the filter.
+     */
+    static GameRecordFilter shorterThan(int moves) {
+        return record -> record.getMoveCount() < moves;
+    }
+
+    /**
+     * Accepts games a player took part in, on either side.
+     *
+     * @param name the player's name.
+     *
+     * @return the filter.
+     */
+    static GameRecordFilter player(String name) {
+        return record -> record.getPlayerX().equals(name) || record.getPlayerO().equals(name);
+    }
+
+    /**
+     * Accepts games a player lost, on either side.
+     *
+     * @param name the player's name.
+     *
+     * @return the filter.
+     */
+    static GameRecordFilter playerLost(String name) {
+        return record -> record.getResult() == GameRecordWriter.O_WON ? record.getPlayerX().equals(name)
+                : record.getResult() == GameRecordWriter.X_WON && record.getPlayerO().equals(name);
+    }
+
+    /**
+     * private helper method that checks a side.
+     *
+     * @param side the side.
+     *
+     * @return the side in upper case.
+     */
+    private static char side(char side) {
+        char upper = Character.toUpperCase(side);
+        if (upper != 'X' && upper != 'O') throw new IllegalArgumentException("side must be X or O: " + side);
+        return upper;
+    }
+}
@@ -0,0 +1,421 @@
+package store;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streams the game records of segments written by GameRecordWriter. Each
+ * segment is memory mapped, and the reader itself is the record: next moves
+ * it to the next game and the accessors read that game straight from the
+ * mapped segment, so reading allocates nothing per record (player names are
+ * read once per segment). A filter skips the games it rejects.
+ *
+ * A record that runs past the end of a segment is the torn tail of a writer
+ * that stopped, and ends the segment.
+ *
+ * Usage: java store.GameRecordReader directory [game connect4|tictactoe]
+ * [lost X|O] [shorter moves] [player name] [loser name] [print games]
+ *
+ * For example, games X lost in under 10 moves: java store.GameRecordReader
+ * games lost X shorter 10 print 20
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class GameRecordReader {
+
+    /**
+     * The segments, in order.
+     */
+    private final List<Path> segments;
+
+    /**
+     * Index of the next segment to map.
+     */
+    private int nextSegment;
+
+    /**
+     * The mapped segment, or null before the first one.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * Offset of the next record in the segment.
+     */
+    private int next;
+
+    /**
+     * Offset of the current game record.
+     */
+    private int record = -1;
+
+    /**
+     * Player names of the segment by id.
+     */
+    private String[] players = new String[16];
+
+    /**
+     * Filter games have to pass, or null for all games.
+     */
+    private GameRecordFilter filter;
+
+    /**
+     * Number of game records read, accepted or not.
+     */
+    private long scanned;
+
+    /**
+     * Opens a reader over all segments in a directory.
+     *
+     * @param directory directory of the segments.
+     *
+     * @throws IOException if the directory cannot be listed.
+     */
+    public GameRecordReader(Path directory) throws IOException {
+        this(segments(directory));
+    }
+
+    /**
+     * Opens a reader over some segments, for example to split the segments
+     * of a directory between threads.
+     *
+     * @param segments the segments, read in order.
+     */
+    public GameRecordReader(List<Path> segments) {
+        this.segments = new ArrayList<>(segments);
+    }
+
+    /**
+     * Lists the segments in a directory in the order they were written.
+     *
+     * @param directory directory of the segments.
+     *
+     * @return the segments, empty if the directory does not exist.
+     *
+     * @throws IOException if the directory cannot be listed.
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return segments;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                GameRecordWriter.PREFIX + "*" + GameRecordWriter.SUFFIX)) {
+            for (Path file : files) segments.add(file);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Sets the filter games have to pass to be returned by next.
+     *
+     * @param filter the filter, or null for all games.
+     */
+    public void setFilter(GameRecordFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Moves to the next game the filter accepts.
+     *
+     * @return false if there are no more games.
+     *
+     * @throws IOException if a segment cannot be mapped or is not a segment.
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (this.buffer == null || this.next + 3 > this.buffer.limit()) {
+                if (!mapNextSegment()) {
+                    this.record = -1;
+                    return false;
+                }
+                continue;
+            }
+            int offset = this.next;
+            int length = this.buffer.getShort(offset) & 0xFFFF;
+            if (length < 6 || offset + length > this.buffer.limit()) {
+                this.next = this.buffer.limit();
+                continue;
+            }
+            this.next = offset + length;
+            if (this.buffer.get(offset + 2) == GameRecordWriter.KIND_PLAYER) {
+                readPlayer(offset);
+                continue;
+            }
+            this.record = offset;
+            this.scanned++;
+            if (this.filter == null || this.filter.accept(this)) return true;
+        }
+    }
+
+    /**
+     * Returns the game type.
+     *
+     * @return GameCodec.CONNECT4 or GameCodec.TICTACTOE.
+     */
+    public int getType() {
+        return this.buffer.get(this.record + 3) & 0x03;
+    }
+
+    /**
+     * Returns the result.
+     *
+     * @return GameRecordWriter.X_WON, O_WON or DRAW.
+     */
+    public int getResult() {
+        return this.buffer.get(this.record + 4);
+    }
+
+    /**
+     * Returns the number of moves.
+     *
+     * @return move count.
+     */
+    public int getMoveCount() {
+        return this.buffer.get(this.record + 5) & 0xFF;
+    }
+
+    /**
+     * Returns the id of the player who moved first, unique within the
+     * segment.
+     *
+     * @return player id.
+     */
+    public int getPlayerXId() {
+        return this.buffer.getShort(this.record + 6) & 0xFFFF;
+    }
+
+    /**
+     * Returns the id of the player who moved second, unique within the
+     * segment.
+     *
+     * @return player id.
+     */
+    public int getPlayerOId() {
+        return this.buffer.getShort(this.record + 8) & 0xFFFF;
+    }
+
+    /**
+     * Returns the name of the player who moved first.
+     *
+     * @return player name.
+     */
+    public String getPlayerX() {
+        return this.players[getPlayerXId()];
+    }
+
+    /**
+     * Returns the name of the player who moved second.
+     *
+     * @return player name.
+     */
+    public String getPlayerO() {
+        return this.players[getPlayerOId()];
+    }
+
+    /**
+     * Returns when the game finished.
+     *
+     * @return epoch milliseconds.
+     */
+    public long getFinishedAt() {
+        return this.buffer.getLong(this.record + 10);
+    }
+
+    /**
+     * Returns the length of the game.
+     *
+     * @return duration in microseconds.
+     */
+    public int getDurationMicros() {
+        return this.buffer.getInt(this.record + 18);
+    }
+
+    /**
+     * Returns one of the moves.
+     *
+     * @param index position of the move in the game, 0 for the first move.
+     *
+     * @return Connect4 column 1-7 or TicTacToe space 0-8.
+     */
+    public int getMove(int index) {
+        return this.buffer.get(this.record + GameRecordWriter.GAME_HEADER + index);
+    }
+
+    /**
+     * Checks if the record has think times.
+     *
+     * @return true if getThinkMicros can be called.
+     */
+    public boolean hasThinkTimes() {
+        return (this.buffer.get(this.record + 3) & GameRecordWriter.HAS_TIMES) != 0;
+    }
+
+    /**
+     * Returns the think time of one of the moves.
+     *
+     * @param index position of the move in the game, 0 for the first move.
+     *
+     * @return think time in microseconds, 0 if the record has none.
+     */
+    public int getThinkMicros(int index) {
+        if (!hasThinkTimes()) return 0;
+        return this.buffer.getInt(this.record + GameRecordWriter.GAME_HEADER + getMoveCount() + 4 * index);
+    }
+
+    /**
+     * Returns the segment of the current game.
+     *
+     * @return segment file.
+     */
+    public Path getSegment() {
+        return this.segments.get(this.nextSegment - 1);
+    }
+
+    /**
+     * Returns the number of game records read so far, including those the
+     * filter rejected.
+     *
+     * @return game count.
+     */
+    public long getScanned() {
+        return this.scanned;
+    }
+
+    /**
+     * Formats the current game on one line.
+     *
+     * @return players, result and moves.
+     */
+    @Override
+    public String toString() {
+        if (this.record < 0) return "no game";
+        StringBuilder text = new StringBuilder();
+        text.append(getType() == GameCodec.CONNECT4 ? "connect4 " : "tictactoe ");
+        text.append(getPlayerX()).append(" (X) vs ").append(getPlayerO()).append(" (O): ");
+        int result = getResult();
+        text.append(result == GameRecordWriter.X_WON ? "X won" : result == GameRecordWriter.O_WON ? "O won" : "draw");
+        text.append(" in ").append(getMoveCount()).append(" moves:");
+        for (int i = 0; i < getMoveCount(); i++) text.append(' ').append(getMove(i));
+        return text.toString();
+    }
+
+    /**
+     * private helper method that maps the next segment and checks its
+     * header.
+     *
+     * @return false if there are no more segments.
+     *
+     * @throws IOException if the segment cannot be mapped or is not a
+     * segment.
+     */
+    private boolean mapNextSegment() throws IOException {
+        if (this.nextSegment == this.segments.size()) {
+            this.buffer = null;
+            return false;
+        }
+        Path segment = this.segments.get(this.nextSegment++);
+        try (FileChannel channel = FileChannel.open(segment)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (this.buffer.limit() < GameRecordWriter.SEGMENT_HEADER) {
+            throw new IOException("not a game record segment: " + segment);
+        }
+        for (int i = 0; i < GameRecordWriter.MAGIC.length; i++) {
+            if (this.buffer.get(i) != GameRecordWriter.MAGIC[i]) {
+                throw new IOException("not a game record segment: " + segment);
+            }
+        }
+        if (this.buffer.getShort(4) != GameRecordWriter.VERSION) {
+            throw new IOException("unsupported segment version in " + segment);
+        }
+        this.next = GameRecordWriter.SEGMENT_HEADER;
+        Arrays.fill(this.players, null);
+        return true;
+    }
+
+    /**
+     * private helper method that reads a player record into the player
+     * names.
+     *
+     * @param offset offset of the record.
+     */
+    private void readPlayer(int offset) {
+        int id = this.buffer.getShort(offset + 3) & 0xFFFF;
+        byte[] name = new byte[this.buffer.get(offset + 5) & 0xFF];
+        this.buffer.get(offset + 6, name);
+        if (id >= this.players.length) {
+            this.players = Arrays.copyOf(this.players, Math.max(id + 1, 2 * this.players.length));
+        }
+        this.players[id] = new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the games in a directory from the command line, printing the
+     * first games the filter accepts and the number accepted.
+     *
+     * @param args directory of the segments followed by filter words: game
+     * connect4|tictactoe, lost X|O, shorter moves, player name, loser name,
+     * and print games (how many games to print, default 10).
+     *
+     * @throws IOException if the games cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length % 2 == 0) {
+            System.out.println("usage: java store.GameRecordReader directory [game connect4|tictactoe] [lost X|O]"
+                    + " [shorter moves] [player name] [loser name] [print games]");
+            return;
+        }
+        GameRecordFilter filter = record -> true;
+        int print = 10;
+        for (int i = 1; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "game":
+                    int type = value.equalsIgnoreCase("connect4") ? GameCodec.CONNECT4 : GameCodec.TICTACTOE;
+                    filter = filter.and(GameRecordFilter.type(type));
+                    break;
+                case "lost":
+                    filter = filter.and(GameRecordFilter.lost(value.charAt(0)));
+                    break;
+                case "shorter":
+                    filter = filter.and(GameRecordFilter.shorterThan(Integer.parseInt(value)));
+                    break;
+                case "player":
+                    filter = filter.and(GameRecordFilter.player(value));
+                    break;
+                case "loser":
+                    filter = filter.and(GameRecordFilter.playerLost(value));
+                    break;
+                case "print":
+                    print = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown filter: " + args[i]);
+            }
+        }
+
+        GameRecordReader reader = new GameRecordReader(Paths.get(args[0]));
+        reader.setFilter(filter);
+        long start = System.nanoTime();
+        long matched = 0;
+        while (reader.next()) {
+            if (matched++ < print) System.out.println(reader);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d of %d games matched, read in %.2f s (%.0f games/s)%n", matched, reader.getScanned(),
+                seconds, reader.getScanned() / seconds);
+    }
+}
@@ -0,0 +1,392 @@
+package store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.Connect4Logic;
+import tic.TicTacToeLogic;
+
+/**
+ * Appends finished Connect4 and TicTacToe games to a log of segment files in
+ * a directory, for GameRecordReader to replay. A segment is closed and a new
+ * one started when it reaches the segment size, and every writer starts a
+ * new segment, so a segment is never appended to after a crash.
+ *
+ * A segment starts with the 4 bytes "G4RL" and a 2 byte version, followed by
+ * records. All numbers are little endian. Every record starts with its
+ * length (2 bytes, the whole record) and a kind byte:
+ *
+ * Player (kind 1): player id (2 bytes), name length (1 byte) and the name in
+ * UTF-8. Written the first time a player appears in a segment; games refer
+ * to players by id.
+ *
+ * Game (kind 0): flags (game type in bits 0-1, bit 2 if think times follow),
+ * result (X_WON, O_WON or DRAW), move count, player X id, player O id (2
+ * bytes each), the time the game finished (8 bytes, epoch milliseconds), its
+ * duration (4 bytes, microseconds), one byte per move (Connect4 column 1-7 or
+ * TicTacToe space 0-8) and, if flagged, each move's think time (4 bytes,
+ * microseconds). A Connect4 game of 20 moves takes 42 bytes, or 122 with
+ * think times.
+ *
+ * Player X always moves first.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class GameRecordWriter implements Closeable {
+
+    /**
+     * Result of a game player X won.
+     */
+    public static final int X_WON = 0;
+
+    /**
+     * Result of a game player O won.
+     */
+    public static final int O_WON = 1;
+
+    /**
+     * Result of a drawn game.
+     */
+    public static final int DRAW = 2;
+
+    /**
+     * Segment size when none is given.
+     */
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+
+    /**
+     * Largest segment size, so a segment can be mapped as one buffer.
+     */
+    public static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    /**
+     * First bytes of every segment.
+     */
+    static final byte[] MAGIC = {'G', '4', 'R', 'L'};
+
+    /**
+     * Version of the format.
+     */
+    static final short VERSION = 1;
+
+    /**
+     * Length of the segment header.
+     */
+    static final int SEGMENT_HEADER = 6;
+
+    /**
+     * Record kind of a game.
+     */
+    static final int KIND_GAME = 0;
+
+    /**
+     * Record kind of a player name.
+     */
+    static final int KIND_PLAYER = 1;
+
+    /**
+     * Flag of a game record with think times.
+     */
+    static final int HAS_TIMES = 0x04;
+
+    /**
+     * Length of a game record before its moves.
+     */
+    static final int GAME_HEADER = 22;
+
+    /**
+     * Length of the longest player record.
+     */
+    private static final int MAX_PLAYER_RECORD = 6 + 255;
+
+    /**
+     * Prefix of segment file names, followed by the segment number.
+     */
+    static final String PREFIX = "games-";
+
+    /**
+     * Suffix of segment file names.
+     */
+    static final String SUFFIX = ".log";
+
+    /**
+     * Size of the buffer records are collected in.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Directory of the segments.
+     */
+    private final Path directory;
+
+    /**
+     * Size at which a segment is closed.
+     */
+    private final long segmentSize;
+
+    /**
+     * Records not yet written.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Ids of the players in the current segment.
+     */
+    private final Map<String, Integer> players = new HashMap<>();
+
+    /**
+     * The current segment.
+     */
+    private FileChannel segment;
+
+    /**
+     * Number of the current segment.
+     */
+    private int segmentNumber;
+
+    /**
+     * Length of the current segment, including buffered records.
+     */
+    private long segmentLength;
+
+    /**
+     * Number of games written.
+     */
+    private long games;
+
+    /**
+     * Opens a writer with the default segment size.
+     *
+     * @param directory directory of the segments, created if needed.
+     *
+     * @throws IOException if the first segment cannot be created.
+     */
+    public GameRecordWriter(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens a writer. Its first segment is numbered after the segments
+     * already in the directory.
+     *
+     * @param directory directory of the segments, created if needed.
+     * @param segmentSize size at which a segment is closed and the next one
+     * started, at most MAX_SEGMENT_SIZE.
+     *
+     * @throws IOException if the first segment cannot be created.
+     */
+    public GameRecordWriter(Path directory, long segmentSize) throws IOException {
+        if (segmentSize < 1024 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("segment size out of range: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        List<Path> existing = GameRecordReader.segments(directory);
+        this.segmentNumber = existing.isEmpty() ? 0 : number(existing.get(existing.size() - 1));
+        startSegment();
+    }
+
+    /**
+     * Appends a finished game.
+     *
+     * @param type GameCodec.CONNECT4 or GameCodec.TICTACTOE.
+     * @param playerX name of the player who moved first.
+     * @param playerO name of the other player.
+     * @param result X_WON, O_WON or DRAW.
+     * @param moves the moves in order (Connect4 column 1-7 or TicTacToe space
+     * 0-8).
+     * @param moveCount number of moves.
+     * @param thinkMicros think time of each move in microseconds, or null.
+     * @param durationMicros length of the game in microseconds.
+     *
+     * @throws IOException if the record could not be written.
+     */
+    public synchronized void append(int type, String playerX, String playerO, int result, int[] moves,
+            int moveCount, int[] thinkMicros, long durationMicros) throws IOException {
+        if (result < X_WON || result > DRAW) throw new IllegalArgumentException("invalid result: " + result);
+        if (moveCount > 255) throw new IllegalArgumentException("too many moves: " + moveCount);
+        int length = GAME_HEADER + moveCount * (thinkMicros == null ? 1 : 5);
+        // room for two new players as well, so the game and its players go into one segment
+        ensureRoom(length + 2 * MAX_PLAYER_RECORD);
+        int idX = playerId(playerX);
+        int idO = playerId(playerO);
+
+        ByteBuffer out = this.buffer;
+        out.putShort((short) length);
+        out.put((byte) KIND_GAME);
+        out.put((byte) (type | (thinkMicros == null ? 0 : HAS_TIMES)));
+        out.put((byte) result);
+        out.put((byte) moveCount);
+        out.putShort((short) idX);
+        out.putShort((short) idO);
+        out.putLong(System.currentTimeMillis());
+        out.putInt((int) Math.min(durationMicros, Integer.MAX_VALUE));
+        for (int i = 0; i < moveCount; i++) out.put((byte) moves[i]);
+        if (thinkMicros != null) {
+            for (int i = 0; i < moveCount; i++) out.putInt(thinkMicros[i]);
+        }
+        this.segmentLength += length;
+        this.games++;
+    }
+
+    /**
+     * Appends a finished Connect4 game.
+     *
+     * @param playerX name of the player who moved first.
+     * @param playerO name of the other player.
+     * @param game the finished game.
+     * @param thinkMicros think time of each move in microseconds, or null.
+     * @param durationMicros length of the game in microseconds.
+     *
+     * @throws IOException if the record could not be written.
+     */
+    public void append(String playerX, String playerO, Connect4Logic game, int[] thinkMicros, long durationMicros)
+            throws IOException {
+        int count = game.getMoveCount();
+        int[] moves = new int[count];
+        for (int i = 0; i < count; i++) moves[i] = game.getMove(i);
+        int winner = game.checkLastMoveForWin();
+        int result = winner == 1 ? X_WON : winner == 2 ? O_WON : DRAW;
+        append(GameCodec.CONNECT4, playerX, playerO, result, moves, count, thinkMicros, durationMicros);
+    }
+
+    /**
+     * Appends a finished TicTacToe game in which X moved first.
+     *
+     * @param playerX name of the player who moved first.
+     * @param playerO name of the other player.
+     * @param game the finished game.
+     * @param thinkMicros think time of each move in microseconds, or null.
+     * @param durationMicros length of the game in microseconds.
+     *
+     * @throws IOException if the record could not be written.
+     */
+    public void append(String playerX, String playerO, TicTacToeLogic game, int[] thinkMicros, long durationMicros)
+            throws IOException {
+        int count = game.getMoveCount();
+        int[] moves = new int[count];
+        for (int i = 0; i < count; i++) moves[i] = game.getMove(i);
+        int result = TicTacToeLogic.hasLine(game.getMask('X')) ? X_WON
+                : TicTacToeLogic.hasLine(game.getMask('O')) ? O_WON : DRAW;
+        append(GameCodec.TICTACTOE, playerX, playerO, result, moves, count, thinkMicros, durationMicros);
+    }
+
+    /**
+     * Returns the number of games written.
+     *
+     * @return game count.
+     */
+    public synchronized long getGames() {
+        return this.games;
+    }
+
+    /**
+     * Writes the buffered records to the current segment.
+     *
+     * @throws IOException if the records could not be written.
+     */
+    public synchronized void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) this.segment.write(this.buffer);
+        this.buffer.clear();
+    }
+
+    /**
+     * Writes the buffered records, forces the segment to disk and closes
+     * it.
+     *
+     * @throws IOException if the records could not be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        this.segment.force(true);
+        this.segment.close();
+    }
+
+    /**
+     * private helper method that finds a player's id in the current segment,
+     * writing a player record if the player is new to it. The caller has
+     * made room for the record.
+     *
+     * @param name the player's name.
+     *
+     * @return the player's id.
+     */
+    private int playerId(String name) {
+        Integer id = this.players.get(name);
+        if (id != null) return id;
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 255) throw new IllegalArgumentException("player name too long: " + name);
+        int length = 6 + bytes.length;
+        id = this.players.size();
+        if (id > 0xFFFF) throw new IllegalStateException("too many players in one segment");
+        this.players.put(name, id);
+        this.buffer.putShort((short) length);
+        this.buffer.put((byte) KIND_PLAYER);
+        this.buffer.putShort((short) (int) id);
+        this.buffer.put((byte) bytes.length);
+        this.buffer.put(bytes);
+        this.segmentLength += length;
+        return id;
+    }
+
+    /**
+     * private helper method that makes room for a record: starts a new
+     * segment if the record would not fit in the current one, and writes the
+     * buffer out if the record would not fit in it.
+     *
+     * @param length length of the record.
+     *
+     * @throws IOException if the buffer could not be written.
+     */
+    private void ensureRoom(int length) throws IOException {
+        if (this.segmentLength + length > this.segmentSize && this.segmentLength > SEGMENT_HEADER) {
+            flush();
+            this.segment.close();
+            startSegment();
+        }
+        if (this.buffer.remaining() < length) flush();
+    }
+
+    /**
+     * private helper method that creates the next segment and writes its
+     * header.
+     *
+     * @throws IOException if the segment cannot be created.
+     */
+    private void startSegment() throws IOException {
+        this.segmentNumber++;
+        Path file = this.directory.resolve(String.format("%s%06d%s", PREFIX, this.segmentNumber, SUFFIX));
+        this.segment = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.players.clear();
+        this.buffer.put(MAGIC).putShort(VERSION);
+        this.segmentLength = SEGMENT_HEADER;
+    }
+
+    /**
+     * private helper method that reads the number of a segment from its file
+     * name.
+     *
+     * @param segment the segment file.
+     *
+     * @return segment number.
+     */
+    private static int number(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
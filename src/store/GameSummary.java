@@ -0,0 +1,386 @@
+package store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import core.Connect4Logic;
+import core.Connect4Symmetry;
+import tic.TicTacToeEngine;
+import tic.TicTacToeSymmetry;
+
+/**
+ * Counts collected by GameAnalytics from replayed game records, per game
+ * type: results, game lengths, results per opening and how often each
+ * losing move was played. Every count lives in a primitive array or a
+ * LongIntMap, so adding a game allocates nothing, and summaries collected on
+ * different threads are merged with add.
+ *
+ * An opening is the first moves of a game, up to the opening length. A
+ * losing move is the loser's last move, after which the winner won; it is
+ * counted by position and move, with positions that are mirror images (and,
+ * for TicTacToe, rotations) of each other counted as one.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class GameSummary {
+
+    /**
+     * Number of openings and losing moves in the report of each game type.
+     */
+    private static final int REPORT_ROWS = 10;
+
+    /**
+     * Games an opening needs to be in the report.
+     */
+    private static final int MIN_OPENING_GAMES = 10;
+
+    /**
+     * Names of the game types, by type.
+     */
+    private static final String[] TYPE_NAMES = {"connect4", "tictactoe"};
+
+    /**
+     * Number of moves of an opening.
+     */
+    private final int openingMoves;
+
+    /**
+     * Games by type and result (X_WON, O_WON, DRAW).
+     */
+    private final long[][] results = new long[2][3];
+
+    /**
+     * Games by type and number of moves.
+     */
+    private final long[][] lengths = new long[2][Connect4Logic.ROWS * Connect4Logic.COLUMNS + 1];
+
+    /**
+     * Games by opening and result, see openingKey.
+     */
+    private final LongIntMap openings = new LongIntMap(1024);
+
+    /**
+     * Losing moves by position and move, see losingMoveKey.
+     */
+    private final LongIntMap losingMoves = new LongIntMap(1 << 16);
+
+    /**
+     * Records that could not be replayed.
+     */
+    private long invalid;
+
+    /**
+     * Creates an empty summary.
+     *
+     * @param openingMoves number of moves of an opening, 1 to 8.
+     */
+    public GameSummary(int openingMoves) {
+        if (openingMoves < 1 || openingMoves > 8) {
+            throw new IllegalArgumentException("opening moves must be 1 to 8: " + openingMoves);
+        }
+        this.openingMoves = openingMoves;
+    }
+
+    /**
+     * Returns the number of moves of an opening.
+     *
+     * @return opening length.
+     */
+    public int getOpeningMoves() {
+        return this.openingMoves;
+    }
+
+    /**
+     * Returns the number of games of a type.
+     *
+     * @param type GameCodec.CONNECT4 or GameCodec.TICTACTOE.
+     *
+     * @return game count.
+     */
+    public long getGames(int type) {
+        return this.results[type][0] + this.results[type][1] + this.results[type][2];
+    }
+
+    /**
+     * Returns the number of games of a type with a result.
+     *
+     * @param type GameCodec.CONNECT4 or GameCodec.TICTACTOE.
+     * @param result GameRecordWriter.X_WON, O_WON or DRAW.
+     *
+     * @return game count.
+     */
+    public long getResults(int type, int result) {
+        return this.results[type][result];
+    }
+
+    /**
+     * Returns the average number of moves of the games of a type.
+     *
+     * @param type GameCodec.CONNECT4 or GameCodec.TICTACTOE.
+     *
+     * @return average game length, 0 if there are no games.
+     */
+    public double getAverageLength(int type) {
+        long games = 0;
+        long moves = 0;
+        for (int length = 0; length < this.lengths[type].length; length++) {
+            games += this.lengths[type][length];
+            moves += length * this.lengths[type][length];
+        }
+        return games == 0 ? 0 : (double) moves / games;
+    }
+
+    /**
+     * Returns the number of records that could not be replayed: illegal
+     * moves, or a result the moves do not lead to.
+     *
+     * @return invalid record count.
+     */
+    public long getInvalid() {
+        return this.invalid;
+    }
+
+    /**
+     * Counts a game.
+     *
+     * @param type GameCodec.CONNECT4 or GameCodec.TICTACTOE.
+     * @param result GameRecordWriter.X_WON, O_WON or DRAW.
+     * @param moveCount number of moves.
+     * @param opening the first moves packed 4 bits each, first move lowest.
+     * @param losingMove key of the losing move from losingMoveKey, or -1 for
+     * a draw.
+     */
+    void addGame(int type, int result, int moveCount, long opening, long losingMove) {
+        this.results[type][result]++;
+        this.lengths[type][moveCount]++;
+        int length = Math.min(moveCount, this.openingMoves);
+        long openingMask = (1L << (4 * length)) - 1;
+        this.openings.add(openingKey(type, length, opening & openingMask, result), 1);
+        if (losingMove >= 0) this.losingMoves.add(losingMove, 1);
+    }
+
+    /**
+     * Counts a record that could not be replayed.
+     */
+    void addInvalid() {
+        this.invalid++;
+    }
+
+    /**
+     * Adds the counts of another summary to this one.
+     *
+     * @param other summary with the same opening length.
+     */
+    public void add(GameSummary other) {
+        if (other.openingMoves != this.openingMoves) throw new IllegalArgumentException("opening lengths differ");
+        for (int type = 0; type < 2; type++) {
+            for (int i = 0; i < 3; i++) this.results[type][i] += other.results[type][i];
+            for (int i = 0; i < this.lengths[type].length; i++) this.lengths[type][i] += other.lengths[type][i];
+        }
+        this.openings.addAll(other.openings);
+        this.losingMoves.addAll(other.losingMoves);
+        this.invalid += other.invalid;
+    }
+
+    /**
+     * Makes the key of a losing Connect4 move.
+     *
+     * @param positionKey key of the position before the move, from
+     * Connect4Logic.getPositionKey.
+     * @param col column (1-7) of the move.
+     *
+     * @return the key, shared with the mirrored move.
+     */
+    static long connect4LosingMove(long positionKey, int col) {
+        if (Connect4Symmetry.isMirrored(positionKey)) col = Connect4Logic.COLUMNS + 1 - col;
+        return (Connect4Symmetry.canonicalKey(positionKey) << 4 | col) << 1 | GameCodec.CONNECT4;
+    }
+
+    /**
+     * Makes the key of a losing TicTacToe move.
+     *
+     * @param position index of the position before the move (see
+     * TicTacToeEngine).
+     * @param cell space (0-8) of the move.
+     *
+     * @return the key, shared with the moves of the position's rotations and
+     * mirror images.
+     */
+    static long ticTacToeLosingMove(int position, int cell) {
+        int canonical = TicTacToeSymmetry.canonical(position);
+        long key = TicTacToeSymmetry.key(canonical);
+        int move = TicTacToeSymmetry.toCanonical(cell, TicTacToeSymmetry.transform(canonical));
+        return (key << 4 | move) << 1 | GameCodec.TICTACTOE;
+    }
+
+    /**
+     * Formats the summary: results and average length of each game type, the
+     * most played openings with their results and the most common losing
+     * moves.
+     *
+     * @return the report.
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int type = 0; type < 2; type++) {
+            long games = getGames(type);
+            if (games == 0) continue;
+            text.append(String.format("%s: %d games, X won %.1f%%, O won %.1f%%, drawn %.1f%%, %.2f moves on average%n",
+                    TYPE_NAMES[type], games, percent(this.results[type][0], games),
+                    percent(this.results[type][1], games), percent(this.results[type][2], games),
+                    getAverageLength(type)));
+            appendOpenings(text, type);
+            appendLosingMoves(text, type);
+            text.append(String.format("%n"));
+        }
+        if (this.invalid > 0) text.append(String.format("%d records could not be replayed%n", this.invalid));
+        return text.toString();
+    }
+
+    /**
+     * private helper method that adds the most played openings of a game
+     * type to the report.
+     *
+     * @param text the report.
+     * @param type the game type.
+     */
+    private void appendOpenings(StringBuilder text, int type) {
+        // one row per opening: key without the result, then games by result
+        LongIntMap rows = new LongIntMap(256);
+        List<long[]> openings = new ArrayList<>();
+        this.openings.forEach((key, games) -> {
+            if ((key >>> 38 & 1) != type) return;
+            long opening = key >>> 2;
+            int row = rows.get(opening);
+            if (row == LongIntMap.MISSING) {
+                row = openings.size();
+                rows.put(opening, row);
+                openings.add(new long[] {opening, 0, 0, 0, 0});
+            }
+            long[] counts = openings.get(row);
+            counts[1 + (int) (key & 3)] += games;
+            counts[4] += games;
+        });
+        openings.removeIf(counts -> counts[4] < MIN_OPENING_GAMES);
+        openings.sort((a, b) -> Long.compare(b[4], a[4]));
+        text.append(String.format("  most played openings (first %d moves):%n", this.openingMoves));
+        text.append(String.format("    %-18s %10s %7s %7s %7s%n", "moves", "games", "X won", "O won", "drawn"));
+        for (long[] counts : openings.subList(0, Math.min(REPORT_ROWS, openings.size()))) {
+            int length = (int) (counts[0] >>> 32 & 0xF);
+            StringBuilder moves = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                if (i > 0) moves.append(' ');
+                moves.append(counts[0] >>> (4 * i) & 0xF);
+            }
+            text.append(String.format("    %-18s %10d %6.1f%% %6.1f%% %6.1f%%%n", moves, counts[4],
+                    percent(counts[1], counts[4]), percent(counts[2], counts[4]), percent(counts[3], counts[4])));
+        }
+    }
+
+    /**
+     * private helper method that adds the most common losing moves of a
+     * game type to the report.
+     *
+     * @param text the report.
+     * @param type the game type.
+     */
+    private void appendLosingMoves(StringBuilder text, int type) {
+        List<long[]> moves = new ArrayList<>();
+        this.losingMoves.forEach((key, games) -> {
+            if ((key & 1) == type) moves.add(new long[] {key >>> 1, games});
+        });
+        moves.sort((a, b) -> Long.compare(b[1], a[1]));
+        text.append(String.format("  most common losing moves (board before the move, top row first):%n"));
+        for (long[] move : moves.subList(0, Math.min(REPORT_ROWS, moves.size()))) {
+            long position = move[0] >>> 4;
+            int played = (int) (move[0] & 0xF);
+            String board = type == GameCodec.CONNECT4 ? connect4Board(position) : ticTacToeBoard((int) position);
+            text.append(String.format("    %s %s %d, %d games%n", board,
+                    type == GameCodec.CONNECT4 ? "column" : "space", played, move[1]));
+        }
+    }
+
+    /**
+     * private helper method that draws a Connect4 position key on one line,
+     * rows separated by '|'.
+     *
+     * @param key position key (see Connect4Logic.getPositionKey).
+     *
+     * @return the board.
+     */
+    private static String connect4Board(long key) {
+        int bits = Connect4Logic.ROWS + 1;
+        char[][] rows = new char[Connect4Logic.ROWS][Connect4Logic.COLUMNS];
+        int pieces = 0;
+        for (int col = 0; col < Connect4Logic.COLUMNS; col++) {
+            long column = key >>> (col * bits) & ((1L << bits) - 1);
+            pieces += 63 - Long.numberOfLeadingZeros(column);
+        }
+        // the key holds the pieces of the player to move below a marker bit on top of each column
+        char toMove = pieces % 2 == 0 ? 'X' : 'O';
+        char other = toMove == 'X' ? 'O' : 'X';
+        for (int col = 0; col < Connect4Logic.COLUMNS; col++) {
+            long column = key >>> (col * bits) & ((1L << bits) - 1);
+            int height = 63 - Long.numberOfLeadingZeros(column);
+            for (int row = 0; row < Connect4Logic.ROWS; row++) {
+                char piece = row >= height ? '.' : (column >>> row & 1) != 0 ? toMove : other;
+                rows[Connect4Logic.ROWS - 1 - row][col] = piece;
+            }
+        }
+        StringBuilder board = new StringBuilder();
+        for (char[] row : rows) {
+            if (board.length() > 0) board.append('|');
+            board.append(row);
+        }
+        return board.toString();
+    }
+
+    /**
+     * private helper method that draws a TicTacToe position on one line, rows
+     * separated by '|'.
+     *
+     * @param position index of the position (see TicTacToeEngine).
+     *
+     * @return the board.
+     */
+    private static String ticTacToeBoard(int position) {
+        StringBuilder board = new StringBuilder();
+        for (int cell = 0; cell < 9; cell++) {
+            if (cell > 0 && cell % 3 == 0) board.append('|');
+            int piece = TicTacToeEngine.cellAt(position, cell);
+            board.append(piece == TicTacToeEngine.X ? 'X' : piece == TicTacToeEngine.O ? 'O' : '.');
+        }
+        return board.toString();
+    }
+
+    /**
+     * private helper method that makes the key of an opening and result:
+     * type (bit 38), number of moves (bits 34-37), moves (bits 2-33, 4 bits
+     * each) and result (bits 0-1).
+     *
+     * @param type the game type.
+     * @param length number of moves of the opening.
+     * @param moves the moves packed 4 bits each.
+     * @param result the result.
+     *
+     * @return the key.
+     */
+    private static long openingKey(int type, int length, long moves, int result) {
+        return (((long) type << 4 | length) << 32 | moves) << 2 | result;
+    }
+
+    /**
+     * private helper method that gives a count as a percentage of a total.
+     *
+     * @param count the count.
+     * @param total the total.
+     *
+     * @return the percentage, 0 if the total is 0.
+     */
+    private static double percent(long count, long total) {
+        return total == 0 ? 0 : 100.0 * count / total;
+    }
+}
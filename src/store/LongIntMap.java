@@ -0,0 +1,178 @@
+package store;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from long keys to int values with open addressing and linear
+ * probing in two primitive arrays, so adding and looking up keys does not
+ * box them or allocate per entry. Entries cannot be removed.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class LongIntMap {
+
+    /**
+     * Value returned by get for keys that are not in the map.
+     */
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    /**
+     * Largest fill ratio before the arrays are doubled.
+     */
+    private static final double LOAD_FACTOR = 0.6;
+
+    /**
+     * Keys of the slots.
+     */
+    private long[] keys;
+
+    /**
+     * Values of the slots, MISSING for empty slots.
+     */
+    private int[] values;
+
+    /**
+     * Number of entries.
+     */
+    private int size;
+
+    /**
+     * Constructor for LongIntMap.
+     *
+     * @param expected number of entries expected, to size the arrays.
+     */
+    public LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit((int) Math.max(16, expected / LOAD_FACTOR) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(this.values, MISSING);
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key the key.
+     *
+     * @return the value, or MISSING if the key is not in the map.
+     */
+    public int get(long key) {
+        int mask = this.keys.length - 1;
+        for (int slot = slot(key, mask); this.values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (this.keys[slot] == key) return this.values[slot];
+        }
+        return MISSING;
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key the key.
+     * @param value the value, anything but MISSING.
+     */
+    public void put(long key, int value) {
+        if (value == MISSING) throw new IllegalArgumentException("value cannot be MISSING");
+        int mask = this.keys.length - 1;
+        int slot = slot(key, mask);
+        while (this.values[slot] != MISSING) {
+            if (this.keys[slot] == key) {
+                this.values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        if (++this.size > this.keys.length * LOAD_FACTOR) grow();
+    }
+
+    /**
+     * Adds to the value of a key, starting from 0 for a new key.
+     *
+     * @param key the key.
+     * @param delta amount to add.
+     *
+     * @return the new value.
+     */
+    public int add(long key, int delta) {
+        int value = get(key);
+        value = value == MISSING ? delta : value + delta;
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Adds every value of another map to the value of the same key in this
+     * map, for merging counts collected on several threads.
+     *
+     * @param other the map to add.
+     */
+    public void addAll(LongIntMap other) {
+        other.forEach(this::add);
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return entry count.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Receives the entries of a map.
+     */
+    public interface Visitor {
+
+        /**
+         * Called once for each entry.
+         *
+         * @param key the entry's key.
+         * @param value the entry's value.
+         */
+        void visit(long key, int value);
+    }
+
+    /**
+     * Calls a visitor for every entry, in no particular order.
+     *
+     * @param visitor the visitor.
+     */
+    public void forEach(Visitor visitor) {
+        for (int slot = 0; slot < this.keys.length; slot++) {
+            if (this.values[slot] != MISSING) visitor.visit(this.keys[slot], this.values[slot]);
+        }
+    }
+
+    /**
+     * private helper method that doubles the arrays and puts every entry
+     * back.
+     */
+    private void grow() {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.keys = new long[oldKeys.length * 2];
+        this.values = new int[oldValues.length * 2];
+        Arrays.fill(this.values, MISSING);
+        this.size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != MISSING) put(oldKeys[slot], oldValues[slot]);
+        }
+    }
+
+    /**
+     * private helper method that finds the first slot to probe for a key,
+     * mixing the key's bits so sequential keys spread over the table.
+     *
+     * @param key the key.
+     * @param mask table size minus 1.
+     *
+     * @return slot index.
+     */
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
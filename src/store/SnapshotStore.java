@@ -0,0 +1,636 @@
+package store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import core.Connect4Logic;
+import tic.TicTacToeLogic;
+
+/**
+ * Append-only file of game snapshots, for saving games in progress and
+ * restoring them after a restart. Every save appends a record with the
+ * game's session id and its GameCodec encoding; the last record of a session
+ * wins, and a removal record marks a finished game.
+ *
+ * Records are collected in memory and a background thread writes them and
+ * forces them to disk every sync interval, so many saves share one fsync.
+ * save returns a sequence number that awaitDurable waits for when a caller
+ * needs to know the record is on disk.
+ *
+ * A record is: a length byte (of the rest without the checksum), a flags
+ * byte (game type in bits 0-1, bit 7 for removal), the session id as an
+ * unsigned varint, the game's encoding (not in removal records) and a
+ * CRC32C of everything before it, little endian. A Connect4 game of 20 moves
+ * takes about 17 bytes. A record cut short by a crash fails its checksum;
+ * the file is cut back to the last good record when it is opened again.
+ *
+ * Usage: java store.SnapshotStore file [compact] prints what a file would
+ * restore, and compacts it if asked.
+ *
+ * @author Borys Banaszkiewicz
+ * @version 1.0
+ *
+ */
+public class SnapshotStore implements Closeable {
+
+    /**
+     * Time between fsyncs in milliseconds when none is given.
+     */
+    public static final long DEFAULT_SYNC_INTERVAL = 10;
+
+    /**
+     * Longest record: length, flags, a 10 byte varint, an encoding and the
+     * checksum.
+     */
+    static final int MAX_RECORD = 1 + 1 + 10 + GameCodec.MAX_LENGTH + 4;
+
+    /**
+     * Flag of a removal record.
+     */
+    private static final int REMOVED = 0x80;
+
+    /**
+     * Size of the buffers records are collected in.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Time between fsyncs in milliseconds.
+     */
+    private final long syncInterval;
+
+    /**
+     * Records not yet written to the file, guarded by this.
+     */
+    private final ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Encodes one record at a time, guarded by this.
+     */
+    private final byte[] record = new byte[MAX_RECORD];
+
+    /**
+     * Computes record checksums, guarded by this.
+     */
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * Sequence number of the last record saved.
+     */
+    private long appended;
+
+    /**
+     * Sequence number of the last record forced to disk.
+     */
+    private long synced;
+
+    /**
+     * Number of callers waiting in awaitDurable.
+     */
+    private int waiters;
+
+    /**
+     * Failure of the sync thread, reported to later callers.
+     */
+    private IOException failure;
+
+    /**
+     * True until the store is closed.
+     */
+    private boolean open = true;
+
+    /**
+     * Thread writing and forcing the records.
+     */
+    private final Thread syncThread;
+
+    /**
+     * Opens a store with the default sync interval.
+     *
+     * @param file the file, created if it does not exist.
+     *
+     * @throws IOException if the file cannot be opened.
+     */
+    public SnapshotStore(Path file) throws IOException {
+        this(file, DEFAULT_SYNC_INTERVAL);
+    }
+
+    /**
+     * Opens a store. A damaged end of the file (a record cut short by a
+     * crash) is cut off.
+     *
+     * @param file the file, created if it does not exist.
+     * @param syncInterval time between fsyncs in milliseconds.
+     *
+     * @throws IOException if the file cannot be opened.
+     */
+    public SnapshotStore(Path file, long syncInterval) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.syncInterval = syncInterval;
+        long end = scan(this.channel, null);
+        if (end < this.channel.size()) this.channel.truncate(end);
+        this.channel.position(end);
+        this.syncThread = new Thread(this::syncLoop, "snapshot-sync");
+        this.syncThread.setDaemon(true);
+        this.syncThread.start();
+    }
+
+    /**
+     * Saves a Connect4 game.
+     *
+     * @param session session id of the game.
+     * @param game the game.
+     *
+     * @return sequence number of the record, for awaitDurable.
+     *
+     * @throws IOException if the store failed or is closed.
+     */
+    public synchronized long save(long session, Connect4Logic game) throws IOException {
+        int start = header(GameCodec.CONNECT4, session);
+        return append(GameCodec.encode(game, this.record, start));
+    }
+
+    /**
+     * Saves a TicTacToe game.
+     *
+     * @param session session id of the game.
+     * @param game the game.
+     *
+     * @return sequence number of the record, for awaitDurable.
+     *
+     * @throws IOException if the store failed or is closed.
+     */
+    public synchronized long save(long session, TicTacToeLogic game) throws IOException {
+        int start = header(GameCodec.TICTACTOE, session);
+        return append(GameCodec.encode(game, this.record, start));
+    }
+
+    /**
+     * Marks a session's game as finished, so it is not restored.
+     *
+     * @param session session id of the game.
+     *
+     * @return sequence number of the record, for awaitDurable.
+     *
+     * @throws IOException if the store failed or is closed.
+     */
+    public synchronized long remove(long session) throws IOException {
+        return append(header(REMOVED, session));
+    }
+
+    /**
+     * Waits until a record is forced to disk.
+     *
+     * @param sequence sequence number returned by save or remove.
+     *
+     * @throws IOException if the store failed or was closed first.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public synchronized void awaitDurable(long sequence) throws IOException, InterruptedException {
+        this.waiters++;
+        try {
+            while (this.synced < sequence) {
+                check();
+                notifyAll();
+                wait();
+            }
+        }
+        finally {
+            this.waiters--;
+        }
+    }
+
+    /**
+     * Writes all saved records and forces them to disk.
+     *
+     * @throws IOException if the store failed or is closed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void sync() throws IOException, InterruptedException {
+        long sequence;
+        synchronized (this) {
+            sequence = this.appended;
+        }
+        awaitDurable(sequence);
+    }
+
+    /**
+     * Writes and forces all saved records and closes the file.
+     *
+     * @throws IOException if the last records could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            synchronized (this) {
+                this.open = false;
+                notifyAll();
+            }
+            try {
+                this.syncThread.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Games restored from a snapshot file.
+     */
+    public static class Restored {
+
+        /**
+         * Connect4 games by session id.
+         */
+        private final Map<Long, Connect4Logic> connect4 = new HashMap<>();
+
+        /**
+         * TicTacToe games by session id.
+         */
+        private final Map<Long, TicTacToeLogic> ticTacToe = new HashMap<>();
+
+        /**
+         * Number of good records in the file.
+         */
+        private long records;
+
+        /**
+         * Length of the good part of the file.
+         */
+        private long bytes;
+
+        /**
+         * Largest session id in the file.
+         */
+        private long maxSession = -1;
+
+        /**
+         * Number of games whose last record could not be decoded.
+         */
+        private int skipped;
+
+        /**
+         * Returns the restored Connect4 games.
+         *
+         * @return games by session id.
+         */
+        public Map<Long, Connect4Logic> getConnect4Games() {
+            return this.connect4;
+        }
+
+        /**
+         * Returns the restored TicTacToe games.
+         *
+         * @return games by session id.
+         */
+        public Map<Long, TicTacToeLogic> getTicTacToeGames() {
+            return this.ticTacToe;
+        }
+
+        /**
+         * Returns the number of good records read, including older
+         * snapshots of the same games and removals.
+         *
+         * @return record count.
+         */
+        public long getRecords() {
+            return this.records;
+        }
+
+        /**
+         * Returns the length of the good part of the file.
+         *
+         * @return length in bytes.
+         */
+        public long getBytes() {
+            return this.bytes;
+        }
+
+        /**
+         * Returns the largest session id seen, so new sessions can be
+         * numbered after it.
+         *
+         * @return session id, or -1 if the file is empty.
+         */
+        public long getMaxSession() {
+            return this.maxSession;
+        }
+
+        /**
+         * Returns the number of games left out because their last record
+         * passed its checksum but is not a legal game, such as a Connect4
+         * game saved with moves after a win.
+         *
+         * @return skipped game count.
+         */
+        public int getSkipped() {
+            return this.skipped;
+        }
+    }
+
+    /**
+     * Restores the games in progress from a snapshot file: the last record
+     * of every session that was not removed. The file is not changed; a
+     * damaged end is ignored, and a game whose record cannot be decoded is
+     * skipped and counted without stopping the restore.
+     *
+     * @param file the file.
+     *
+     * @return the restored games, none if the file does not exist.
+     *
+     * @throws IOException if the file cannot be read.
+     */
+    public static Restored restore(Path file) throws IOException {
+        Restored restored = new Restored();
+        if (!Files.exists(file)) return restored;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            LongIntMap last = new LongIntMap(1 << 12);
+            restored.bytes = scan(channel, (session, position) -> {
+                last.put(session, position);
+                restored.records++;
+                restored.maxSession = Math.max(restored.maxSession, session);
+            });
+            if (restored.bytes == 0) return restored;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, restored.bytes);
+            byte[] bytes = new byte[MAX_RECORD];
+            last.forEach((session, position) -> {
+                int length = buffer.get(position) & 0xFF;
+                buffer.get(position + 1, bytes, 0, length);
+                int flags = bytes[0] & 0xFF;
+                if ((flags & REMOVED) != 0) return;
+                int offset = 1 + varintLength(bytes, 1);
+                try {
+                    if (flags == GameCodec.CONNECT4) {
+                        restored.connect4.put(session, GameCodec.decodeConnect4(bytes, offset));
+                    }
+                    else if (flags == GameCodec.TICTACTOE) {
+                        restored.ticTacToe.put(session, GameCodec.decodeTicTacToe(bytes, offset));
+                    }
+                }
+                catch (IllegalArgumentException e) {
+                    restored.skipped++;
+                }
+            });
+        }
+        return restored;
+    }
+
+    /**
+     * Rewrites a snapshot file with only the last record of each game in
+     * progress, then swaps it in with an atomic rename. Games that restore
+     * skips are dropped. The file must not be open in a store.
+     *
+     * @param file the file.
+     *
+     * @return the games that were kept.
+     *
+     * @throws IOException if the file cannot be read or written.
+     */
+    public static Restored compact(Path file) throws IOException {
+        Restored restored = restore(file);
+        Path temporary = file.resolveSibling(file.getFileName() + ".compact");
+        Files.deleteIfExists(temporary);
+        try (SnapshotStore store = new SnapshotStore(temporary)) {
+            for (Map.Entry<Long, Connect4Logic> game : restored.connect4.entrySet()) {
+                store.save(game.getKey(), game.getValue());
+            }
+            for (Map.Entry<Long, TicTacToeLogic> game : restored.ticTacToe.entrySet()) {
+                store.save(game.getKey(), game.getValue());
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return restored;
+    }
+
+    /**
+     * private helper method that starts a record in the record array: the
+     * flags byte and the session id, leaving byte 0 for the length.
+     *
+     * @param flags game type or REMOVED.
+     * @param session session id.
+     *
+     * @return index after the session id.
+     */
+    private int header(int flags, long session) {
+        this.record[1] = (byte) flags;
+        int offset = 2;
+        long value = session;
+        while ((value & ~0x7FL) != 0) {
+            this.record[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.record[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * private helper method that finishes the record in the record array
+     * and adds it to the pending buffer, writing the buffer out first if it
+     * is full.
+     *
+     * @param end index after the record's last byte before the checksum.
+     *
+     * @return sequence number of the record.
+     *
+     * @throws IOException if the store failed or is closed, or the full
+     * buffer could not be written.
+     */
+    private long append(int end) throws IOException {
+        check();
+        this.record[0] = (byte) (end - 1);
+        this.crc.reset();
+        this.crc.update(this.record, 0, end);
+        int checksum = (int) this.crc.getValue();
+        for (int i = 0; i < 4; i++) this.record[end + i] = (byte) (checksum >>> (8 * i));
+        if (this.pending.remaining() < end + 4) writePending();
+        this.pending.put(this.record, 0, end + 4);
+        return ++this.appended;
+    }
+
+    /**
+     * private helper method that throws if the store can no longer be used.
+     *
+     * @throws IOException if the sync thread failed or the store is closed.
+     */
+    private void check() throws IOException {
+        if (this.failure != null) throw new IOException("snapshot store failed", this.failure);
+        if (!this.open) throw new IOException("snapshot store is closed");
+    }
+
+    /**
+     * private helper method that writes the pending records to the file.
+     * Only called while holding this, so records reach the file in the order
+     * they were saved.
+     *
+     * @throws IOException if the records could not be written.
+     */
+    private void writePending() throws IOException {
+        this.pending.flip();
+        while (this.pending.hasRemaining()) this.channel.write(this.pending);
+        this.pending.clear();
+    }
+
+    /**
+     * private helper method run by the sync thread: once every sync
+     * interval, or right away while a caller is waiting for a record, writes
+     * the pending records and forces the file, then wakes the callers waiting
+     * for them. Records saved while the file is being forced go into the next
+     * batch.
+     */
+    private void syncLoop() {
+        while (true) {
+            long sequence;
+            try {
+                synchronized (this) {
+                    if (this.waiters == 0 && this.open) wait(Math.max(1, this.syncInterval));
+                    if (this.synced == this.appended) {
+                        if (!this.open) return;
+                        continue;
+                    }
+                    writePending();
+                    sequence = this.appended;
+                }
+                this.channel.force(false);
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+            catch (IOException e) {
+                synchronized (this) {
+                    this.failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            synchronized (this) {
+                this.synced = sequence;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Receives the good records of a file.
+     */
+    private interface RecordVisitor {
+
+        /**
+         * Called for every good record, in file order.
+         *
+         * @param session session id of the record.
+         * @param position position of the record's length byte.
+         */
+        void visit(long session, int position);
+    }
+
+    /**
+     * private helper method that reads the records of a file in order,
+     * checking their checksums, until the end of the file or the first
+     * damaged record.
+     *
+     * @param channel the file.
+     * @param visitor called for every good record, or null.
+     *
+     * @return length of the good part of the file.
+     *
+     * @throws IOException if the file cannot be read, or is too large.
+     */
+    private static long scan(FileChannel channel, RecordVisitor visitor) throws IOException {
+        long size = channel.size();
+        if (size == 0) return 0;
+        if (size > Integer.MAX_VALUE) throw new IOException("snapshot file too large, compact it: " + size);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        byte[] bytes = new byte[MAX_RECORD];
+        CRC32C crc = new CRC32C();
+        int position = 0;
+        while (position < size) {
+            int length = buffer.get(position) & 0xFF;
+            if (length < 2 || length + 5 > MAX_RECORD || position + length + 5 > size) break;
+            buffer.get(position, bytes, 0, length + 1);
+            crc.reset();
+            crc.update(bytes, 0, length + 1);
+            if ((int) crc.getValue() != buffer.getInt(position + length + 1)) break;
+            if (visitor != null) visitor.visit(readVarint(bytes, 2), position);
+            position += length + 5;
+        }
+        return position;
+    }
+
+    /**
+     * private helper method that reads an unsigned varint.
+     *
+     * @param bytes array holding the varint.
+     * @param offset index of its first byte.
+     *
+     * @return the value.
+     */
+    private static long readVarint(byte[] bytes, int offset) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[offset++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    /**
+     * private helper method that measures an unsigned varint.
+     *
+     * @param bytes array holding the varint.
+     * @param offset index of its first byte.
+     *
+     * @return its length in bytes.
+     */
+    private static int varintLength(byte[] bytes, int offset) {
+        int length = 1;
+        while (bytes[offset + length - 1] < 0) length++;
+        return length;
+    }
+
+    /**
+     * Prints what a snapshot file would restore, and compacts it if the
+     * second argument is "compact".
+     *
+     * @param args the file, and optionally "compact".
+     *
+     * @throws IOException if the file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: java store.SnapshotStore file [compact]");
+            return;
+        }
+        Path file = Path.of(args[0]);
+        long start = System.nanoTime();
+        Restored restored = args.length > 1 && args[1].equals("compact") ? compact(file) : restore(file);
+        System.out.printf("%d records, %d bytes: %d Connect4 and %d TicTacToe games (%d skipped) in %.1f ms%n",
+                restored.getRecords(), restored.getBytes(), restored.getConnect4Games().size(),
+                restored.getTicTacToeGames().size(), restored.getSkipped(), (System.nanoTime() - start) / 1e6);
+    }
+}
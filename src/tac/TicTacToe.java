@@ -12,6 +12,7 @@ import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Line;
 import javafx.scene.shape.Ellipse;
+import tic.TicTacToeLogic;
 
 public class TicTacToe extends Application 
 {
@@ -61,34 +62,14 @@ public class TicTacToe extends Application
     /** Determine if the player with the specified token wins */
     public boolean isWon(char token) 
     {
+ 	int mask = 0;
  	for (int i = 0; i < 3; i++)
- 	    if (cell[i][0].getToken() == token
- 		&& cell[i][1].getToken() == token
- 		&& cell[i][2].getToken() == token) {
-		return true;
-    }
- 
-    for (int j = 0; j < 3; j++)
-    	if (cell[0][j].getToken() == token
-		&& cell[1][j].getToken() == token
-		&& cell[2][j].getToken() == token) {
-		return true;
-	}
-
- 	if (cell[0][0].getToken() == token
- 		&& cell[1][1].getToken() == token
- 		&& cell[2][2].getToken() == token) {
- 		return true;
- 	}
+ 	    for (int j = 0; j < 3; j++)
+ 		if (cell[i][j].getToken() == token)
+ 		    mask |= 1 << (i * 3 + j);
 
- 	if (cell[0][2].getToken() == token
- 		&& cell[1][1].getToken() == token
- 		&& cell[2][0].getToken() == token) {
- 		return true;
-	}
-
- 	return false;
-     }
+ 	return TicTacToeLogic.hasLine(mask);
+    }
     
     public static void main(String[] args) {
         launch(args);
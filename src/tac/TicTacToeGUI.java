@@ -8,6 +8,7 @@
 
 package tac;
 
+import tic.TicTacToeListener;
 import tic.TicTacToeLogic;
 
 import javafx.application.Application;
@@ -21,7 +22,7 @@ import javafx.geometry.*;
 import javafx.event.*;
 import javafx.scene.text.*;
 
-public class TicTacToeGUI extends Application {
+public class TicTacToeGUI extends Application implements TicTacToeListener {
 	
 	final static int ROWS = 3;
 	final static int COLUMNS = 3;
@@ -154,11 +155,43 @@ public class TicTacToeGUI extends Application {
 		}
 	}
 
+	/**
+	 * Tells the player the space is taken.
+	 * 
+	 * @param player: char of player who made the move
+	 * @param move: String of the move in the format 3a
+	 */
+	public void spaceOccupied(char player, String move) {
+		MESSAGE.setText("The space " + move + " is occupied" +
+				"\nPlayer" + player + " please make a different selection.");
+	}
+	
+	/**
+	 * Tells the player the move is not in the right format.
+	 * 
+	 * @param player: char of player who made the move
+	 * @param move: String the player entered
+	 */
+	public void invalidFormat(char player, String move) {
+		MESSAGE.setText("Invalid move. Player" + player + " please try again.");
+	}
+	
+	/**
+	 * Shows the computer player's move.
+	 * 
+	 * @param player: char of the computer player
+	 * @param move: String of the move in the format 3a
+	 */
+	public void computerMoved(char player, String move) {
+		MOVE.setText(">> " + move);
+	}
+
 	/**
 	 * Calls methods to create game stage and opponent stage, then shows them.
 	 */
 	private void playGuiGame() {
-		logic = new TicTacToeLogic(false); //create logic for GUI
+		logic = new TicTacToeLogic(); //create logic for GUI
+		logic.setListener(this); //GUI shows invalid moves and computer moves
 		MESSAGE.setText("PlayerX - your turn\n"); //set MESSAGE
 		gameStage = createGameStage(); //set game stage		see line 209
 		Stage opponentStage = createOpponentStage(); //set opponent stage	see line 174
@@ -410,7 +443,7 @@ public class TicTacToeGUI extends Application {
 					MESSAGE.setText("Player" + currentPlayer + " - your turn!"); //set MESSAGE
 				}
 				else { //if player X is playing against the computer
-					move = logic.getComputerPlayer().makeMove(logic, false); //computer takes turn
+					move = logic.getComputerPlayer().makeMove(logic); //computer takes turn
 					updateGuiBoard(logic.getBoard()); //update the GUI board	see line 438
 					if (logic.playerWon(currentPlayer, move) == true) { //if computer won
 						MOVE.setText(""); //set MOVE
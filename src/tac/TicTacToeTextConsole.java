@@ -7,65 +7,91 @@
 
 package tac;
 
+import tic.TicTacToeListener;
 import tic.TicTacToeLogic;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.util.Scanner;
 
-public class TicTacToeTextConsole {
+public class TicTacToeTextConsole implements TicTacToeListener {
 	private TicTacToeLogic logic;
 	private Scanner scanner;
+	private PrintStream out;
 	
 	/**
 	 * Initializes TicTacToeTextConsole class variables needed
-	 * outside of main method.
+	 * outside of main method, playing on System.in and System.out.
 	 * scanner: Scanner for user input
 	 * logic: CheckersLogic type that links text console to the logic
 	 */
 	public TicTacToeTextConsole() {
-		scanner = new Scanner(System.in);
-		logic = new TicTacToeLogic(true);
+		this(System.in, System.out);
 	}
 	
 	/**
-	 * Method that runs the text console.
+	 * Initializes a text console that reads the players' input from a
+	 * stream and prints to another, for example the streams of a socket.
+	 * 
+	 * @param in: stream the players' input is read from
+	 * @param out: stream the board and messages are printed to
+	 */
+	public TicTacToeTextConsole(InputStream in, PrintStream out) {
+		scanner = new Scanner(in);
+		this.out = out;
+		logic = new TicTacToeLogic();
+	}
+	
+	/**
+	 * Method that runs the text console on System.in and System.out.
 	 */
 	public static void textConsoleTicTacToe() {
-		TicTacToeTextConsole textBoard = new TicTacToeTextConsole();
+		new TicTacToeTextConsole().play();
+	}
+	
+	/**
+	 * Runs one game on the console's streams, then closes the input.
+	 * 
+	 * @throws java.util.NoSuchElementException if the input ends before the game is over
+	 */
+	public void play() {
 		boolean quit = false;
 		boolean computerPlayer = false;
 		char currentPlayer = 'X';
 		char nextPlayer = 'O';
 		String move = "";
 		
-		printBoard(textBoard.logic.getBoard());
-		computerPlayer = textBoard.getPlayAgainst();
+		logic.setListener(this);
+		printBoard(logic.getBoard(), out);
+		computerPlayer = getPlayAgainst();
 		if (computerPlayer == true) {
-			textBoard.logic.createComputerPlayer();
-			textBoard.printStartGameAgainstComputer();
+			logic.createComputerPlayer();
+			printStartGameAgainstComputer();
 		}
 		
-		textBoard.printNewGameMessage();
+		printNewGameMessage();
 		
 		while (quit == false) {
-			textBoard.printTakeTurnMessage(currentPlayer);
+			printTakeTurnMessage(currentPlayer);
 			if (currentPlayer == 'O' && computerPlayer == true) {
-				move = textBoard.logic.getComputerPlayer().makeMove(textBoard.logic, true);
+				move = logic.getComputerPlayer().makeMove(logic);
 			}
 			else {
-				move = textBoard.getMove(currentPlayer, nextPlayer);
+				move = getMove(currentPlayer, nextPlayer);
 			}
-			printBoard(textBoard.logic.getBoard());
-			if (textBoard.logic.playerWon(currentPlayer, move) == true) {
-				textBoard.printWinner(currentPlayer);
+			printBoard(logic.getBoard(), out);
+			if (logic.playerWon(currentPlayer, move) == true) {
+				printWinner(currentPlayer);
 				quit = true;
-			} else if (textBoard.logic.checkForTieGame() == true) {
-				textBoard.printTieGame();
+			} else if (logic.checkForTieGame() == true) {
+				printTieGame();
 				quit = true;
 			} else {
-				currentPlayer = textBoard.logic.changePlayer(currentPlayer);
-				nextPlayer = textBoard.logic.changePlayer(nextPlayer);
+				currentPlayer = logic.changePlayer(currentPlayer);
+				nextPlayer = logic.changePlayer(nextPlayer);
 			}
 		}
-		textBoard.scanner.close();
+		out.flush();
+		scanner.close();
 	}
 	
 	/**
@@ -74,35 +100,45 @@ public class TicTacToeTextConsole {
 	 * @param board: char[3][3] of pieces and blank spaces
 	 */
 	public static void printBoard(char[][] board) {
+		printBoard(board, System.out);
+	}
+	
+	/**
+	 * Prints TicTacToe board with pieces to a stream.
+	 * 
+	 * @param board: char[3][3] of pieces and blank spaces
+	 * @param out: stream to print to
+	 */
+	public static void printBoard(char[][] board, PrintStream out) {
 		for (int i = 2; i >= 0; i--) {
-			System.out.print((i + 1));
+			out.print((i + 1));
 			for (int j = 0; j < 3; j++) {
-				System.out.print("|" + board[i][j]);
+				out.print("|" + board[i][j]);
 			}
-			System.out.println("|");
+			out.println("|");
 		}
-		System.out.println("  a b c");
+		out.println("  a b c");
 	}
 	
 	/**
 	 * Prints "Begin Game. "
 	 */
 	public void printNewGameMessage() {
-		System.out.print("Begin Game. ");
+		out.print("Begin Game. ");
 	}
 	
 	/**
 	 * Prints "Enter 'P' if you want to play against another player; enter 'C' to play against computer."
 	 */
 	public void printPlayAgainst() {
-		System.out.println("Enter 'P' if you want to play against another player; enter 'C' to play against computer.");
+		out.println("Enter 'P' if you want to play against another player; enter 'C' to play against computer.");
 	}
 	
 	/**
 	 * Prints "Start game against computer. You are Player X and Computer is Player O."
 	 */
 	public void printStartGameAgainstComputer() {
-		System.out.println("Start game against computer. You are Player X and Computer is Player O.\n");
+		out.println("Start game against computer. You are Player X and Computer is Player O.\n");
 	}
 	
 	/**
@@ -111,8 +147,8 @@ public class TicTacToeTextConsole {
 	 * @param player: char of player whose turn it is
 	 */
 	public void printTakeTurnMessage(char player) {
-		System.out.println("Player" + player + " - your turn.");
-		System.out.println("Choose a cell position to place your piece. e.g., 3a for the top left corner.");
+		out.println("Player" + player + " - your turn.");
+		out.println("Choose a cell position to place your piece. e.g., 3a for the top left corner.");
 	}
 	
 	/**
@@ -121,14 +157,14 @@ public class TicTacToeTextConsole {
 	 * @param player: char of player who has won
 	 */
 	public void printWinner(char player) {
-		System.out.println("Player" + player + " Won the Game");
+		out.println("Player" + player + " Won the Game");
 	}
 	
 	/**
 	 * Prints tie game message.
 	 */
 	public void printTieGame() {
-		System.out.println("Tie game! No winner this time!");
+		out.println("Tie game! No winner this time!");
 	}
 	
 	/**
@@ -141,6 +177,7 @@ public class TicTacToeTextConsole {
 		boolean computerPlayer = false;
 		while (correctInput == false) {
 			printPlayAgainst();
+			out.flush();
 			String play = scanner.next();
 			
 			if (play.compareTo("C") == 0) {
@@ -155,6 +192,38 @@ public class TicTacToeTextConsole {
 		return computerPlayer;
 	}
 	
+	/**
+	 * Tells the player the space is taken.
+	 * 
+	 * @param player: char of player who made the move
+	 * @param move: String of the move in the format 3a
+	 */
+	public void spaceOccupied(char player, String move) {
+		out.println("The space " + move + " is occupied");
+		out.println("Player" + player + " please make a different selection.");
+	}
+	
+	/**
+	 * Tells the player the move is not in the right format.
+	 * 
+	 * @param player: char of player who made the move
+	 * @param move: String the player entered
+	 */
+	public void invalidFormat(char player, String move) {
+		out.println("That is not the correct format.");
+		out.println("Player " + " please use the format 3a.");
+	}
+	
+	/**
+	 * Prints the computer player's move.
+	 * 
+	 * @param player: char of the computer player
+	 * @param move: String of the move in the format 3a
+	 */
+	public void computerMoved(char player, String move) {
+		out.println("\n>> " + move + "\n");
+	}
+	
 	/**
 	 * This is the player's turn.
 	 * Intakes player's move and calls logic to check: validity of move and, if valid, makes move.
@@ -166,6 +235,7 @@ public class TicTacToeTextConsole {
 		String move = "";;
 		boolean validMove = false;
 		while (validMove == false) {
+			out.flush();
 			move = scanner.next();
 			validMove = logic.makeMove(player, opponent, move, false);
 		}
@@ -0,0 +1,611 @@
+/**Description: Provides Computer Player for m,n,k games.
+ * The computer first runs a threat-space search: it looks for a sequence of
+ * moves that each threaten to win on the next move (a four in five-in-a-row),
+ * so the opponent's reply is forced every time, ending in two threats at once.
+ * If there is none it runs an alpha-beta search that deepens one move at a
+ * time until its time budget runs out. Only the most promising spaces near
+ * the pieces already on the board are searched, so large boards such as 19x19
+ * still get an answer within the budget.
+ * Belongs to tic package.
+ *
+ * @author Catherine Button
+ * @version 1.0
+ */
+package tic;
+
+import java.util.Arrays;
+
+public class MNKComputerPlayer {
+
+	/**
+	 * Time budget per move in milliseconds used when none is given.
+	 */
+	public static final long DEFAULT_TIME_BUDGET = 1000;
+
+	/**
+	 * Score of a won position.
+	 */
+	private static final int WIN = 1000000000;
+
+	/**
+	 * Pattern score of a completed line.
+	 */
+	private static final int LINE_COMPLETE = 1 << 26;
+
+	/**
+	 * Pattern score of a line one piece short of a win and open on both ends,
+	 * which cannot be blocked.
+	 */
+	private static final int OPEN_FOUR = 1 << 22;
+
+	/**
+	 * Deepest search, in moves from the current position.
+	 */
+	private static final int MAX_PLY = 64;
+
+	/**
+	 * Number of spaces searched in the root position.
+	 */
+	private static final int ROOT_CANDIDATES = 20;
+
+	/**
+	 * Number of spaces searched in every other position.
+	 */
+	private static final int CANDIDATES = 10;
+
+	/**
+	 * Deepest threat sequence tried, in attacking moves.
+	 */
+	private static final int THREAT_DEPTH = 12;
+
+	/**
+	 * Spaces within this many rows and columns of a piece are searched.
+	 */
+	private static final int RADIUS = 2;
+
+	private long timeBudget;
+	private int maxDepth;
+	private long deadline;
+	private long threatDeadline;
+	private boolean aborted;
+	private long nodesSearched;
+	private int depthReached;
+	private int threatMove;
+
+	// search buffers, allocated for the board size of the last search
+	private int cells;
+	private long[] near;
+	private int[][] candidates;
+	private int[][] candidateScores;
+	private int[][] threatCells;
+
+	/**
+	 * Creates a computer player with the default time budget.
+	 */
+	public MNKComputerPlayer() {
+		this(DEFAULT_TIME_BUDGET);
+	}
+
+	/**
+	 * Creates a computer player.
+	 *
+	 * @param timeBudget: time allowed per move in milliseconds
+	 */
+	public MNKComputerPlayer(long timeBudget) {
+		this.timeBudget = timeBudget;
+		this.maxDepth = MAX_PLY - 1;
+	}
+
+	/**
+	 * Chooses a move for the player whose turn it is. The game is played on
+	 * and taken back during the search, so it is back in its original state
+	 * when this method returns.
+	 *
+	 * @param game: game logic being passed in
+	 * @return space index of the move, or -1 if the board is full
+	 */
+	public int findMove(MNKLogic game) {
+		long start = System.nanoTime();
+		this.deadline = start + this.timeBudget * 1000000L;
+		// the threat search gets a quarter of the time, the rest is left for alpha-beta
+		this.threatDeadline = start + this.timeBudget * 250000L;
+		this.aborted = false;
+		this.nodesSearched = 0;
+		this.depthReached = 0;
+		if (game.isFull()) {
+			return -1;
+		}
+		if (game.getMoveCount() == 0) {
+			return game.cell(game.getRows() / 2, game.getColumns() / 2);
+		}
+		allocate(game);
+
+		// a single candidate is a win or a forced block
+		int count = generate(game, 0, ROOT_CANDIDATES);
+		if (count == 0) {
+			// no empty space near a piece, so any empty space will do
+			return firstEmpty(game);
+		}
+		if (count == 1) {
+			return this.candidates[0][0];
+		}
+		if (threatSearch(game, game.getPlayerTurn(), 0)) {
+			return this.threatMove;
+		}
+
+		int[] rootMoves = this.candidates[0].clone();
+		int best = rootMoves[0];
+		for (int depth = 1; depth <= this.maxDepth; depth++) {
+			int alpha = -WIN;
+			int depthBest = -1;
+			for (int i = 0; i < count; i++) {
+				// the best move of the last iteration goes first
+				int cell = i == 0 ? best : rootMoves[i] == best ? rootMoves[0] : rootMoves[i];
+				game.makeMove(cell);
+				int score = -negamax(game, depth - 1, -WIN, -alpha, 1);
+				game.undoMove();
+				if (this.aborted) {
+					break;
+				}
+				if (score > alpha || depthBest < 0) {
+					alpha = score;
+					depthBest = cell;
+				}
+			}
+			if (this.aborted) {
+				break;
+			}
+			best = depthBest;
+			this.depthReached = depth;
+			if (Math.abs(alpha) >= WIN - MAX_PLY) {
+				break;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Private method.
+	 * Finds the empty space with the lowest index.
+	 *
+	 * @param game: board that is not full
+	 * @return space index of the first empty space
+	 */
+	private static int firstEmpty(MNKLogic game) {
+		int cell = 0;
+		while (!game.isLegal(cell)) {
+			cell++;
+		}
+		return cell;
+	}
+
+	/**
+	 * Private method.
+	 * Scores a position with a negamax search with alpha-beta pruning.
+	 *
+	 * @param game: position to search
+	 * @param depth: number of moves left to search
+	 * @param alpha: score the player to move is already guaranteed
+	 * @param beta: score the opponent is already guaranteed
+	 * @param ply: number of moves from the root
+	 * @return score of the position for the player to move
+	 */
+	private int negamax(MNKLogic game, int depth, int alpha, int beta, int ply) {
+		this.nodesSearched++;
+		if ((this.nodesSearched & 255) == 0 && System.nanoTime() > this.deadline) {
+			this.aborted = true;
+		}
+		if (this.aborted) {
+			return 0;
+		}
+		if (game.lastMoveWon()) {
+			return -WIN + ply;
+		}
+		if (game.isFull()) {
+			return 0;
+		}
+		if (depth == 0 || ply >= MAX_PLY - 1) {
+			return evaluate(game);
+		}
+
+		int count = generate(game, ply, CANDIDATES);
+		int best = -WIN;
+		for (int i = 0; i < count; i++) {
+			game.makeMove(this.candidates[ply][i]);
+			int score = -negamax(game, depth - 1, -beta, -alpha, ply + 1);
+			game.undoMove();
+			if (this.aborted) {
+				return 0;
+			}
+			if (score > best) {
+				best = score;
+			}
+			if (score > alpha) {
+				alpha = score;
+			}
+			if (alpha >= beta) {
+				break;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Private method.
+	 * Searches for a forced win by threats: every attacking move makes a line
+	 * one piece short of a win, so the defender has to block it, until an
+	 * attacking move makes two such lines at once. Defending moves that make
+	 * a threat of their own end the sequence.
+	 *
+	 * @param game: position with the attacker to move
+	 * @param attacker: PLAYER_X or PLAYER_O
+	 * @param ply: number of attacking moves so far
+	 * @return true if a forced win was found, its first move is in threatMove
+	 */
+	private boolean threatSearch(MNKLogic game, int attacker, int ply) {
+		if (ply >= THREAT_DEPTH || System.nanoTime() > this.threatDeadline) {
+			return false;
+		}
+		int defender = 1 - attacker;
+		int[] moves = this.candidates[MAX_PLY - 1 - ply];
+		int count = 0;
+		markNear(game);
+		for (int word = 0; word < this.near.length; word++) {
+			for (long bits = this.near[word]; bits != 0; bits &= bits - 1) {
+				int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+				if (cellScore(game, cell, attacker) >= LINE_COMPLETE) {
+					if (ply == 0) {
+						this.threatMove = cell;
+					}
+					return true;
+				}
+				moves[count++] = cell;
+			}
+		}
+
+		int[] blocks = this.threatCells[ply];
+		for (int i = 0; i < count; i++) {
+			int cell = moves[i];
+			game.makeMove(cell);
+			int threats = threats(game, cell, attacker, blocks);
+			boolean won = false;
+			if (threats >= 2) {
+				won = true;
+			} else if (threats == 1) {
+				game.makeMove(blocks[0]);
+				this.nodesSearched++;
+				int[] counter = this.threatCells[THREAT_DEPTH];
+				won = !game.lastMoveWon() && threats(game, blocks[0], defender, counter) == 0
+						&& threatSearch(game, attacker, ply + 1);
+				game.undoMove();
+			}
+			game.undoMove();
+			if (won) {
+				if (ply == 0) {
+					this.threatMove = cell;
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Private method.
+	 * Finds the spaces where a player now threatens to win because of a piece
+	 * just placed: the empty space of every k-long window through the piece
+	 * that holds k - 1 of the player's pieces and nothing else.
+	 *
+	 * @param game: position with the piece placed
+	 * @param cell: space of the piece
+	 * @param player: owner of the piece
+	 * @param out: buffer for the threatened spaces
+	 * @return number of different threatened spaces
+	 */
+	private int threats(MNKLogic game, int cell, int player, int[] out) {
+		int k = game.getK();
+		int rows = game.getRows();
+		int cols = game.getColumns();
+		int row = cell / cols;
+		int col = cell % cols;
+		int count = 0;
+		for (int direction = 0; direction < 4; direction++) {
+			int dr = MNKLogic.DELTA_ROW[direction];
+			int dc = MNKLogic.DELTA_COL[direction];
+			for (int start = -(k - 1); start <= 0; start++) {
+				int firstRow = row + start * dr;
+				int firstCol = col + start * dc;
+				int lastRow = firstRow + (k - 1) * dr;
+				int lastCol = firstCol + (k - 1) * dc;
+				if (firstRow < 0 || firstCol < 0 || firstCol >= cols || lastRow >= rows
+						|| lastCol < 0 || lastCol >= cols) {
+					continue;
+				}
+				int own = 0;
+				int empty = -1;
+				boolean blocked = false;
+				for (int i = 0; i < k && !blocked; i++) {
+					int c = game.cell(firstRow + i * dr, firstCol + i * dc);
+					if (game.has(player, c)) {
+						own++;
+					} else if (game.has(1 - player, c) || empty >= 0) {
+						blocked = true;
+					} else {
+						empty = c;
+					}
+				}
+				if (!blocked && own == k - 1 && empty >= 0) {
+					boolean seen = false;
+					for (int i = 0; i < count; i++) {
+						seen |= out[i] == empty;
+					}
+					if (!seen && count < out.length) {
+						out[count++] = empty;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Private method.
+	 * Lists the best spaces to search for the player to move, best first. If
+	 * the player can win only the winning space is listed, and if the
+	 * opponent threatens to win only the blocking space is listed.
+	 *
+	 * @param game: position to list moves for
+	 * @param ply: index of the buffer to list the moves in
+	 * @param limit: maximum number of moves to list
+	 * @return number of moves listed
+	 */
+	private int generate(MNKLogic game, int ply, int limit) {
+		int player = game.getPlayerTurn();
+		int opponent = 1 - player;
+		int[] moves = this.candidates[ply];
+		int[] scores = this.candidateScores[ply];
+		int count = 0;
+		int block = -1;
+
+		markNear(game);
+		for (int word = 0; word < this.near.length; word++) {
+			for (long bits = this.near[word]; bits != 0; bits &= bits - 1) {
+				int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+				int attack = cellScore(game, cell, player);
+				if (attack >= LINE_COMPLETE) {
+					moves[0] = cell;
+					return 1;
+				}
+				int defend = cellScore(game, cell, opponent);
+				if (defend >= LINE_COMPLETE) {
+					block = cell;
+				}
+				int score = attack + defend / 2;
+				// insertion sort, keeping only the best limit moves
+				int i = Math.min(count, limit - 1);
+				if (count == limit && scores[i] >= score) {
+					continue;
+				}
+				for (; i > 0 && scores[i - 1] < score; i--) {
+					moves[i] = moves[i - 1];
+					scores[i] = scores[i - 1];
+				}
+				moves[i] = cell;
+				scores[i] = score;
+				if (count < limit) {
+					count++;
+				}
+			}
+		}
+		if (block >= 0) {
+			moves[0] = block;
+			return 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Private method.
+	 * Marks the empty spaces within RADIUS of any piece in the near bitset.
+	 *
+	 * @param game: position to mark
+	 */
+	private void markNear(MNKLogic game) {
+		Arrays.fill(this.near, 0L);
+		int rows = game.getRows();
+		int cols = game.getColumns();
+		for (int player = 0; player < 2; player++) {
+			long[] pieces = game.getPieces(player);
+			for (int word = 0; word < pieces.length; word++) {
+				for (long bits = pieces[word]; bits != 0; bits &= bits - 1) {
+					int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+					int row = cell / cols;
+					int col = cell % cols;
+					for (int r = Math.max(0, row - RADIUS); r <= Math.min(rows - 1, row + RADIUS); r++) {
+						for (int c = Math.max(0, col - RADIUS); c <= Math.min(cols - 1, col + RADIUS); c++) {
+							int n = r * cols + c;
+							this.near[n >>> 6] |= 1L << n;
+						}
+					}
+				}
+			}
+		}
+		for (int player = 0; player < 2; player++) {
+			long[] pieces = game.getPieces(player);
+			for (int word = 0; word < pieces.length; word++) {
+				this.near[word] &= ~pieces[word];
+			}
+		}
+	}
+
+	/**
+	 * Private method.
+	 * Scores how good an empty space is for a player, adding up the pattern
+	 * scores of the 4 lines the player would have through it.
+	 *
+	 * @param game: position
+	 * @param cell: empty space index
+	 * @param player: PLAYER_X or PLAYER_O
+	 * @return score of the space, at least LINE_COMPLETE if it wins
+	 */
+	private int cellScore(MNKLogic game, int cell, int player) {
+		int score = 0;
+		for (int direction = 0; direction < 4; direction++) {
+			int forward = game.run(cell, player, direction, 1);
+			int backward = game.run(cell, player, direction, -1);
+			int open = (isEmpty(game, cell, direction, forward + 1) ? 1 : 0)
+					+ (isEmpty(game, cell, direction, -(backward + 1)) ? 1 : 0);
+			score += patternScore(1 + forward + backward, open, game.getK());
+		}
+		return score;
+	}
+
+	/**
+	 * Private method.
+	 * Scores the position for the player to move by adding up the pattern
+	 * scores of both players' lines. The player to move counts for more
+	 * because it gets to extend its lines first.
+	 *
+	 * @param game: position to score
+	 * @return score of the position for the player to move
+	 */
+	private int evaluate(MNKLogic game) {
+		int player = game.getPlayerTurn();
+		long score = 3 * lineScores(game, player) / 2 - lineScores(game, 1 - player);
+		return (int) Math.max(-(WIN - MAX_PLY - 1), Math.min(WIN - MAX_PLY - 1, score));
+	}
+
+	/**
+	 * Private method.
+	 * Adds up the pattern scores of every line of one player's pieces.
+	 *
+	 * @param game: position to score
+	 * @param player: PLAYER_X or PLAYER_O
+	 * @return total pattern score
+	 */
+	private long lineScores(MNKLogic game, int player) {
+		long total = 0;
+		long[] pieces = game.getPieces(player);
+		for (int word = 0; word < pieces.length; word++) {
+			for (long bits = pieces[word]; bits != 0; bits &= bits - 1) {
+				int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+				for (int direction = 0; direction < 4; direction++) {
+					// only count each line once, from its first piece
+					if (game.run(cell, player, direction, -1) > 0) {
+						continue;
+					}
+					int length = 1 + game.run(cell, player, direction, 1);
+					int open = (isEmpty(game, cell, direction, length) ? 1 : 0)
+							+ (isEmpty(game, cell, direction, -1) ? 1 : 0);
+					total += patternScore(length, open, game.getK());
+				}
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Private method.
+	 * Scores a line by how close it is to a win and how many of its ends
+	 * are open. A line with both ends blocked can never win and scores 0.
+	 *
+	 * @param length: number of pieces in the line
+	 * @param open: number of open ends (0-2)
+	 * @param k: number of pieces in a row needed to win
+	 * @return pattern score of the line
+	 */
+	private static int patternScore(int length, int open, int k) {
+		int missing = k - length;
+		if (missing <= 0) {
+			return LINE_COMPLETE;
+		}
+		if (open == 0) {
+			return 0;
+		}
+		if (missing == 1 && open == 2) {
+			return OPEN_FOUR;
+		}
+		return open << Math.max(0, 20 - 4 * missing);
+	}
+
+	/**
+	 * Private method.
+	 * Checks if the space a number of steps along a direction from a space is
+	 * on the board and empty.
+	 *
+	 * @param game: position
+	 * @param cell: space index to step from
+	 * @param direction: line direction 0-3
+	 * @param steps: number of steps, negative to step backward
+	 * @return true if the space is on the board and empty
+	 */
+	private static boolean isEmpty(MNKLogic game, int cell, int direction, int steps) {
+		int row = cell / game.getColumns() + MNKLogic.DELTA_ROW[direction] * steps;
+		int col = cell % game.getColumns() + MNKLogic.DELTA_COL[direction] * steps;
+		return row >= 0 && row < game.getRows() && col >= 0 && col < game.getColumns()
+				&& game.isLegal(game.cell(row, col));
+	}
+
+	/**
+	 * Private method.
+	 * Allocates the search buffers for the size of a board.
+	 *
+	 * @param game: game being searched
+	 */
+	private void allocate(MNKLogic game) {
+		if (this.cells == game.getCells()) {
+			return;
+		}
+		this.cells = game.getCells();
+		this.near = new long[(this.cells + 63) >>> 6];
+		this.candidates = new int[MAX_PLY][this.cells];
+		this.candidateScores = new int[MAX_PLY][this.cells];
+		this.threatCells = new int[THREAT_DEPTH + 1][8];
+	}
+
+	/**
+	 * Sets the time allowed per move.
+	 *
+	 * @param timeBudget: milliseconds per move
+	 */
+	public void setTimeBudget(long timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+	/**
+	 * Accessor method for the time allowed per move.
+	 *
+	 * @return long this.timeBudget in milliseconds
+	 */
+	public long getTimeBudget() {
+		return this.timeBudget;
+	}
+
+	/**
+	 * Sets the deepest alpha-beta search, in moves.
+	 *
+	 * @param maxDepth: maximum depth, 1 to 63
+	 */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = Math.max(1, Math.min(MAX_PLY - 1, maxDepth));
+	}
+
+	/**
+	 * Gives the number of positions visited by the last call to findMove.
+	 *
+	 * @return number of positions searched
+	 */
+	public long getNodesSearched() {
+		return this.nodesSearched;
+	}
+
+	/**
+	 * Gives the depth of the last alpha-beta iteration that finished in the
+	 * last call to findMove.
+	 *
+	 * @return depth in moves, 0 if the move was forced or found by threats
+	 */
+	public int getDepthReached() {
+		return this.depthReached;
+	}
+}
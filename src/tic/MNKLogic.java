@@ -0,0 +1,304 @@
+/**Description: Provides game logic for m,n,k games, TicTacToe on a board
+ * of any size where a player needs k in a row to win (TicTacToe is 3,3,3 and
+ * five-in-a-row on a 15x15 board is 15,15,5).
+ * The pieces of each player are kept in a bitset with one bit per space, so
+ * boards of any size are cheap to copy and to scan. A win is found by
+ * measuring the lines through the last move only.
+ * Belongs to tic package.
+ *
+ * @author Catherine Button
+ * @version 1.0
+ */
+package tic;
+
+public class MNKLogic {
+
+	/**
+	 * Player that moves first.
+	 */
+	public static final int PLAYER_X = 0;
+
+	/**
+	 * Player that moves second.
+	 */
+	public static final int PLAYER_O = 1;
+
+	/**
+	 * Row step of the 4 line directions (across, down, down-right, down-left).
+	 */
+	static final int[] DELTA_ROW = {0, 1, 1, 1};
+
+	/**
+	 * Column step of the 4 line directions.
+	 */
+	static final int[] DELTA_COL = {1, 0, 1, -1};
+
+	private final int rows;
+	private final int cols;
+	private final int k;
+	private final long[][] pieces;
+	private final int[] moves;
+	private int moveCount;
+
+	/**
+	 * Creates an empty board.
+	 *
+	 * @param rows: number of rows (m)
+	 * @param cols: number of columns (n)
+	 * @param k: number of pieces in a row needed to win
+	 * @throws IllegalArgumentException if a size is less than 1 or k does not fit on the board
+	 */
+	public MNKLogic(int rows, int cols, int k) {
+		if (rows < 1 || cols < 1 || k < 1 || (k > rows && k > cols)) {
+			throw new IllegalArgumentException("invalid m,n,k game " + rows + "," + cols + "," + k);
+		}
+		this.rows = rows;
+		this.cols = cols;
+		this.k = k;
+		int words = (rows * cols + 63) >>> 6;
+		this.pieces = new long[2][words];
+		this.moves = new int[rows * cols];
+		this.moveCount = 0;
+	}
+
+	/**
+	 * Accessor method for the number of rows.
+	 *
+	 * @return int this.rows
+	 */
+	public int getRows() {
+		return this.rows;
+	}
+
+	/**
+	 * Accessor method for the number of columns.
+	 *
+	 * @return int this.cols
+	 */
+	public int getColumns() {
+		return this.cols;
+	}
+
+	/**
+	 * Accessor method for the number of pieces in a row needed to win.
+	 *
+	 * @return int this.k
+	 */
+	public int getK() {
+		return this.k;
+	}
+
+	/**
+	 * Gives the number of spaces on the board.
+	 *
+	 * @return rows * columns
+	 */
+	public int getCells() {
+		return this.rows * this.cols;
+	}
+
+	/**
+	 * Gives the space index of a row and column.
+	 *
+	 * @param row: row 0 to rows - 1
+	 * @param col: column 0 to columns - 1
+	 * @return space index (row * columns + column)
+	 */
+	public int cell(int row, int col) {
+		return row * this.cols + col;
+	}
+
+	/**
+	 * Gives the player whose turn it is.
+	 *
+	 * @return PLAYER_X or PLAYER_O
+	 */
+	public int getPlayerTurn() {
+		return this.moveCount & 1;
+	}
+
+	/**
+	 * Gives the number of pieces on the board.
+	 *
+	 * @return number of moves made
+	 */
+	public int getMoveCount() {
+		return this.moveCount;
+	}
+
+	/**
+	 * Gives one of the moves made so far.
+	 *
+	 * @param i: index of the move, 0 for the first move
+	 * @return space index of the move
+	 */
+	public int getMove(int i) {
+		return this.moves[i];
+	}
+
+	/**
+	 * Gives the last move made.
+	 *
+	 * @return space index of the last move, or -1 if the board is empty
+	 */
+	public int getLastMove() {
+		return this.moveCount == 0 ? -1 : this.moves[this.moveCount - 1];
+	}
+
+	/**
+	 * Checks if a player has a piece on a space.
+	 *
+	 * @param player: PLAYER_X or PLAYER_O
+	 * @param cell: space index
+	 * @return true if the player's piece is on the space
+	 */
+	public boolean has(int player, int cell) {
+		return (this.pieces[player][cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * Checks if a space is on the board and empty.
+	 *
+	 * @param cell: space index
+	 * @return true if a piece can be placed on the space
+	 */
+	public boolean isLegal(int cell) {
+		return cell >= 0 && cell < this.rows * this.cols && !has(PLAYER_X, cell) && !has(PLAYER_O, cell);
+	}
+
+	/**
+	 * Gives the piece on a space for printing.
+	 *
+	 * @param cell: space index
+	 * @return 'X', 'O' or '_' for an empty space
+	 */
+	public char getPiece(int cell) {
+		return has(PLAYER_X, cell) ? 'X' : has(PLAYER_O, cell) ? 'O' : '_';
+	}
+
+	/**
+	 * Accessor method for the bitset of one player's pieces, bit (row *
+	 * columns + column) for each space. Shared with the caller, not copied.
+	 *
+	 * @param player: PLAYER_X or PLAYER_O
+	 * @return long[] bitset of the player's pieces
+	 */
+	long[] getPieces(int player) {
+		return this.pieces[player];
+	}
+
+	/**
+	 * Places a piece for the player whose turn it is.
+	 *
+	 * @param cell: space index
+	 * @return true if the space was empty and the piece was placed
+	 */
+	public boolean makeMove(int cell) {
+		if (!isLegal(cell)) {
+			return false;
+		}
+		this.pieces[getPlayerTurn()][cell >>> 6] |= 1L << cell;
+		this.moves[this.moveCount++] = cell;
+		return true;
+	}
+
+	/**
+	 * Takes back the last move.
+	 *
+	 * @return space index of the move taken back, or -1 if the board is empty
+	 */
+	public int undoMove() {
+		if (this.moveCount == 0) {
+			return -1;
+		}
+		int cell = this.moves[--this.moveCount];
+		this.pieces[getPlayerTurn()][cell >>> 6] &= ~(1L << cell);
+		return cell;
+	}
+
+	/**
+	 * Empties the board.
+	 */
+	public void resetBoard() {
+		while (this.moveCount > 0) {
+			undoMove();
+		}
+	}
+
+	/**
+	 * Checks if every space is taken.
+	 *
+	 * @return true if the board is full
+	 */
+	public boolean isFull() {
+		return this.moveCount == this.rows * this.cols;
+	}
+
+	/**
+	 * Counts the player's pieces in a row next to a space, not counting the
+	 * space itself.
+	 *
+	 * @param cell: space index to start next to
+	 * @param player: PLAYER_X or PLAYER_O
+	 * @param direction: line direction 0-3 (see DELTA_ROW)
+	 * @param sign: 1 to count forward along the direction, -1 to count backward
+	 * @return number of the player's pieces in a row
+	 */
+	int run(int cell, int player, int direction, int sign) {
+		int dr = DELTA_ROW[direction] * sign;
+		int dc = DELTA_COL[direction] * sign;
+		int row = cell / this.cols + dr;
+		int col = cell % this.cols + dc;
+		int count = 0;
+		while (row >= 0 && row < this.rows && col >= 0 && col < this.cols && has(player, row * this.cols + col)) {
+			count++;
+			row += dr;
+			col += dc;
+		}
+		return count;
+	}
+
+	/**
+	 * Gives the length of the player's line through a space in one direction,
+	 * counting the space as the player's.
+	 *
+	 * @param cell: space index
+	 * @param player: PLAYER_X or PLAYER_O
+	 * @param direction: line direction 0-3 (see DELTA_ROW)
+	 * @return number of pieces in the line
+	 */
+	public int lineLength(int cell, int player, int direction) {
+		return 1 + run(cell, player, direction, 1) + run(cell, player, direction, -1);
+	}
+
+	/**
+	 * Checks if placing a piece on an empty space would win the game.
+	 *
+	 * @param cell: empty space index
+	 * @param player: PLAYER_X or PLAYER_O
+	 * @return true if the move makes k in a row
+	 */
+	public boolean isWinningMove(int cell, int player) {
+		for (int direction = 0; direction < 4; direction++) {
+			if (lineLength(cell, player, direction) >= this.k) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines if the last move won the game, by measuring the 4 lines
+	 * through it.
+	 *
+	 * @return true if the player who made the last move has k in a row
+	 */
+	public boolean lastMoveWon() {
+		if (this.moveCount == 0) {
+			return false;
+		}
+		int cell = this.moves[this.moveCount - 1];
+		int player = (this.moveCount - 1) & 1;
+		return isWinningMove(cell, player);
+	}
+}
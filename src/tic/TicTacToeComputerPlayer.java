@@ -7,12 +7,6 @@
 
 package tic;
 
-import java.util.List;
-import java.util.LinkedList;
-import java.util.Random;
-
-import tac.TicTacToeGUI;
-
 public class TicTacToeComputerPlayer {
 	
 	char player;
@@ -24,57 +18,29 @@ public class TicTacToeComputerPlayer {
 	}
 	
 	/**
-	 * Private method.
-	 * Chooses random move for computer player of the available moves.
+	 * Chooses the best move for the player whose turn it is by looking up
+	 * the current board in the TicTacToeEngine table. The move is not made.
 	 * 
 	 * @param logic: game logic being passed in
-	 * @return string of move that was chosen
+	 * @return space 0-8 (row * 3 + column) of the move that was chosen,
+	 * or -1 if the game is over
 	 */
-	private String findMove(TicTacToeLogic logic) {
-		List<String> moves = new LinkedList<String>();
-		String move = "";
-		char[][] board = logic.getBoard();
-		char row, col;
-		Random rand = new Random();
-		int randomMove;
-		
-		for (int r = 0; r < 3; r++) {
-			for (int c = 0; c < 3; c++) {
-				if (board[r][c] == '_') {
-					row = (char) (r + 49);
-					col = (char) (c + 97);
-					move += row;
-					move += col;
-					moves.add(move);
-					move = "";
-				}
-			}
-		}
-		
-		randomMove = rand.nextInt(100) % moves.size();
-		return moves.get(randomMove);
+	public int findMove(TicTacToeLogic logic) {
+		return TicTacToeEngine.bestMove(TicTacToeEngine.encode(logic.getBoard()));
 	}
 
 	/**
 	 * Makes computer player move.
-	 * This is a random move with no strategy behind it.
+	 * This is a perfect move, the computer player never loses.
+	 * The logic's listener is told about the move.
 	 * 
 	 * @param logic: game logic being passed in
-	 * @param textConsole: tells the computer player if it is playing on a text console or GUI (for print statement use)
 	 * @return string of the move made
 	 */
-	public String makeMove(TicTacToeLogic logic, boolean textConsole) {
-		String move;
-		move = findMove(logic);
-		
-		if (textConsole == true) {
-			System.out.println("\n>> " + move + "\n");
-		} else {
-			TicTacToeGUI.MOVE.setText(">> " + move);
-		}
-		
-		logic.makeMove(player, opponent, move, textConsole);
-		
-		return move;
+	public String makeMove(TicTacToeLogic logic) {
+		int cell = findMove(logic);
+		logic.makeMove(player, cell);
+		logic.computerMoved(player, cell);
+		return TicTacToeLogic.toMove(cell);
 	}
 }
@@ -0,0 +1,276 @@
+/**Description: Provides perfect play for TicTacToe game.
+ * The value and best move of every position that can come up in a game are
+ * worked out once with minimax when the class is loaded, so finding a move is
+ * a table lookup. Only the canonical form of each position is kept (see
+ * TicTacToeSymmetry), which makes the table about 8 times smaller.
+ * Belongs to tic package.
+ *
+ * @author Catherine Button
+ * @version 1.0
+ */
+package tic;
+
+public class TicTacToeEngine {
+
+	/**
+	 * Number of positions in the table, one for every way of filling the
+	 * nine spaces with an empty space, X or O.
+	 */
+	public static final int POSITIONS = 19683;
+
+	/**
+	 * Value of a space in a position index.
+	 */
+	public static final int EMPTY = 0, X = 1, O = 2;
+
+	/**
+	 * Packed entry for positions that cannot come up in a game.
+	 */
+	private static final byte UNREACHABLE = 0;
+
+	/**
+	 * Powers of 3, POWERS[cell] is the weight of a space in a position index.
+	 */
+	private static final int[] POWERS = {1, 3, 9, 27, 81, 243, 729, 2187, 6561};
+
+	/**
+	 * The eight lines of three spaces (rows, columns and diagonals).
+	 */
+	private static final int[][] LINES = {
+		{0, 1, 2}, {3, 4, 5}, {6, 7, 8},
+		{0, 3, 6}, {1, 4, 7}, {2, 5, 8},
+		{0, 4, 8}, {2, 4, 6}
+	};
+
+	/**
+	 * Position indexes of the canonical positions that can come up in a game,
+	 * sorted.
+	 */
+	private static final short[] KEYS;
+
+	/**
+	 * One byte per entry of KEYS: the best space (0-8) of the canonical
+	 * position plus 1 in bits 0-3 and the result for the player to move (win
+	 * 1, draw 2, loss 3) in bits 4-5. A best space of 0 (no move) is stored for
+	 * finished games.
+	 */
+	private static final byte[] ENTRIES;
+
+	static {
+		// solve every position, then keep only the canonical ones
+		byte[] table = new byte[POSITIONS];
+		solve(0, 0, X, table, new int[POSITIONS]);
+
+		int count = 0;
+		for (int position = 0; position < POSITIONS; position++) {
+			if (table[position] != UNREACHABLE && isCanonical(position)) {
+				count++;
+			}
+		}
+		KEYS = new short[count];
+		ENTRIES = new byte[count];
+		count = 0;
+		for (int position = 0; position < POSITIONS; position++) {
+			if (table[position] != UNREACHABLE && isCanonical(position)) {
+				KEYS[count] = (short) position;
+				ENTRIES[count] = table[position];
+				count++;
+			}
+		}
+	}
+
+	/**
+	 * Private constructor, the engine only has static methods.
+	 */
+	private TicTacToeEngine() {
+	}
+
+	/**
+	 * Private method.
+	 * Scores a position with minimax and stores its result and best move.
+	 * Wins that come sooner score higher, so the engine wins as fast as it can
+	 * and loses as slowly as it can.
+	 *
+	 * @param position: index of the position
+	 * @param pieces: number of pieces on the board
+	 * @param player: X or O, the player to move
+	 * @param table: packed entries of every position index
+	 * @param scores: scores of the positions already solved
+	 * @return score of the position for the player to move
+	 */
+	private static int solve(int position, int pieces, int player, byte[] table, int[] scores) {
+		if (table[position] != UNREACHABLE) {
+			return scores[position];
+		}
+
+		int best = Integer.MIN_VALUE;
+		int bestCell = -1;
+		if (hasLine(position, 3 - player)) {
+			best = pieces - 10; // the opponent's last move won
+		} else if (pieces == 9) {
+			best = 0;
+		} else {
+			for (int cell = 0; cell < 9; cell++) {
+				if (cellAt(position, cell) != EMPTY) {
+					continue;
+				}
+				int score = -solve(position + player * POWERS[cell], pieces + 1, 3 - player, table, scores);
+				if (score > best) {
+					best = score;
+					bestCell = cell;
+				}
+			}
+		}
+
+		int result = best > 0 ? 1 : best == 0 ? 2 : 3;
+		table[position] = (byte) (result << 4 | (bestCell + 1));
+		scores[position] = best;
+		return best;
+	}
+
+	/**
+	 * Private method.
+	 * Checks if a position is its own canonical form.
+	 *
+	 * @param position: index of the position
+	 * @return true if no transform of the position has a smaller index
+	 */
+	private static boolean isCanonical(int position) {
+		return TicTacToeSymmetry.key(TicTacToeSymmetry.canonical(position)) == position;
+	}
+
+	/**
+	 * Private method.
+	 * Finds the entry of a position in the table.
+	 *
+	 * @param position: index of a canonical position
+	 * @return index in KEYS, or -1 if the position cannot come up in a game
+	 */
+	private static int find(int position) {
+		int low = 0;
+		int high = KEYS.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (KEYS[mid] < position) {
+				low = mid + 1;
+			} else if (KEYS[mid] > position) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Private method.
+	 * Checks if a player has three in a line.
+	 *
+	 * @param position: index of the position
+	 * @param player: X or O
+	 * @return true if the player has a line
+	 */
+	private static boolean hasLine(int position, int player) {
+		for (int[] line : LINES) {
+			if (cellAt(position, line[0]) == player && cellAt(position, line[1]) == player
+					&& cellAt(position, line[2]) == player) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gives the piece on one space of a position.
+	 *
+	 * @param position: index of the position
+	 * @param cell: space 0-8 (row * 3 + column)
+	 * @return EMPTY, X or O
+	 */
+	public static int cellAt(int position, int cell) {
+		return position / POWERS[cell] % 3;
+	}
+
+	/**
+	 * Gives the index of a position after a player takes a space.
+	 *
+	 * @param position: index of the position
+	 * @param cell: empty space 0-8 (row * 3 + column)
+	 * @param player: X or O
+	 * @return index of the new position
+	 */
+	public static int play(int position, int cell, int player) {
+		return position + player * POWERS[cell];
+	}
+
+	/**
+	 * Converts a board to its position index.
+	 *
+	 * @param board: char[3][3] of 'X', 'O' and '_'
+	 * @return index of the position
+	 */
+	public static int encode(char[][] board) {
+		int position = 0;
+		for (int row = 0; row < 3; row++) {
+			for (int col = 0; col < 3; col++) {
+				if (board[row][col] == 'X') {
+					position += X * POWERS[row * 3 + col];
+				} else if (board[row][col] == 'O') {
+					position += O * POWERS[row * 3 + col];
+				}
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Gives the best space for the player to move.
+	 *
+	 * @param position: index of the position
+	 * @return space 0-8 (row * 3 + column), or -1 if the game is over or the
+	 * position cannot come up in a game
+	 */
+	public static int bestMove(int position) {
+		int canonical = TicTacToeSymmetry.canonical(position);
+		int entry = find(TicTacToeSymmetry.key(canonical));
+		if (entry < 0) {
+			return -1;
+		}
+		int cell = (ENTRIES[entry] & 0xF) - 1;
+		if (cell < 0) {
+			return -1;
+		}
+		return TicTacToeSymmetry.fromCanonical(cell, TicTacToeSymmetry.transform(canonical));
+	}
+
+	/**
+	 * Gives the result of a position with perfect play from both players.
+	 *
+	 * @param position: index of the position
+	 * @return 1 if the player to move wins, 0 for a draw, -1 if the player to
+	 * move loses
+	 * @throws IllegalArgumentException if the position cannot come up in a game
+	 */
+	public static int value(int position) {
+		int entry = find(TicTacToeSymmetry.key(TicTacToeSymmetry.canonical(position)));
+		switch (entry < 0 ? 0 : ENTRIES[entry] >> 4) {
+			case 1:
+				return 1;
+			case 2:
+				return 0;
+			case 3:
+				return -1;
+			default:
+				throw new IllegalArgumentException("unreachable position " + position);
+		}
+	}
+
+	/**
+	 * Gives the number of positions stored in the table.
+	 *
+	 * @return number of canonical positions that can come up in a game
+	 */
+	public static int tableSize() {
+		return KEYS.length;
+	}
+}
@@ -0,0 +1,37 @@
+/**Description: Receives the events of a TicTacToe game that a user interface
+ * needs to show, so the game logic does not print or update any UI itself.
+ * The text console and the GUI each implement this; headless games (servers,
+ * simulations) can leave the listener out.
+ * Belongs to tic package.
+ * 
+ * @author Catherine Button
+ * @version 1.0
+ */
+package tic;
+
+public interface TicTacToeListener {
+
+	/**
+	 * Called when a player tries to take a space that is already taken.
+	 * 
+	 * @param player: char of player who made the move
+	 * @param move: String of the move in the format 3a
+	 */
+	void spaceOccupied(char player, String move);
+
+	/**
+	 * Called when a player enters a move that is not in the format 3a.
+	 * 
+	 * @param player: char of player who made the move
+	 * @param move: String the player entered
+	 */
+	void invalidFormat(char player, String move);
+
+	/**
+	 * Called when the computer player has made its move.
+	 * 
+	 * @param player: char of the computer player
+	 * @param move: String of the move in the format 3a
+	 */
+	void computerMoved(char player, String move);
+}
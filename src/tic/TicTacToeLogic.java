@@ -6,23 +6,87 @@
  */
 package tic;
 
-import tac.TicTacToeGUI;
-
 public class TicTacToeLogic {
 
+	/**
+	 * String form of each space 0-8 (row * 3 + column), for the String API.
+	 */
+	private static final String[] MOVES = {"1a", "1b", "1c", "2a", "2b", "2c", "3a", "3b", "3c"};
+
+	/**
+	 * The eight lines of three spaces (rows, columns and diagonals) as 9-bit
+	 * masks, with bit (row * 3 + column) for each space.
+	 */
+	public static final int[] LINE_MASKS = {0x007, 0x038, 0x1C0, 0x049, 0x092, 0x124, 0x111, 0x054};
+
+	/**
+	 * WINNING[mask] tells if a 9-bit mask of one player's pieces contains a line.
+	 */
+	private static final boolean[] WINNING = new boolean[512];
+
+	/**
+	 * CELL_LINES[cell] holds the masks of the two to four lines through a space.
+	 */
+	private static final int[][] CELL_LINES = new int[9][];
+
+	static {
+		for (int mask = 0; mask < 512; mask++) {
+			for (int line : LINE_MASKS) {
+				if ((mask & line) == line) {
+					WINNING[mask] = true;
+				}
+			}
+		}
+		for (int cell = 0; cell < 9; cell++) {
+			int count = 0;
+			for (int line : LINE_MASKS) {
+				if ((line & (1 << cell)) != 0) {
+					count++;
+				}
+			}
+			CELL_LINES[cell] = new int[count];
+			count = 0;
+			for (int line : LINE_MASKS) {
+				if ((line & (1 << cell)) != 0) {
+					CELL_LINES[cell][count++] = line;
+				}
+			}
+		}
+	}
+
 	private char[][] board;
+	private int maskX;
+	private int maskO;
 	private char playerX;
 	private char playerO;
 	private int turnsPlayed;
+	private int[] moves = new int[9];
 	private TicTacToeComputerPlayer computer;
-	private boolean textConsole;
+	private TicTacToeListener listener;
 
-	public TicTacToeLogic(boolean textConsole) {
+	public TicTacToeLogic() {
 		setBoard();
 		playerX = 'X';
 		playerO = 'O';
 		turnsPlayed = 0;
-		this.textConsole = textConsole;
+	}
+	
+	/**
+	 * Sets the user interface that is told about invalid moves and computer moves.
+	 * 
+	 * @param listener: TicTacToeListener of the user interface, or null for none
+	 */
+	public void setListener(TicTacToeListener listener) {
+		this.listener = listener;
+	}
+	
+	/**
+	 * Accessor method for private variable listener.
+	 * 
+	 * @return TicTacToeListener this.listener, or null if there is none
+	 */
+	public TicTacToeListener getListener() {
+		return this.listener;
 	}
 	
 	/**
@@ -41,6 +105,21 @@ public class TicTacToeLogic {
 		return this.board;
 	}
 	
+	/**
+	 * Empties the board so the logic can be used for another game without
+	 * allocating a new one, keeping the listener and the computer player.
+	 */
+	public void resetBoard() {
+		for (int row = 0; row < 3; row++) {
+			for (int col = 0; col < 3; col++) {
+				this.board[row][col] = '_';
+			}
+		}
+		this.maskX = 0;
+		this.maskO = 0;
+		this.turnsPlayed = 0;
+	}
+	
 	/**
 	 * Private Method.
 	 * Initializes board.
@@ -58,17 +137,87 @@ public class TicTacToeLogic {
 	}
 	
 	/**
-	 * Private method.
-	 * Changes one space on the board based on the player's move.
+	 * Converts a move in the format 3a to a space index.
 	 * 
-	 * @param player: char of player whose turn it is
-	 * @param move: char array of row and col for the space of which the player wishes to place their piece
+	 * @param move: String of row (1-3) and column (a-c), anything after those is ignored
+	 * @return space 0-8 (row * 3 + column), or -1 if the move is not in the right format
 	 */
-	private void updateBoard(char player, char[] move) {
-		int moveRow = ((int) move[0]) - 49;
-		int moveCol = ((int) move[1]) - 97;
-		
-		this.board[moveRow][moveCol] = player;
+	public static int toCell(String move) {
+		if (move == null || move.length() < 2) {
+			return -1;
+		}
+		int row = move.charAt(0) - '1';
+		int col = move.charAt(1) - 'a';
+		if (row < 0 || row > 2 || col < 0 || col > 2) {
+			return -1;
+		}
+		return row * 3 + col;
+	}
+	
+	/**
+	 * Converts a space index to a move in the format 3a.
+	 * 
+	 * @param cell: space 0-8 (row * 3 + column)
+	 * @return String of row (1-3) and column (a-c)
+	 */
+	public static String toMove(int cell) {
+		return MOVES[cell];
+	}
+	
+	/**
+	 * Checks if a space is on the board and empty.
+	 * 
+	 * @param cell: space 0-8 (row * 3 + column)
+	 * @return true if a piece can be placed on the space
+	 */
+	public boolean isLegal(int cell) {
+		return cell >= 0 && cell < 9 && this.board[cell / 3][cell % 3] == '_';
+	}
+	
+	/**
+	 * Makes player's move without printing any messages.
+	 * 
+	 * @param player: char of current player that is making a move
+	 * @param cell: space 0-8 (row * 3 + column)
+	 * @return boolean that indicates whether the move was legal and made
+	 */
+	public boolean makeMove(char player, int cell) {
+		if (!isLegal(cell)) {
+			return false;
+		}
+		this.board[cell / 3][cell % 3] = player;
+		if (player == playerX) {
+			this.maskX |= 1 << cell;
+		} else {
+			this.maskO |= 1 << cell;
+		}
+		this.moves[this.turnsPlayed] = cell;
+		this.turnsPlayed++;
+		return true;
+	}
+	
+	/**
+	 * Gives the number of moves made so far.
+	 * 
+	 * @return number of pieces on the board
+	 */
+	public int getMoveCount() {
+		return this.turnsPlayed;
+	}
+	
+	/**
+	 * Gives one of the moves made so far, for saving and replaying games.
+	 * The player who made it is the piece on the space.
+	 * 
+	 * @param i: index of the move, 0 for the first move
+	 * @return space 0-8 (row * 3 + column) of the move
+	 * @throws IndexOutOfBoundsException if fewer than i + 1 moves were made
+	 */
+	public int getMove(int i) {
+		if (i < 0 || i >= this.turnsPlayed) {
+			throw new IndexOutOfBoundsException("no move " + i);
+		}
+		return this.moves[i];
 	}
 	
 	/**
@@ -81,16 +230,11 @@ public class TicTacToeLogic {
 	 * @return boolean that indicates whether the move entered by the player was valid
 	 */
 	public boolean makeMove(char player, char opponent, String move, boolean computer) {
-		boolean validMove;
-		char[] moveArray = new char[2];
-		
-		moveArray = move.toCharArray();
-		
-		validMove = validMove(player, opponent, moveArray);
-		if (validMove == true) {
-			updateBoard(player, moveArray);
+		int cell = toCell(move);
+		if (!validMove(player, cell, move)) {
+			return false;
 		}
-		return validMove;
+		return makeMove(player, cell);
 	}
 	
 	/**
@@ -102,74 +246,99 @@ public class TicTacToeLogic {
 	 * @return boolean value indicating if move is valid
 	 */
 	public boolean validMove(char player, char opponent, char[] move) {
-		try {
-			if (board[(int)(move[0] - 49)][(int)(move[1] - 97)] == player || board[(int)(move[0] - 49)][(int)(move[1] - 97)] == opponent) {
-				if (textConsole == true) {
-					System.out.println("The space " + move[0] + move[1] + " is occupied");
-					System.out.println("Player" + player + " please make a different selection.");
-				}
-				else { //GUI
-					TicTacToeGUI.MESSAGE.setText("The space " + move[0] + move[1] + " is occupied" +
-							"\nPlayer" + player + " please make a different selection.");
-				}
-				return false;
-			}
-		} catch (IndexOutOfBoundsException indexOutOfBounds) {
-			if (textConsole == true) {
-				System.out.println("That is not the correct format.");
-				System.out.println("Player " + " please use the format 3a.");
+		String moveString = new String(move);
+		return validMove(player, toCell(moveString), moveString);
+	}
+	
+	/**
+	 * Private method.
+	 * Checks validity of a move and tells the listener why an invalid move was not made.
+	 * 
+	 * @param player: char of current player
+	 * @param cell: space 0-8 of the move, or -1 if it was not in the right format
+	 * @param move: String of the move as the player entered it
+	 * @return boolean value indicating if move is valid
+	 */
+	private boolean validMove(char player, int cell, String move) {
+		if (cell < 0) {
+			if (listener != null) {
+				listener.invalidFormat(player, move);
 			}
-			else { //GUI
-				TicTacToeGUI.MESSAGE.setText("Invalid move. Player" + player + " please try again.");
+			return false;
+		}
+		if (!isLegal(cell)) {
+			if (listener != null) {
+				listener.spaceOccupied(player, move);
 			}
 			return false;
 		}
-		
-		this.turnsPlayed++;
 		return true;
 	}
 	
+	/**
+	 * Determines if a player has won the game with their last move, testing
+	 * only the lines through that space.
+	 * 
+	 * @param player: char of current player
+	 * @param cell: space 0-8 of the player's last move
+	 * @return boolean value indicating whether player is the winner, false if
+	 * the space is not on the board
+	 */
+	public boolean playerWon(char player, int cell) {
+		if (cell < 0 || cell > 8) {
+			return false;
+		}
+		int mask = getMask(player);
+		for (int line : CELL_LINES[cell]) {
+			if ((mask & line) == line) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Checks if a 9-bit mask of one player's pieces contains a line of three
+	 * with a single table lookup.
+	 * 
+	 * @param mask: bit (row * 3 + column) set for each space of the player
+	 * @return true if the mask contains a row, column or diagonal
+	 */
+	public static boolean hasLine(int mask) {
+		return WINNING[mask & 0x1FF];
+	}
+	
+	/**
+	 * Gives the spaces taken by a player as a 9-bit mask.
+	 * 
+	 * @param player: char of the player
+	 * @return mask with bit (row * 3 + column) set for each space of the player
+	 */
+	public int getMask(char player) {
+		return player == playerX ? this.maskX : this.maskO;
+	}
+	
 	/**
 	 * Determines if a player has won the game.
 	 * 
 	 * @param player: char of current player
-	 * @param opponent: char of current player's opponent
+	 * @param move: String of the player's last move in the format 3a
 	 * @return boolean value indicating whether player is the winner
 	 */
 	public boolean playerWon(char player, String move) {
-		int row = ((int) move.charAt(0)) - 49;
-		int col = ((int) move.charAt(1)) - 97;
-		
-		if (row == 0 && col == 0 && ((board[0][1] == player && board[0][2] == player) || (
-				board[1][0] == player && board[2][0] == player) || (board[1][1] == player && board[2][2] == player))) {
-			return true;
-		} else if (row == 1 && col == 0 && ((board[1][1] == player && board[1][2] == player) || (
-				board[0][0] == player && board[2][0] == player))) {
-			return true;
-		} else if (row == 2 && col == 0 && ((board[2][1] == player && board[2][2] == player) || (
-				board[0][0] == player && board[1][0] == player) || (board[1][1] == player && board[0][2] == player))) {
-			return true;
-		} else if (row == 0 && col == 1 && ((board[1][1] == player && board[1][2] == player) || (
-				board[0][0] == player && board[0][2] == player))) {
-			return true;
-		} else if (row == 1 && col == 1 && ((board[1][0] == player && board[1][2] == player) || 
-				(board[0][1] == player && board[2][1] == player) || (board[0][0] == player && board[2][2] == player) || 
-				(board[2][0] == player && board[0][2] == player))) {
-			return true;
-		}  else if (row == 2 && col == 1 && ((board[2][0] == player && board[2][2] == player) || (
-				board[0][1] == player && board[1][1] == player))) {
-			return true;
-		} else if (row == 0 && col == 2 && ((board[0][0] == player && board[0][1] == player) || (
-				board[1][2] == player && board[2][2] == player) || (board[1][1] == player && board[2][0] == player))) {
-			return true;
-		} else if (row == 1 && col == 2 && ((board[0][2] == player && board[2][2] == player) || (
-				board[1][0] == player && board[1][1] == player))) {
-			return true;
-		} else if (row == 2 && col == 2 && ((board[0][2] == player && board[1][2] == player) || (
-				board[2][0] == player && board[2][1] == player) || (board[0][0] == player && board[1][1] == player))) {
-			return true;
+		return playerWon(player, toCell(move));
+	}
+	
+	/**
+	 * Tells the listener that the computer player made its move.
+	 * 
+	 * @param player: char of the computer player
+	 * @param cell: space 0-8 of the move
+	 */
+	void computerMoved(char player, int cell) {
+		if (listener != null) {
+			listener.computerMoved(player, toMove(cell));
 		}
-		return false;
 	}
 	
 	/**
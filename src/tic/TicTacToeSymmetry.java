@@ -0,0 +1,143 @@
+/**Description: Maps TicTacToe positions to a canonical form under the 8
+ * symmetries of the board (4 rotations, each with or without a mirror).
+ * Positions that are rotations or mirror images of each other have the same
+ * value, so tables only have to store the canonical one.
+ * Belongs to tic package.
+ *
+ * @author Catherine Button
+ * @version 1.0
+ */
+package tic;
+
+public final class TicTacToeSymmetry {
+
+	/**
+	 * Number of symmetries of the board, transform 0 is the identity.
+	 */
+	public static final int TRANSFORMS = 8;
+
+	/**
+	 * MAP[t][cell] is the space (0-8) that a space moves to under
+	 * transform t.
+	 */
+	private static final int[][] MAP = {
+		{0, 1, 2, 3, 4, 5, 6, 7, 8}, // identity
+		{6, 3, 0, 7, 4, 1, 8, 5, 2}, // rotate 90
+		{8, 7, 6, 5, 4, 3, 2, 1, 0}, // rotate 180
+		{2, 5, 8, 1, 4, 7, 0, 3, 6}, // rotate 270
+		{2, 1, 0, 5, 4, 3, 8, 7, 6}, // mirror columns
+		{0, 3, 6, 1, 4, 7, 2, 5, 8}, // mirror main diagonal
+		{6, 7, 8, 3, 4, 5, 0, 1, 2}, // mirror rows
+		{8, 5, 2, 7, 4, 1, 6, 3, 0}  // mirror other diagonal
+	};
+
+	/**
+	 * INVERSE[t][cell] is the space that moves to cell under transform t.
+	 */
+	private static final int[][] INVERSE = new int[TRANSFORMS][9];
+
+	/**
+	 * Powers of 3, the weight of a space in a position index.
+	 */
+	private static final int[] POWERS = {1, 3, 9, 27, 81, 243, 729, 2187, 6561};
+
+	/**
+	 * LOW[t][digits] is the position index, under transform t, of the pieces
+	 * on spaces 0-4 given as a base 3 number (0 to 242).
+	 */
+	private static final int[][] LOW = new int[TRANSFORMS][243];
+
+	/**
+	 * HIGH[t][digits] is the position index, under transform t, of the pieces
+	 * on spaces 5-8 given as a base 3 number (0 to 80).
+	 */
+	private static final int[][] HIGH = new int[TRANSFORMS][81];
+
+	static {
+		for (int t = 0; t < TRANSFORMS; t++) {
+			for (int cell = 0; cell < 9; cell++) {
+				INVERSE[t][MAP[t][cell]] = cell;
+			}
+			for (int digits = 0; digits < 243; digits++) {
+				for (int cell = 0; cell < 5; cell++) {
+					LOW[t][digits] += digits / POWERS[cell] % 3 * POWERS[MAP[t][cell]];
+				}
+			}
+			for (int digits = 0; digits < 81; digits++) {
+				for (int cell = 5; cell < 9; cell++) {
+					HIGH[t][digits] += digits / POWERS[cell - 5] % 3 * POWERS[MAP[t][cell]];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Private constructor, the class only has static methods.
+	 */
+	private TicTacToeSymmetry() {
+	}
+
+	/**
+	 * Finds the canonical form of a position: the smallest position index of
+	 * its 8 transforms, and the transform that gives it.
+	 *
+	 * @param position: index of the position (see TicTacToeEngine)
+	 * @return canonical position index * 8 + transform
+	 */
+	public static int canonical(int position) {
+		int low = position % 243;
+		int high = position / 243;
+		int best = Integer.MAX_VALUE;
+		int bestTransform = 0;
+		for (int t = 0; t < TRANSFORMS; t++) {
+			int transformed = LOW[t][low] + HIGH[t][high];
+			if (transformed < best) {
+				best = transformed;
+				bestTransform = t;
+			}
+		}
+		return best * TRANSFORMS + bestTransform;
+	}
+
+	/**
+	 * Gives the position index of a canonical form.
+	 *
+	 * @param canonical: value returned by canonical
+	 * @return the canonical position index
+	 */
+	public static int key(int canonical) {
+		return canonical / TRANSFORMS;
+	}
+
+	/**
+	 * Gives the transform of a canonical form.
+	 *
+	 * @param canonical: value returned by canonical
+	 * @return transform (0-7) that maps the position to its canonical form
+	 */
+	public static int transform(int canonical) {
+		return canonical % TRANSFORMS;
+	}
+
+	/**
+	 * Maps a space of a position to the same space of its canonical form.
+	 *
+	 * @param cell: space 0-8
+	 * @param transform: transform of the canonical form
+	 * @return the space in the canonical form
+	 */
+	public static int toCanonical(int cell, int transform) {
+		return MAP[transform][cell];
+	}
+
+	/**
+	 * Maps a space of a canonical form back to the original position.
+	 *
+	 * @param cell: space 0-8 in the canonical form
+	 * @param transform: transform of the canonical form
+	 * @return the space in the original position
+	 */
+	public static int fromCanonical(int cell, int transform) {
+		return INVERSE[transform][cell];
+	}
+}
@@ -48,7 +48,8 @@ public class Connect4TextConsole {
         int turns = 0;
         
         if (game_type == 'C') {
-            Connect4ComputerPlayer computerPlayer = new Connect4ComputerPlayer();
+            System.out.println("Choose difficulty. Enter 'E' for easy, 'M' for medium or 'H' for hard.");
+            Connect4ComputerPlayer computerPlayer = new Connect4ComputerPlayer(readDifficulty(scnr));
             
             System.out.println("Start game against computer.");
             
@@ -57,6 +58,7 @@ public class Connect4TextConsole {
                 while (!processUserInput()) {
                     System.out.println("Not a valid move, please try again");
                 }
+                connect4Logic.incrementTurn();
                 turns++;
                 displayBoard();
                 if (turns == 42) {
@@ -65,21 +67,22 @@ public class Connect4TextConsole {
                 }
                 if (displayResults() != 0) break;
                 
-                int computer_col = computerPlayer.getColumn();
+                int computer_col = computerPlayer.getColumn(this.connect4Logic);
                 
                 int row = this.connect4Logic.checkMoveValidity(computer_col);
-                
-                while (row < 0) {
-                    computer_col = computerPlayer.getColumn();
-                    row = this.connect4Logic.checkMoveValidity(computer_col);
-                }
 
                 System.out.println("It is the computers turn, column picked by computer is: " + computer_col);
                 
-                this.connect4Logic.updateBoard(turns, row, computer_col);
+                this.connect4Logic.updateBoard(this.connect4Logic.getPlayerTurn(), row, computer_col);
+                connect4Logic.incrementTurn();
+                turns++;
                 displayBoard();
                 
                 if (displayResults() != 0) break;
+                if (turns == 42) {
+                    System.out.println("The board is full, the game is a draw!");
+                    break;
+                }
             }
         }
         else {
@@ -100,6 +103,26 @@ public class Connect4TextConsole {
         }
     }
 
+    /**
+     * Reads the difficulty of the computer player. Each difficulty gives the 
+     * computer more time to think per move.
+     * 
+     * @param scnr scanner to read the user input from.
+     * 
+     * @return the difficulty chosen by the user, medium if the input is not 
+     * recognized.
+     */
+    private Connect4ComputerPlayer.Difficulty readDifficulty(Scanner scnr) {
+        switch (Character.toUpperCase(scnr.next().charAt(0))) {
+            case 'E':
+                return Connect4ComputerPlayer.Difficulty.EASY;
+            case 'H':
+                return Connect4ComputerPlayer.Difficulty.HARD;
+            default:
+                return Connect4ComputerPlayer.Difficulty.MEDIUM;
+        }
+    }
+
     /**
      * Displays the current players turn based on turn count.
      */
@@ -165,13 +188,15 @@ public class Connect4TextConsole {
     /**
      * Determines the game's end state based on the win condition. If there is 
      * no winner and the game is still ongoing, nothing is displayed to console. 
-     * Will only display to console when there is a winner.
+     * Will only display to console when there is a winner. Only the lines 
+     * through the last piece dropped are checked, since that is the only piece
+     * that can have created a win.
      * 
      * @return 0 if game is still ongoing (no winner), 1 if player X won, and 
      * 2 if player O won.
      */
     public int displayResults() {
-        int win = this.connect4Logic.checkForWin();
+        int win = this.connect4Logic.checkLastMoveForWin();
         
         switch (win) {
             case 0: